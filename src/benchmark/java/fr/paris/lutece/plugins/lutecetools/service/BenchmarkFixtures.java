@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the fixtures used by the benchmarks (listing pages, POM, metadata and site index files)
+ */
+public final class BenchmarkFixtures
+{
+    public static final String PLUGINS_LISTING = "plugins-listing.html";
+    public static final String VERSIONS_LISTING = "versions-listing.html";
+    public static final String MAVEN_METADATA = "maven-metadata.xml";
+    public static final String POM = "pom.xml";
+    public static final String SITE_INDEX = "site-index.xml";
+
+    private static final String PATH_FIXTURES = "/fixtures/";
+
+    /**
+     * Private constructor
+     */
+    private BenchmarkFixtures( )
+    {
+    }
+
+    /**
+     * Load a fixture as bytes
+     * 
+     * @param strName
+     *            The fixture name
+     * @return The content
+     * @throws IOException
+     *             if the fixture can't be read
+     */
+    public static byte [ ] loadBytes( String strName ) throws IOException
+    {
+        try ( InputStream is = BenchmarkFixtures.class.getResourceAsStream( PATH_FIXTURES + strName ) )
+        {
+            if ( is == null )
+            {
+                throw new IOException( "Fixture not found : " + strName );
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream( );
+            byte [ ] buffer = new byte [ 8192];
+            int nRead;
+            while ( ( nRead = is.read( buffer ) ) != -1 )
+            {
+                baos.write( buffer, 0, nRead );
+            }
+            return baos.toByteArray( );
+        }
+    }
+
+    /**
+     * Load a fixture as a string
+     * 
+     * @param strName
+     *            The fixture name
+     * @return The content
+     * @throws IOException
+     *             if the fixture can't be read
+     */
+    public static String load( String strName ) throws IOException
+    {
+        return new String( loadBytes( strName ), StandardCharsets.UTF_8 );
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the extraction of the anchors of the repository listing pages
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ListingParserBenchmark
+{
+    private String _strPluginsListing;
+    private String _strVersionsListing;
+
+    /**
+     * Load the fixtures
+     * 
+     * @throws IOException
+     *             if a fixture can't be read
+     */
+    @Setup
+    public void setUp( ) throws IOException
+    {
+        _strPluginsListing = BenchmarkFixtures.load( BenchmarkFixtures.PLUGINS_LISTING );
+        _strVersionsListing = BenchmarkFixtures.load( BenchmarkFixtures.VERSIONS_LISTING );
+    }
+
+    /**
+     * Plugins directory listing (several hundreds of entries)
+     * 
+     * @return The anchors
+     */
+    @Benchmark
+    public List<String> pluginsListing( )
+    {
+        return ListingParser.getAnchorsList( _strPluginsListing );
+    }
+
+    /**
+     * Versions directory listing of an artifact
+     * 
+     * @return The anchors
+     */
+    @Benchmark
+    public List<String> versionsListing( )
+    {
+        return ListingParser.getAnchorsList( _strVersionsListing );
+    }
+
+    /**
+     * Versions of an artifact filtered inline, as views of the listing
+     * 
+     * @return The versions
+     */
+    @Benchmark
+    public List<CharSequence> versionsListingViews( )
+    {
+        return ListingParser.getAnchors( _strVersionsListing, true );
+    }
+}
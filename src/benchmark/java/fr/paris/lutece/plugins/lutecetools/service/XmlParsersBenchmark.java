@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import fr.paris.lutece.plugins.lutecetools.business.Component;
+
+/**
+ * Benchmark of the parsing of the POM, maven-metadata.xml and xdoc site index files. The POM parsing includes the extraction of the Lutece
+ * dependencies.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class XmlParsersBenchmark
+{
+    private byte [ ] _pom;
+    private byte [ ] _metadata;
+    private byte [ ] _siteIndex;
+
+    /**
+     * Load the fixtures
+     * 
+     * @throws IOException
+     *             if a fixture can't be read
+     */
+    @Setup
+    public void setUp( ) throws IOException
+    {
+        _pom = BenchmarkFixtures.loadBytes( BenchmarkFixtures.POM );
+        _metadata = BenchmarkFixtures.loadBytes( BenchmarkFixtures.MAVEN_METADATA );
+        _siteIndex = BenchmarkFixtures.loadBytes( BenchmarkFixtures.SITE_INDEX );
+    }
+
+    /**
+     * POM parsing (header infos and Lutece dependencies)
+     * 
+     * @return The handler
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Benchmark
+    public SaxPomHandler pom( ) throws ParserConfigurationException, SAXException, IOException
+    {
+        return PomService.instance( ).parse( new ByteArrayInputStream( _pom ) );
+    }
+
+    /**
+     * maven-metadata.xml parsing
+     * 
+     * @return The handler
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Benchmark
+    public SaxMetadataHandler metadata( ) throws ParserConfigurationException, SAXException, IOException
+    {
+        SaxMetadataHandler handler = new SaxMetadataHandler( );
+        SAXParserFactory.newInstance( ).newSAXParser( ).parse( new InputSource( new ByteArrayInputStream( _metadata ) ), handler );
+
+        return handler;
+    }
+
+    /**
+     * Xdoc site index parsing
+     * 
+     * @return The component filled with the site infos
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Benchmark
+    public Component siteIndex( ) throws ParserConfigurationException, SAXException, IOException
+    {
+        Component component = new Component( );
+        SiteInfoService.instance( ).parseSiteIndex( component, new ByteArrayInputStream( _siteIndex ), "en" );
+
+        return component;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.paris.lutece.plugins.lutecetools.business.Component;
+
+/**
+ * Benchmark of the serialization of the components stored into the Datastore
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ComponentCodecBenchmark
+{
+    // JMH parameters must be public fields : the field name is the parameter name (ie: -p codec=json)
+    @Param( {
+            JsonComponentCodec.NAME, GzipJsonComponentCodec.NAME
+    } )
+    public String codec;
+
+    private ComponentCodec _codec;
+    private Component _component;
+    private String _strPayload;
+
+    /**
+     * Build a component similar to a fully filled one
+     * 
+     * @throws IOException
+     *             if an error occurs
+     */
+    @Setup
+    public void setUp( ) throws IOException
+    {
+        _codec = JsonComponentCodec.NAME.equals( codec ) ? new JsonComponentCodec( ) : new GzipJsonComponentCodec( );
+
+        _component = new Component( );
+        _component.setArtifactId( "plugin-appointment" );
+        _component.setVersion( "2.1.3" );
+        _component.set( Component.SNAPSHOT_VERSION, "2.1.4-SNAPSHOT" );
+        _component.set( Component.CORE_VERSION, "[6.1.0,)" );
+        _component.set( Component.SNAPSHOT_CORE_VERSION, "[6.1.0,)" );
+        _component.set( Component.PARENT_POM_VERSION, "6.1.0" );
+        _component.set( Component.SNAPSHOT_PARENT_POM_VERSION, "6.1.0" );
+        _component.set( Component.JIRA_KEY, "APPOINTMENT" );
+        _component.set( Component.SCM_URL, "https://github.com/lutece-platform/lutece-appointment-plugin-appointment.git" );
+        _component.set( Component.IS_GIT_REPO, true );
+        _component.set( "branchesList", Arrays.asList( "develop", "master" ) );
+        _component.set( "pullRequests", 3 );
+        _component.set( "sonarNbLines", "25,431" );
+        _component.set( Component.SITE_INTRODUCTION + "_en", "Appointment management : forms, slots, reservations and notifications" );
+        _component.set( Component.SITE_KEYWORDS + "_en", Arrays.asList( "appointment", "slot", "reservation", "calendar" ) );
+
+        List<Map<String, String>> listDependencies = new ArrayList<>( );
+        for ( String strArtifactId : Arrays.asList( "plugin-genericattributes", "plugin-workflow", "plugin-rest", "plugin-mylutece",
+                "library-workflow-core", "library-httpaccess", "plugin-leaflet" ) )
+        {
+            Map<String, String> mapDependency = new HashMap<>( );
+            mapDependency.put( "groupId", "fr.paris.lutece.plugins" );
+            mapDependency.put( "artifactId", strArtifactId );
+            mapDependency.put( "version", "[2.0.0,)" );
+            mapDependency.put( "type", "lutece-plugin" );
+            listDependencies.add( mapDependency );
+        }
+        _component.set( Component.DEPENDENCY_LIST, listDependencies );
+
+        _strPayload = _codec.encode( _component );
+    }
+
+    /**
+     * Serialization
+     * 
+     * @return The payload
+     * @throws IOException
+     *             if an error occurs
+     */
+    @Benchmark
+    public String encode( ) throws IOException
+    {
+        return _codec.encode( _component );
+    }
+
+    /**
+     * Deserialization
+     * 
+     * @return The component
+     * @throws IOException
+     *             if an error occurs
+     */
+    @Benchmark
+    public Component decode( ) throws IOException
+    {
+        return _codec.decode( _strPayload );
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service.version;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.paris.lutece.plugins.lutecetools.service.BenchmarkFixtures;
+
+/**
+ * Benchmark of the versions parsing and of the latest version lookup
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class VersionBenchmark
+{
+    private List<String> _listVersions;
+
+    /**
+     * Load the versions listed in the metadata fixture
+     * 
+     * @throws IOException
+     *             if the fixture can't be read
+     */
+    @Setup
+    public void setUp( ) throws IOException
+    {
+        _listVersions = new ArrayList<>( );
+        Matcher matcher = Pattern.compile( "<version>([^<]+)</version>" ).matcher( BenchmarkFixtures.load( BenchmarkFixtures.MAVEN_METADATA ) );
+        while ( matcher.find( ) )
+        {
+            _listVersions.add( matcher.group( 1 ) );
+        }
+    }
+
+    /**
+     * Parsing of all the versions of an artifact
+     * 
+     * @param blackhole
+     *            The blackhole
+     * @throws VersionParsingException
+     *             if a version can't be parsed
+     */
+    @Benchmark
+    public void parse( Blackhole blackhole ) throws VersionParsingException
+    {
+        for ( String strVersion : _listVersions )
+        {
+            blackhole.consume( Version.parse( strVersion ) );
+        }
+    }
+
+    /**
+     * Latest version lookup
+     * 
+     * @return The latest version
+     */
+    @Benchmark
+    public String latestVersion( )
+    {
+        return VersionUtils.getLatestVersion( _listVersions );
+    }
+}
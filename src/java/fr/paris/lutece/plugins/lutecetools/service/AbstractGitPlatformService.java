@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.lutecetools.service;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * GitPlatform
  */
@@ -49,8 +51,8 @@ public abstract class AbstractGitPlatformService implements ComponentInfoFiller
     public static final String HAS_EXTRA_BRANCHES = "hasExtraBranches";
 
     private String _strGitPlatform;
-    private int _nItemCount;
-    private int _nItemOk;
+    private AtomicInteger _nItemCount = new AtomicInteger( );
+    private AtomicInteger _nItemOk = new AtomicInteger( );
 
     /**
      * Returns the GitPlatform
@@ -80,7 +82,7 @@ public abstract class AbstractGitPlatformService implements ComponentInfoFiller
      */
     public int getItemCount( )
     {
-        return _nItemCount;
+        return _nItemCount.get( );
     }
 
     /**
@@ -91,7 +93,7 @@ public abstract class AbstractGitPlatformService implements ComponentInfoFiller
      */
     public void setItemCount( int nItemCount )
     {
-        _nItemCount = nItemCount;
+        _nItemCount.set( nItemCount );
     }
 
     /**
@@ -101,7 +103,7 @@ public abstract class AbstractGitPlatformService implements ComponentInfoFiller
      */
     public int getItemOk( )
     {
-        return _nItemOk;
+        return _nItemOk.get( );
     }
 
     /**
@@ -112,7 +114,7 @@ public abstract class AbstractGitPlatformService implements ComponentInfoFiller
      */
     public void setItemOk( int nItemOk )
     {
-        _nItemOk = nItemOk;
+        _nItemOk.set( nItemOk );
     }
 
     /**
@@ -120,7 +122,7 @@ public abstract class AbstractGitPlatformService implements ComponentInfoFiller
      */
     public void incrementItemCount( )
     {
-        _nItemCount++;
+        _nItemCount.incrementAndGet( );
     }
 
     /**
@@ -128,7 +130,7 @@ public abstract class AbstractGitPlatformService implements ComponentInfoFiller
      */
     public void incrementItemOk( )
     {
-        _nItemOk++;
+        _nItemOk.incrementAndGet( );
     }
 
 }
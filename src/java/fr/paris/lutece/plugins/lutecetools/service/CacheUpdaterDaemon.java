@@ -49,6 +49,8 @@ public class CacheUpdaterDaemon extends Daemon
         MavenRepoService.instance( ).updateCache( );
 
         long lTime2 = new Date( ).getTime( );
-        setLastRunLogs( "Lutece Tools - Cache for Maven info updated : duration = " + ( lTime2 - lTime1 ) + "ms" );
+        setLastRunLogs( "Lutece Tools - Cache for Maven info updated : duration = " + ( lTime2 - lTime1 ) + "ms - memory cache : "
+                + ComponentService.getCacheSize( ) + " components, " + ComponentService.getCacheHits( ) + " hits, "
+                + ComponentService.getCacheMisses( ) + " misses" );
     }
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import fr.paris.lutece.plugins.lutecetools.business.Component;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Detects the fillers that don't need to be called again during a component refresh. A filler is skipped if the POM infos of the component and the
+ * change token returned by the filler are the same as during its last call. The attributes written by its last call are then copied from the
+ * previous version of the component.
+ */
+public final class ChangeDetector
+{
+    private static final String PROPERTY_ENABLED = "lutecetools.update.changeDetection.enabled";
+    private static final String PROPERTY_MAX_AGE = "lutecetools.update.changeDetection.maxAge";
+    private static final long DEFAULT_MAX_AGE = 86400000L; // 1 day
+    private static final boolean ENABLED = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true );
+    private static final long MAX_AGE = AppPropertiesService.getPropertyLong( PROPERTY_MAX_AGE, DEFAULT_MAX_AGE );
+
+    private static final String ATTRIBUTE_PREFIX = "changeDetection.";
+    private static final String ATTRIBUTE_POM_FINGERPRINT = ATTRIBUTE_PREFIX + "pomFingerprint";
+    private static final String SUFFIX_TOKEN = ".token";
+    private static final String SUFFIX_KEYS = ".keys";
+    private static final String SUFFIX_DATE = ".date";
+    private static final String SUFFIX_CHECKED = ".checked";
+
+    /**
+     * Private constructor
+     */
+    private ChangeDetector( )
+    {
+    }
+
+    /**
+     * Compute and store the fingerprint of the POM infos of a component. Must be called before calling the fillers.
+     * 
+     * @param component
+     *            The component filled with its POM infos
+     */
+    public static void setPomFingerprint( Component component )
+    {
+        component.set( ATTRIBUTE_POM_FINGERPRINT, getPomFingerprint( component ) );
+    }
+
+    /**
+     * Returns true if a filler doesn't need to be called for a component
+     * 
+     * @param filler
+     *            The filler
+     * @param strToken
+     *            The current change token of the filler
+     * @param component
+     *            The component being refreshed
+     * @param previous
+     *            The previous version of the component (may be null)
+     * @return true if the filler can be skipped
+     */
+    public static boolean isUnchanged( ComponentInfoFiller filler, String strToken, Component component, Component previous )
+    {
+        if ( !ENABLED || ( strToken == null ) || ( previous == null ) )
+        {
+            return false;
+        }
+
+        String strFillerKey = getFillerKey( filler );
+
+        if ( !strToken.equals( previous.get( strFillerKey + SUFFIX_TOKEN ) ) || !isPomUnchanged( component, previous ) )
+        {
+            return false;
+        }
+
+        Object objDate = previous.getObject( strFillerKey + SUFFIX_DATE );
+
+        return ( objDate instanceof Number ) && ( ( new Date( ).getTime( ) - ( (Number) objDate ).longValue( ) ) < MAX_AGE );
+    }
+
+    /**
+     * Returns true if the POM infos of a component are the same as in its previous version
+     * 
+     * @param component
+     *            The component being refreshed, filled with its POM infos
+     * @param previous
+     *            The previous version of the component
+     * @return true if the POM fingerprints are equal
+     */
+    public static boolean isPomUnchanged( Component component, Component previous )
+    {
+        return Objects.equals( component.get( ATTRIBUTE_POM_FINGERPRINT ), previous.get( ATTRIBUTE_POM_FINGERPRINT ) );
+    }
+
+    /**
+     * Copy the attributes written by the last call of a filler from the previous version of the component
+     * 
+     * @param filler
+     *            The filler
+     * @param component
+     *            The component being refreshed
+     * @param previous
+     *            The previous version of the component
+     */
+    public static void copyFillerAttributes( ComponentInfoFiller filler, Component component, Component previous )
+    {
+        String strFillerKey = getFillerKey( filler );
+        Object objKeys = previous.getObject( strFillerKey + SUFFIX_KEYS );
+
+        if ( objKeys instanceof List )
+        {
+            for ( Object key : (List<?>) objKeys )
+            {
+                String strKey = String.valueOf( key );
+                component.set( strKey, previous.getObject( strKey ) );
+            }
+        }
+        component.set( strFillerKey + SUFFIX_TOKEN, previous.get( strFillerKey + SUFFIX_TOKEN ) );
+        component.set( strFillerKey + SUFFIX_KEYS, objKeys );
+        component.set( strFillerKey + SUFFIX_DATE, previous.getObject( strFillerKey + SUFFIX_DATE ) );
+        component.set( strFillerKey + SUFFIX_CHECKED, previous.getObject( strFillerKey + SUFFIX_CHECKED ) );
+    }
+
+    /**
+     * Record that the infos of a filler have been checked (filled or found unchanged)
+     * 
+     * @param filler
+     *            The filler
+     * @param component
+     *            The component
+     */
+    public static void setChecked( ComponentInfoFiller filler, Component component )
+    {
+        component.set( getFillerKey( filler ) + SUFFIX_CHECKED, new Date( ).getTime( ) );
+    }
+
+    /**
+     * Gets the date of the last check of the infos of a filler
+     * 
+     * @param filler
+     *            The filler
+     * @param component
+     *            The component
+     * @return The date in ms or 0 if never checked
+     */
+    public static long getLastCheck( ComponentInfoFiller filler, Component component )
+    {
+        Object objDate = component.getObject( getFillerKey( filler ) + SUFFIX_CHECKED );
+
+        return ( objDate instanceof Number ) ? ( (Number) objDate ).longValue( ) : 0L;
+    }
+
+    /**
+     * Gets a copy of the attributes of a component, to be given to recordFill once the filler has been called. The attributes written by the last
+     * call of the filler are left out : the component may already hold them (copy of the cached component) and they must be recorded again even if
+     * their value is unchanged.
+     * 
+     * @param filler
+     *            The filler
+     * @param component
+     *            The component
+     * @return The attributes
+     */
+    public static Map<String, Object> getAttributesSnapshot( ComponentInfoFiller filler, Component component )
+    {
+        Map<String, Object> mapAttributes = new HashMap<>( component.getAttributes( ) );
+        Object objKeys = component.getObject( getFillerKey( filler ) + SUFFIX_KEYS );
+
+        if ( objKeys instanceof List )
+        {
+            for ( Object key : (List<?>) objKeys )
+            {
+                mapAttributes.remove( String.valueOf( key ) );
+            }
+        }
+        return mapAttributes;
+    }
+
+    /**
+     * Record the call of a filler : its change token and the attributes it has written
+     * 
+     * @param filler
+     *            The filler
+     * @param strToken
+     *            The change token of the filler (may be null)
+     * @param component
+     *            The component
+     * @param mapBefore
+     *            The attributes of the component before the call
+     */
+    public static void recordFill( ComponentInfoFiller filler, String strToken, Component component, Map<String, Object> mapBefore )
+    {
+        List<String> listKeys = new ArrayList<>( );
+
+        for ( Map.Entry<String, Object> entry : component.getAttributes( ).entrySet( ) )
+        {
+            if ( !Objects.equals( entry.getValue( ), mapBefore.get( entry.getKey( ) ) ) || !mapBefore.containsKey( entry.getKey( ) ) )
+            {
+                listKeys.add( entry.getKey( ) );
+            }
+        }
+
+        String strFillerKey = getFillerKey( filler );
+        component.set( strFillerKey + SUFFIX_TOKEN, strToken );
+        component.set( strFillerKey + SUFFIX_KEYS, listKeys );
+        component.set( strFillerKey + SUFFIX_DATE, new Date( ).getTime( ) );
+    }
+
+    /**
+     * Gets the fingerprint of the POM infos of a component
+     * 
+     * @param component
+     *            The component
+     * @return The fingerprint
+     */
+    static String getPomFingerprint( Component component )
+    {
+        Map<String, Object> mapPomInfos = new TreeMap<>( );
+
+        for ( Map.Entry<String, Object> entry : component.getAttributes( ).entrySet( ) )
+        {
+            if ( !entry.getKey( ).startsWith( ATTRIBUTE_PREFIX ) )
+            {
+                mapPomInfos.put( entry.getKey( ), entry.getValue( ) );
+            }
+        }
+
+        return component.getVersion( ) + ':' + Integer.toHexString( mapPomInfos.toString( ).hashCode( ) );
+    }
+
+    /**
+     * Gets the key used to store the change detection attributes of a filler
+     * 
+     * @param filler
+     *            The filler
+     * @return The key
+     */
+    private static String getFillerKey( ComponentInfoFiller filler )
+    {
+        return ATTRIBUTE_PREFIX + filler.getClass( ).getSimpleName( );
+    }
+}
@@ -50,4 +50,58 @@ public interface ComponentInfoFiller extends LuteceService
      *            Logs
      */
     void fill( Component component, StringBuilder sbLogs );
+
+    /**
+     * Prepare the data shared by the calls of this filler (ie: a catalogue of repositories) before a call. The time spent waiting for another call
+     * preparing them is then not counted in the timeout of the call.
+     */
+    default void prepare( )
+    {
+    }
+
+    /**
+     * Returns a token describing the upstream state of the component for this filler (ie: last push date, last versions ids). The filler is not called
+     * again while this token and the component POM infos are unchanged.
+     * 
+     * @param component
+     *            The component filled with its POM infos
+     * @return The token or null if the change can't be detected (the filler is always called)
+     */
+    default String getChangeToken( Component component )
+    {
+        return null;
+    }
+
+    /**
+     * Returns the refresh interval of the infos provided by this filler. With 0, the infos are refreshed along with the Maven infos of the component.
+     * Otherwise they are refreshed independently by the FillerScheduler.
+     * 
+     * @return The refresh interval in ms
+     */
+    default long getRefreshInterval( )
+    {
+        return 0L;
+    }
+
+    /**
+     * Returns the relative cost of a call to this filler (ie: the number of remote requests). Cheaper fillers are refreshed first by the
+     * FillerScheduler.
+     * 
+     * @return The cost
+     */
+    default int getCost( )
+    {
+        return 1;
+    }
+
+    /**
+     * Returns the key of the rate limited service requested by this filler. The calls are then paced, or deferred when the budget of the service
+     * is exhausted, by the RateLimiter.
+     * 
+     * @return The service key or null if the filler is not rate limited
+     */
+    default String getRateLimitKey( )
+    {
+        return null;
+    }
 }
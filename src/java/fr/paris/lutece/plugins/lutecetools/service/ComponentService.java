@@ -33,17 +33,22 @@
  */
 package fr.paris.lutece.plugins.lutecetools.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-
 import fr.paris.lutece.plugins.lutecetools.business.Component;
+import fr.paris.lutece.plugins.lutecetools.service.codec.ComponentCodec;
+import fr.paris.lutece.plugins.lutecetools.service.codec.ComponentCodecService;
+import fr.paris.lutece.plugins.lutecetools.service.codec.JsonComponentCodec;
 import fr.paris.lutece.portal.service.daemon.AppDaemonService;
 import fr.paris.lutece.portal.service.datastore.DatastoreService;
 import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 import java.io.IOException;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ComponentService
@@ -52,26 +57,84 @@ public class ComponentService
 {
     private static final String DSKEY_PREFIX = "lutecetools.database.";
     private static final String DAEMON_KEY = "lutecetoolsCacheUpdater";
-    private static final ObjectMapper _mapper = new ObjectMapper( );
+    private static final String PROPERTY_CACHE_MAX_SIZE = "lutecetools.cache.maxSize";
+    private static final int DEFAULT_CACHE_MAX_SIZE = 2000;
+    private static final int CACHE_MAX_SIZE = AppPropertiesService.getPropertyInt( PROPERTY_CACHE_MAX_SIZE, DEFAULT_CACHE_MAX_SIZE );
+
+    // In memory cache in front of the Datastore (LRU eviction). The components are kept encoded : each load returns its own instance, that the
+    // caller can modify without affecting the other readers
+    private static final Map<String, CachedComponent> _mapCache = Collections.synchronizedMap( new LinkedHashMap<String, CachedComponent>( 16, 0.75f, true )
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, CachedComponent> eldest )
+        {
+            return size( ) > CACHE_MAX_SIZE;
+        }
+    } );
+    private static final AtomicLong _nCacheHits = new AtomicLong( );
+    private static final AtomicLong _nCacheMisses = new AtomicLong( );
+    private static final ComponentCodec _copyCodec = new JsonComponentCodec( );
 
     private ComponentService( )
     {
     }
     
     /**
-     * Save a component into the Datastore as JSON format
+     * Save a component into the memory cache and into the Datastore using the configured codec
      * 
      * @param component
      *            The component
      */
     public static void save( Component component )
+    {
+        component.setLastUpdate( new Date( ).getTime( ) );
+        store( component );
+    }
+
+    /**
+     * Save a component whose infos have been partially refreshed. The last update date, that drives the refresh of the Maven infos, is kept.
+     * 
+     * @param component
+     *            The component
+     */
+    public static void update( Component component )
+    {
+        store( component );
+    }
+
+    /**
+     * Gets a copy of a component that can be modified without affecting the cached instance
+     * 
+     * @param component
+     *            The component
+     * @return The copy
+     * @throws IOException
+     *             if an error occurs
+     */
+    public static Component copy( Component component ) throws IOException
+    {
+        Component copy = _copyCodec.decode( _copyCodec.encode( component ) );
+        copy.setLastUpdate( component.getLastUpdate( ) );
+
+        return copy;
+    }
+
+    /**
+     * Store a component into the memory cache and into the Datastore using the configured codec
+     * 
+     * @param component
+     *            The component
+     */
+    private static void store( Component component )
     {
         try
         {
-            component.setLastUpdate( new Date( ).getTime( ) );
+            _mapCache.put( component.getArtifactId( ), new CachedComponent( _copyCodec.encode( component ), component.getLastUpdate( ) ) );
 
-            String strJSON = getAsJSON( component );
-            DatastoreService.setDataValue( DSKEY_PREFIX + component.getArtifactId( ), strJSON );
+            String strData = ComponentCodecService.encode( component );
+            DatastoreService.setDataValue( DSKEY_PREFIX + component.getArtifactId( ), strData );
         }
         catch( IOException ex )
         {
@@ -80,7 +143,7 @@ public class ComponentService
     }
 
     /**
-     * Load a component from the Datastore
+     * Load a component from the memory cache or from the Datastore if not cached. The returned instance is not shared.
      * 
      * @param strArtifactId
      *            The Artifact ID
@@ -88,14 +151,34 @@ public class ComponentService
      */
     public static Component load( String strArtifactId )
     {
+        CachedComponent cached = _mapCache.get( strArtifactId );
+
+        if ( cached != null )
+        {
+            try
+            {
+                Component component = _copyCodec.decode( cached.getData( ) );
+                component.setLastUpdate( cached.getLastUpdate( ) );
+                _nCacheHits.incrementAndGet( );
+                return component;
+            }
+            catch( IOException ex )
+            {
+                AppLogService.error( "LuteceTools : Error decoding cached component : " + ex.getMessage( ), ex );
+                _mapCache.remove( strArtifactId );
+            }
+        }
+        _nCacheMisses.incrementAndGet( );
+
         Component component = null;
-        String strJSON = DatastoreService.getDataValue( DSKEY_PREFIX + strArtifactId, null );
+        String strData = DatastoreService.getDataValue( DSKEY_PREFIX + strArtifactId, null );
 
-        if ( strJSON != null )
+        if ( strData != null )
         {
             try
             {
-                component = loadFromJSON( strJSON );
+                component = ComponentCodecService.decode( strData );
+                _mapCache.put( strArtifactId, new CachedComponent( _copyCodec.encode( component ), component.getLastUpdate( ) ) );
             }
             catch( IOException ex )
             {
@@ -114,36 +197,81 @@ public class ComponentService
         AppLogService.info( "LuteceTools : clear the cache of the component list ..." );
         AppDaemonService.stopDaemon( DAEMON_KEY );
         DatastoreService.removeInstanceDataByPrefix( DSKEY_PREFIX );
+        _mapCache.clear( );
         AppDaemonService.startDaemon( DAEMON_KEY );
         AppLogService.info( "LuteceTools : cache cleared." );
     }
 
     /**
-     * Convert a component into JSON
+     * Returns the number of components served by the memory cache
      * 
-     * @param component
-     *            The component
-     * @return JSON
-     * @throws IOException
-     *             if an error occurs
+     * @return The cache hits count
      */
-    private static String getAsJSON( Component component ) throws IOException
+    public static long getCacheHits( )
     {
-        _mapper.enable( SerializationFeature.INDENT_OUTPUT );
-        return _mapper.writeValueAsString( component );
+        return _nCacheHits.get( );
     }
 
     /**
-     * Convert JSON into Component
+     * Returns the number of components that had to be loaded from the Datastore
      * 
-     * @param strJson
-     *            The JSON
-     * @return The component
-     * @throws IOException
-     *             if an error occurs
+     * @return The cache misses count
      */
-    private static Component loadFromJSON( String strJson ) throws IOException
+    public static long getCacheMisses( )
     {
-        return _mapper.readValue( strJson, Component.class );
+        return _nCacheMisses.get( );
+    }
+
+    /**
+     * Returns the number of components held by the memory cache
+     * 
+     * @return The cache size
+     */
+    public static int getCacheSize( )
+    {
+        return _mapCache.size( );
+    }
+
+    /**
+     * Component kept by the memory cache
+     */
+    private static final class CachedComponent
+    {
+        private final String _strData;
+        private final long _lLastUpdate;
+
+        /**
+         * Constructor
+         * 
+         * @param strData
+         *            The encoded component
+         * @param lLastUpdate
+         *            The last update date (not encoded)
+         */
+        CachedComponent( String strData, long lLastUpdate )
+        {
+            _strData = strData;
+            _lLastUpdate = lLastUpdate;
+        }
+
+        /**
+         * Returns the encoded component
+         * 
+         * @return The data
+         */
+        String getData( )
+        {
+            return _strData;
+        }
+
+        /**
+         * Returns the last update date
+         * 
+         * @return The date
+         */
+        long getLastUpdate( )
+        {
+            return _lLastUpdate;
+        }
     }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the components list read from the Maven repository
+ */
+public final class ComponentsListSnapshot
+{
+    private final List<String> _listArtifactIds;
+    private final long _lVersion;
+    private final long _lTimestamp;
+
+    /**
+     * Constructor
+     * 
+     * @param listArtifactIds
+     *            The artifact IDs
+     * @param lVersion
+     *            The snapshot version
+     * @param lTimestamp
+     *            The time the list has been read from the repository
+     */
+    public ComponentsListSnapshot( List<String> listArtifactIds, long lVersion, long lTimestamp )
+    {
+        _listArtifactIds = Collections.unmodifiableList( new ArrayList<>( listArtifactIds ) );
+        _lVersion = lVersion;
+        _lTimestamp = lTimestamp;
+    }
+
+    /**
+     * Returns the artifact IDs
+     * 
+     * @return The artifact IDs (unmodifiable list)
+     */
+    public List<String> getArtifactIds( )
+    {
+        return _listArtifactIds;
+    }
+
+    /**
+     * Returns the snapshot version. The version is incremented each time a new list is published.
+     * 
+     * @return The version
+     */
+    public long getVersion( )
+    {
+        return _lVersion;
+    }
+
+    /**
+     * Returns the time the list has been read from the repository
+     * 
+     * @return The timestamp
+     */
+    public long getTimestamp( )
+    {
+        return _lTimestamp;
+    }
+}
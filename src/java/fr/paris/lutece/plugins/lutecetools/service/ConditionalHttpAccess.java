@@ -0,0 +1,648 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.httpaccess.HttpAccessException;
+
+/**
+ * Sends conditional GET requests (If-None-Match / If-Modified-Since) using the ETag and Last-Modified validators of the previous response. The body
+ * of the previous response is returned if the resource has not been modified (304). Bodies handed to a stream handler are kept as raw bytes, so they are
+ * never decoded to a String, and only when the response carries a validator. The cache is bounded by its number of entries and by the size of the
+ * bodies it holds.
+ */
+public final class ConditionalHttpAccess
+{
+    private static final String PROPERTY_MAX_ENTRIES = "lutecetools.http.conditional.maxEntries";
+    private static final int DEFAULT_MAX_ENTRIES = 5000;
+    private static final int MAX_ENTRIES = AppPropertiesService.getPropertyInt( PROPERTY_MAX_ENTRIES, DEFAULT_MAX_ENTRIES );
+    private static final String PROPERTY_MAX_BYTES = "lutecetools.http.conditional.maxBytes";
+    private static final long DEFAULT_MAX_BYTES = 32L * 1024L * 1024L;
+    private static final long MAX_BYTES = AppPropertiesService.getPropertyLong( PROPERTY_MAX_BYTES, DEFAULT_MAX_BYTES );
+
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    private static final Map<String, Entry> _mapEntries = Collections.synchronizedMap( new LinkedHashMap<>( 16, 0.75f, true ) );
+    private static long _lBytes;
+
+    /**
+     * Private constructor
+     */
+    private ConditionalHttpAccess( )
+    {
+    }
+
+    /**
+     * Do a conditional GET request holding a permit for the target host
+     * 
+     * @param strUrl
+     *            The URL
+     * @return The response body (the previous one if the resource has not been modified)
+     * @throws HttpAccessException
+     *             if an error occurs
+     */
+    public static String doGet( String strUrl ) throws HttpAccessException
+    {
+        try
+        {
+            HostThrottle.acquire( strUrl );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new HttpAccessException( "Interrupted while waiting for " + strUrl, e );
+        }
+        try
+        {
+            return doConditionalGet( strUrl );
+        }
+        finally
+        {
+            HostThrottle.release( strUrl );
+        }
+    }
+
+    /**
+     * Do a conditional GET request holding a permit for the target host and hand the response body stream to a handler. The handler is given the
+     * previous body if the resource has not been modified.
+     * 
+     * @param <T>
+     *            The type of the result
+     * @param strUrl
+     *            The URL
+     * @param mapHeadersRequest
+     *            The request headers (may be null)
+     * @param handler
+     *            The handler of the response body
+     * @return The result of the handler
+     * @throws HttpAccessException
+     *             if the request fails
+     * @throws IOException
+     *             if the handler fails to read the body
+     * @throws SAXException
+     *             if the handler fails to parse the body
+     * @throws ParserConfigurationException
+     *             if the handler can't create its parser
+     */
+    public static <T> T doGet( String strUrl, Map<String, String> mapHeadersRequest, ResponseStreamHandler<T> handler )
+            throws HttpAccessException, IOException, SAXException, ParserConfigurationException
+    {
+        try
+        {
+            HostThrottle.acquire( strUrl );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new HttpAccessException( "Interrupted while waiting for " + strUrl, e );
+        }
+        try
+        {
+            return doConditionalGet( strUrl, mapHeadersRequest, handler );
+        }
+        finally
+        {
+            HostThrottle.release( strUrl );
+        }
+    }
+
+    /**
+     * Clear the stored validators and bodies
+     */
+    public static void clear( )
+    {
+        synchronized( _mapEntries )
+        {
+            _mapEntries.clear( );
+            _lBytes = 0;
+        }
+    }
+
+    /**
+     * Gets the size of the bodies kept to replay the responses not modified
+     * 
+     * @return The size in bytes
+     */
+    public static long getBytes( )
+    {
+        synchronized( _mapEntries )
+        {
+            return _lBytes;
+        }
+    }
+
+    /**
+     * Stores an entry then evicts the least recently used entries while the cache exceeds its bounds
+     * 
+     * @param strUrl
+     *            The URL
+     * @param entry
+     *            The entry
+     */
+    private static void store( String strUrl, Entry entry )
+    {
+        if ( entry.getSize( ) > MAX_BYTES )
+        {
+            remove( strUrl );
+            return;
+        }
+        synchronized( _mapEntries )
+        {
+            Entry old = _mapEntries.put( strUrl, entry );
+            _lBytes += entry.getSize( ) - ( ( old != null ) ? old.getSize( ) : 0 );
+
+            Iterator<Entry> iterator = _mapEntries.values( ).iterator( );
+            while ( ( ( _mapEntries.size( ) > MAX_ENTRIES ) || ( _lBytes > MAX_BYTES ) ) && iterator.hasNext( ) )
+            {
+                _lBytes -= iterator.next( ).getSize( );
+                iterator.remove( );
+            }
+        }
+    }
+
+    /**
+     * Removes an entry
+     * 
+     * @param strUrl
+     *            The URL
+     */
+    private static void remove( String strUrl )
+    {
+        synchronized( _mapEntries )
+        {
+            Entry old = _mapEntries.remove( strUrl );
+            if ( old != null )
+            {
+                _lBytes -= old.getSize( );
+            }
+        }
+    }
+
+    /**
+     * Do the conditional GET request
+     * 
+     * @param strUrl
+     *            The URL
+     * @return The response body
+     * @throws HttpAccessException
+     *             if an error occurs
+     */
+    private static String doConditionalGet( String strUrl ) throws HttpAccessException
+    {
+        if ( MAX_ENTRIES <= 0 )
+        {
+            return StreamingHttpAccess.doGet( strUrl, null, null );
+        }
+
+        Entry entry = _mapEntries.get( strUrl );
+        Map<String, String> mapHeadersRequest = new HashMap<>( );
+
+        if ( entry != null )
+        {
+            if ( entry._strETag != null )
+            {
+                mapHeadersRequest.put( HEADER_IF_NONE_MATCH, entry._strETag );
+            }
+            if ( entry._strLastModified != null )
+            {
+                mapHeadersRequest.put( HEADER_IF_MODIFIED_SINCE, entry._strLastModified );
+            }
+        }
+
+        Map<String, String> mapHeadersResponse = new HashMap<>( );
+        String strBody;
+
+        try
+        {
+            strBody = StreamingHttpAccess.doGet( strUrl, mapHeadersRequest, mapHeadersResponse );
+        }
+        catch( StreamingHttpAccess.NotModifiedException e )
+        {
+            if ( entry != null )
+            {
+                return entry.getBody( );
+            }
+            throw e;
+        }
+
+        String strETag = getHeader( mapHeadersResponse, HEADER_ETAG );
+        String strLastModified = getHeader( mapHeadersResponse, HEADER_LAST_MODIFIED );
+
+        if ( ( strBody != null ) && ( ( strETag != null ) || ( strLastModified != null ) ) )
+        {
+            store( strUrl, new Entry( strETag, strLastModified, strBody ) );
+        }
+        else
+        {
+            remove( strUrl );
+        }
+
+        return strBody;
+    }
+
+    /**
+     * Do the conditional GET request handing the body stream to a handler
+     * 
+     * @param <T>
+     *            The type of the result
+     * @param strUrl
+     *            The URL
+     * @param mapHeaders
+     *            The request headers (may be null)
+     * @param handler
+     *            The handler
+     * @return The result of the handler
+     * @throws HttpAccessException
+     *             if the request fails
+     * @throws IOException
+     *             if the handler fails to read the body
+     * @throws SAXException
+     *             if the handler fails to parse the body
+     * @throws ParserConfigurationException
+     *             if the handler can't create its parser
+     */
+    private static <T> T doConditionalGet( String strUrl, Map<String, String> mapHeaders, ResponseStreamHandler<T> handler )
+            throws HttpAccessException, IOException, SAXException, ParserConfigurationException
+    {
+        if ( MAX_ENTRIES <= 0 )
+        {
+            return StreamingHttpAccess.doGet( strUrl, mapHeaders, null, handler );
+        }
+
+        Entry entry = _mapEntries.get( strUrl );
+        Map<String, String> mapHeadersRequest = new HashMap<>( );
+        if ( mapHeaders != null )
+        {
+            mapHeadersRequest.putAll( mapHeaders );
+        }
+        if ( entry != null )
+        {
+            if ( entry._strETag != null )
+            {
+                mapHeadersRequest.put( HEADER_IF_NONE_MATCH, entry._strETag );
+            }
+            if ( entry._strLastModified != null )
+            {
+                mapHeadersRequest.put( HEADER_IF_MODIFIED_SINCE, entry._strLastModified );
+            }
+        }
+
+        Map<String, String> mapHeadersResponse = new HashMap<>( );
+        CapturingInputStream [ ] capture = new CapturingInputStream [ 1];
+        T result;
+
+        try
+        {
+            result = StreamingHttpAccess.doGet( strUrl, mapHeadersRequest, mapHeadersResponse, is -> {
+                // The headers are received before the body : without validator the body can't be replayed, so it is not copied
+                if ( !hasValidator( mapHeadersResponse ) )
+                {
+                    return handler.handle( is );
+                }
+                capture [0] = new CapturingInputStream( is, MAX_BYTES );
+                T handled = handler.handle( capture [0] );
+                capture [0].drain( );
+                return handled;
+            } );
+        }
+        catch( StreamingHttpAccess.NotModifiedException e )
+        {
+            if ( entry == null )
+            {
+                throw e;
+            }
+            try ( InputStream is = entry.openStream( ) )
+            {
+                return handler.handle( is );
+            }
+        }
+
+        String strETag = getHeader( mapHeadersResponse, HEADER_ETAG );
+        String strLastModified = getHeader( mapHeadersResponse, HEADER_LAST_MODIFIED );
+
+        if ( ( capture [0] != null ) && !capture [0].isTruncated( ) )
+        {
+            store( strUrl, new Entry( strETag, strLastModified, capture [0].getBytes( ) ) );
+        }
+        else
+        {
+            remove( strUrl );
+        }
+
+        return result;
+    }
+
+    /**
+     * Tells if the response carries an ETag or a Last-Modified validator
+     * 
+     * @param mapHeaders
+     *            The response headers
+     * @return true if a conditional request can be sent next time
+     */
+    private static boolean hasValidator( Map<String, String> mapHeaders )
+    {
+        return ( getHeader( mapHeaders, HEADER_ETAG ) != null ) || ( getHeader( mapHeaders, HEADER_LAST_MODIFIED ) != null );
+    }
+
+    /**
+     * Gets a response header ignoring its case
+     * 
+     * @param mapHeaders
+     *            The headers
+     * @param strName
+     *            The header name
+     * @return The value or null
+     */
+    private static String getHeader( Map<String, String> mapHeaders, String strName )
+    {
+        for ( Map.Entry<String, String> header : mapHeaders.entrySet( ) )
+        {
+            if ( strName.equalsIgnoreCase( header.getKey( ) ) )
+            {
+                return header.getValue( );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Validators and body of a response
+     */
+    private static final class Entry
+    {
+        private final String _strETag;
+        private final String _strLastModified;
+        private final String _strBody;
+        private final byte [ ] _body;
+
+        /**
+         * Constructor
+         * 
+         * @param strETag
+         *            The ETag
+         * @param strLastModified
+         *            The Last-Modified date
+         * @param strBody
+         *            The body
+         */
+        Entry( String strETag, String strLastModified, String strBody )
+        {
+            _strETag = strETag;
+            _strLastModified = strLastModified;
+            _strBody = strBody;
+            _body = null;
+        }
+
+        /**
+         * Constructor
+         * 
+         * @param strETag
+         *            The ETag
+         * @param strLastModified
+         *            The Last-Modified date
+         * @param body
+         *            The raw body
+         */
+        Entry( String strETag, String strLastModified, byte [ ] body )
+        {
+            _strETag = strETag;
+            _strLastModified = strLastModified;
+            _strBody = null;
+            _body = body;
+        }
+
+        /**
+         * Gets the body as a String
+         * 
+         * @return The body
+         */
+        String getBody( )
+        {
+            return ( _strBody != null ) ? _strBody : new String( _body, StandardCharsets.UTF_8 );
+        }
+
+        /**
+         * Gets the size of the body (two bytes per char for a String)
+         * 
+         * @return The size in bytes
+         */
+        long getSize( )
+        {
+            return ( _body != null ) ? _body.length : 2L * _strBody.length( );
+        }
+
+        /**
+         * Opens a stream on the body
+         * 
+         * @return The stream
+         */
+        InputStream openStream( )
+        {
+            return new ByteArrayInputStream( ( _body != null ) ? _body : _strBody.getBytes( StandardCharsets.UTF_8 ) );
+        }
+    }
+
+    /**
+     * Input stream keeping a copy of the bytes read, to replay the body on a 304 response. The copy is dropped once it exceeds its maximum size.
+     */
+    private static final class CapturingInputStream extends FilterInputStream
+    {
+        private static final int BUFFER_SIZE = 8192;
+        private final long _lMaxBytes;
+        private ByteArrayOutputStream _out = new ByteArrayOutputStream( BUFFER_SIZE );
+        private boolean _bDrained;
+
+        /**
+         * Constructor
+         * 
+         * @param is
+         *            The response body stream
+         * @param lMaxBytes
+         *            The maximum size of the copy
+         */
+        CapturingInputStream( InputStream is, long lMaxBytes )
+        {
+            super( is );
+            _lMaxBytes = lMaxBytes;
+        }
+
+        /**
+         * Copies bytes read unless the copy is too large
+         * 
+         * @param buffer
+         *            The bytes
+         * @param nOffset
+         *            The offset
+         * @param nLength
+         *            The length
+         */
+        private void capture( byte [ ] buffer, int nOffset, int nLength )
+        {
+            if ( _out == null )
+            {
+                return;
+            }
+            if ( _out.size( ) + (long) nLength > _lMaxBytes )
+            {
+                _out = null;
+                return;
+            }
+            _out.write( buffer, nOffset, nLength );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read( ) throws IOException
+        {
+            int nByte = super.read( );
+            if ( ( nByte >= 0 ) && ( _out != null ) )
+            {
+                if ( _out.size( ) >= _lMaxBytes )
+                {
+                    _out = null;
+                }
+                else
+                {
+                    _out.write( nByte );
+                }
+            }
+            return nByte;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read( byte [ ] buffer, int nOffset, int nLength ) throws IOException
+        {
+            int nRead = super.read( buffer, nOffset, nLength );
+            if ( nRead > 0 )
+            {
+                capture( buffer, nOffset, nRead );
+            }
+            return nRead;
+        }
+
+        /**
+         * Skipped bytes must be captured too
+         * 
+         * @param lSkip
+         *            The number of bytes to skip
+         * @return The number of bytes skipped
+         * @throws IOException
+         *             if an error occurs
+         */
+        @Override
+        public long skip( long lSkip ) throws IOException
+        {
+            byte [ ] buffer = new byte [ (int) Math.min( lSkip, BUFFER_SIZE )];
+            int nRead = read( buffer, 0, buffer.length );
+            return Math.max( nRead, 0 );
+        }
+
+        /**
+         * Parsers close their input at the end of the document : the remaining bytes are captured and the response stream is left open, it is closed
+         * by StreamingHttpAccess
+         * 
+         * @throws IOException
+         *             if an error occurs
+         */
+        @Override
+        public void close( ) throws IOException
+        {
+            drain( );
+        }
+
+        /**
+         * The parser may stop before the end of the body : read the remaining bytes to capture the whole body
+         * 
+         * @throws IOException
+         *             if an error occurs
+         */
+        void drain( ) throws IOException
+        {
+            if ( _bDrained || ( _out == null ) )
+            {
+                return;
+            }
+            byte [ ] buffer = new byte [ BUFFER_SIZE];
+            while ( read( buffer, 0, buffer.length ) >= 0 )
+            {
+                // captured by read
+            }
+            _bDrained = true;
+        }
+
+        /**
+         * Gets the captured bytes
+         * 
+         * @return The bytes
+         */
+        byte [ ] getBytes( )
+        {
+            return _out.toByteArray( );
+        }
+
+        /**
+         * Tells if the copy has been dropped because the body is too large
+         * 
+         * @return true if the body has not been captured
+         */
+        boolean isTruncated( )
+        {
+            return _out == null;
+        }
+    }
+}
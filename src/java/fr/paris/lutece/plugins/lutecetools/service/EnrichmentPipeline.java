@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import fr.paris.lutece.plugins.lutecetools.business.Component;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Fetches a component as a graph of asynchronous stages : the Maven stage (versions and POM infos) fans out to the fillers, that only depend on the
+ * POM infos and run concurrently, then their slices are joined into the component. Each filler works on its own copy of the component and logs, so
+ * the attributes recorded for a filler are only its own. The timeout of a stage runs from its start (once a filler holds its host permit and rate
+ * budget), not from its submission. A stage that exceeds its timeout is interrupted and abandoned : the previous infos of the filler are kept.
+ * If the Maven stage fails, the fetch fails : no component is returned, so that the cached one is not saved again as if it were fetched.
+ */
+public final class EnrichmentPipeline
+{
+    private static final String PROPERTY_ENABLED = "lutecetools.pipeline.enabled";
+    private static final boolean ENABLED = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true );
+    private static final String PROPERTY_THREADS = "lutecetools.pipeline.threads";
+    private static final int THREADS = AppPropertiesService.getPropertyInt( PROPERTY_THREADS, 16 );
+    private static final String PROPERTY_MAVEN_TIMEOUT = "lutecetools.pipeline.maven.timeout";
+    private static final long MAVEN_TIMEOUT = AppPropertiesService.getPropertyLong( PROPERTY_MAVEN_TIMEOUT, 120000L );
+    private static final String PROPERTY_FILLER_TIMEOUT = "lutecetools.pipeline.filler.timeout";
+    private static final long FILLER_TIMEOUT = AppPropertiesService.getPropertyLong( PROPERTY_FILLER_TIMEOUT, 60000L );
+
+    private static ScheduledExecutorService _timer;
+    private static ExecutorService _executor;
+
+    /**
+     * Private constructor
+     */
+    private EnrichmentPipeline( )
+    {
+    }
+
+    /**
+     * Fetch a component
+     *
+     * @param strArtifactId
+     *            The artifact id
+     * @param mavenStage
+     *            The Maven stage : creates the component with its versions and POM infos, logging into the given logs
+     * @param listFillers
+     *            The fillers
+     * @param previous
+     *            The previous version of the component used to skip unchanged fillers (may be null)
+     * @param sbLogs
+     *            Logs
+     * @return The component
+     * @throws AppException
+     *             if the Maven stage failed or timed out
+     */
+    public static Component fetch( String strArtifactId, MavenStage mavenStage, List<ComponentInfoFiller> listFillers, Component previous,
+            StringBuilder sbLogs )
+    {
+        if ( !ENABLED )
+        {
+            Component component = mavenStage.fetch( sbLogs );
+            for ( ComponentInfoFiller filler : listFillers )
+            {
+                FillerScheduler.fillComponent( filler, component, previous, sbLogs );
+            }
+            return component;
+        }
+
+        long lStart = System.currentTimeMillis( );
+        Executor executor = getExecutor( );
+        StringBuilder sbMavenLogs = new StringBuilder( );
+        CompletableFuture<Component> futureMaven = submit( startClock -> {
+            startClock.run( );
+            return mavenStage.fetch( sbMavenLogs );
+        }, executor, MAVEN_TIMEOUT );
+
+        List<CompletableFuture<Slice>> listSlices = new ArrayList<>( );
+        for ( ComponentInfoFiller filler : listFillers )
+        {
+            // The fillers stages are submitted once the POM infos are available
+            listSlices.add( futureMaven.thenCompose( component -> submit( startClock -> fill( filler, component, previous, startClock ), executor,
+                    FILLER_TIMEOUT ) ) );
+        }
+
+        Component component;
+        try
+        {
+            component = futureMaven.get( );
+        }
+        catch( ExecutionException e )
+        {
+            // The logs of a timed out stage may still be written by its thread
+            if ( !( e.getCause( ) instanceof TimeoutException ) )
+            {
+                sbLogs.append( sbMavenLogs );
+            }
+            throw new AppException( "Maven infos not fetched : " + getMessage( e.getCause( ) ), e.getCause( ) );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new AppException( "Interrupted while fetching the Maven infos", e );
+        }
+        sbLogs.append( sbMavenLogs );
+
+        // Join : the slices are merged in the fillers order, whatever their completion order
+        CompletableFuture.allOf( listSlices.toArray( new CompletableFuture [ listSlices.size( )] ) ).exceptionally( e -> null ).join( );
+        for ( int i = 0; i < listFillers.size( ); i++ )
+        {
+            merge( listFillers.get( i ), listSlices.get( i ), component, previous, sbLogs );
+        }
+
+        sbLogs.append( "\nLutece Tools - Fetching component '" ).append( strArtifactId ).append( "' - total duration : " )
+                .append( System.currentTimeMillis( ) - lStart ).append( "ms." );
+        return component;
+    }
+
+    /**
+     * Fill a slice of the component
+     *
+     * @param filler
+     *            The filler
+     * @param component
+     *            The component filled with its POM infos
+     * @param previous
+     *            The previous version of the component (may be null)
+     * @param startClock
+     *            Starts the timeout of the stage
+     * @return The slice
+     */
+    private static Slice fill( ComponentInfoFiller filler, Component component, Component previous, Runnable startClock )
+    {
+        try
+        {
+            Slice slice = new Slice( ComponentService.copy( component ) );
+            FillerScheduler.fillComponent( filler, slice.getComponent( ), previous, slice.getLogs( ), startClock );
+            return slice;
+        }
+        catch( IOException e )
+        {
+            throw new CompletionException( e );
+        }
+    }
+
+    /**
+     * Merge the slice of a filler into the component : its attributes, and the component type that is a property of the component. The previous
+     * infos of the filler are kept if the slice is not available.
+     *
+     * @param filler
+     *            The filler
+     * @param futureSlice
+     *            The slice
+     * @param component
+     *            The component
+     * @param previous
+     *            The previous version of the component (may be null)
+     * @param sbLogs
+     *            Logs
+     */
+    private static void merge( ComponentInfoFiller filler, CompletableFuture<Slice> futureSlice, Component component, Component previous,
+            StringBuilder sbLogs )
+    {
+        try
+        {
+            Slice slice = futureSlice.get( );
+            ChangeDetector.copyFillerAttributes( filler, component, slice.getComponent( ) );
+            copyComponentType( component, slice.getComponent( ) );
+            sbLogs.append( slice.getLogs( ) );
+        }
+        catch( ExecutionException e )
+        {
+            if ( previous != null )
+            {
+                ChangeDetector.copyFillerAttributes( filler, component, previous );
+            }
+            sbLogs.append( "\n*** ERROR *** " ).append( filler.getName( ) ).append( " infos of component " ).append( component.getArtifactId( ) )
+                    .append( " not fetched : " ).append( getMessage( e.getCause( ) ) );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * Copy the component type set by a filler (see ComponentTypeService) : it is not an attribute, so it is not recorded with the filler attributes
+     *
+     * @param component
+     *            The component
+     * @param slice
+     *            The component filled by the filler
+     */
+    private static void copyComponentType( Component component, Component slice )
+    {
+        if ( ( slice.getComponentType( ) != null ) && !slice.getComponentType( ).equals( component.getComponentType( ) ) )
+        {
+            component.setComponentType( slice.getComponentType( ) );
+        }
+    }
+
+    /**
+     * Submit a stage that fails and is interrupted if it is not completed within a timeout. The clock of the timeout is started by the stage itself,
+     * so that the time spent in the executor queue or waiting for a permit is not counted.
+     *
+     * @param <T>
+     *            The type of the result
+     * @param task
+     *            The task of the stage, given a Runnable that starts the clock
+     * @param executor
+     *            The executor
+     * @param lTimeout
+     *            The timeout in ms (0 for none)
+     * @return The stage
+     */
+    static <T> CompletableFuture<T> submit( Function<Runnable, T> task, Executor executor, long lTimeout )
+    {
+        Stage<T> stage = new Stage<>( lTimeout );
+        try
+        {
+            executor.execute( ( ) -> stage.run( task ) );
+        }
+        catch( RejectedExecutionException e )
+        {
+            stage.getFuture( ).completeExceptionally( e );
+        }
+        return stage.getFuture( );
+    }
+
+    /**
+     * Gets the message of a stage failure
+     *
+     * @param e
+     *            The failure
+     * @return The message
+     */
+    private static String getMessage( Throwable e )
+    {
+        Throwable cause = ( ( e instanceof CompletionException ) && ( e.getCause( ) != null ) ) ? e.getCause( ) : e;
+        return ( cause.getMessage( ) != null ) ? cause.getMessage( ) : cause.getClass( ).getSimpleName( );
+    }
+
+    /**
+     * Gets the executor of the stages, created on first use : a thread per stage in the virtual threads mode
+     *
+     * @return The executor
+     */
+    private static synchronized Executor getExecutor( )
+    {
+        if ( _executor == null )
+        {
+            _executor = ExecutorFactory.newExecutor( "lutecetools-pipeline-", THREADS );
+        }
+        return _executor;
+    }
+
+    /**
+     * Gets the timer of the stages timeouts, created on first use
+     *
+     * @return The timer
+     */
+    private static synchronized ScheduledExecutorService getTimer( )
+    {
+        if ( _timer == null )
+        {
+            _timer = Executors.newSingleThreadScheduledExecutor( ExecutorFactory.daemonThreadFactory( "lutecetools-pipeline-timer-" ) );
+        }
+        return _timer;
+    }
+
+    /**
+     * Stop the executor of the stages and the timer. They are created again on next use
+     *
+     * @param lTimeout
+     *            The timeout in ms to await the end of the running stages
+     */
+    public static void shutdown( long lTimeout )
+    {
+        ExecutorService executor;
+        ScheduledExecutorService timer;
+        synchronized( EnrichmentPipeline.class )
+        {
+            executor = _executor;
+            timer = _timer;
+            _executor = null;
+            _timer = null;
+        }
+        if ( executor != null )
+        {
+            ExecutorFactory.shutdown( executor, lTimeout );
+        }
+        if ( timer != null )
+        {
+            timer.shutdownNow( );
+        }
+    }
+
+    /**
+     * Maven stage of the fetch
+     */
+    @FunctionalInterface
+    public interface MavenStage
+    {
+        /**
+         * Creates the component with its versions and POM infos
+         *
+         * @param sbLogs
+         *            Logs
+         * @return The component
+         */
+        Component fetch( StringBuilder sbLogs );
+    }
+
+    /**
+     * Stage running on a thread of the executor, with a timeout started on demand
+     *
+     * @param <T>
+     *            The type of the result
+     */
+    private static final class Stage<T>
+    {
+        private final CompletableFuture<T> _future = new CompletableFuture<>( );
+        private final long _lTimeout;
+        private Thread _thread;
+        private ScheduledFuture<?> _timeout;
+        private boolean _bInterrupted;
+
+        /**
+         * Constructor
+         *
+         * @param lTimeout
+         *            The timeout in ms (0 for none)
+         */
+        Stage( long lTimeout )
+        {
+            _lTimeout = lTimeout;
+        }
+
+        /**
+         * Returns the result of the stage
+         *
+         * @return The future
+         */
+        CompletableFuture<T> getFuture( )
+        {
+            return _future;
+        }
+
+        /**
+         * Run the task on the current thread
+         *
+         * @param task
+         *            The task, given a Runnable that starts the clock
+         */
+        void run( Function<Runnable, T> task )
+        {
+            synchronized( this )
+            {
+                _thread = Thread.currentThread( );
+            }
+            try
+            {
+                _future.complete( task.apply( this::startClock ) );
+            }
+            catch( RuntimeException | Error e )
+            {
+                _future.completeExceptionally( e );
+            }
+            finally
+            {
+                synchronized( this )
+                {
+                    _thread = null;
+                    if ( _timeout != null )
+                    {
+                        _timeout.cancel( false );
+                    }
+                    // The thread is reused by the executor : the interrupt of the timeout must not reach its next task
+                    if ( _bInterrupted )
+                    {
+                        Thread.interrupted( );
+                    }
+                }
+            }
+        }
+
+        /**
+         * Start the clock of the timeout, once
+         */
+        private synchronized void startClock( )
+        {
+            if ( ( _lTimeout > 0 ) && ( _timeout == null ) )
+            {
+                _timeout = getTimer( ).schedule( this::expire, _lTimeout, TimeUnit.MILLISECONDS );
+            }
+        }
+
+        /**
+         * Fail the stage and interrupt its thread if it is still running
+         */
+        private synchronized void expire( )
+        {
+            if ( _future.completeExceptionally( new TimeoutException( "timeout after " + _lTimeout + "ms" ) ) && ( _thread != null ) )
+            {
+                _bInterrupted = true;
+                _thread.interrupt( );
+            }
+        }
+    }
+
+    /**
+     * Component copy filled by a single filler, with its logs
+     */
+    private static final class Slice
+    {
+        private final Component _component;
+        private final StringBuilder _sbLogs = new StringBuilder( );
+
+        /**
+         * Constructor
+         *
+         * @param component
+         *            The component copy
+         */
+        Slice( Component component )
+        {
+            _component = component;
+        }
+
+        /**
+         * Returns the component copy
+         *
+         * @return The component
+         */
+        Component getComponent( )
+        {
+            return _component;
+        }
+
+        /**
+         * Returns the logs
+         *
+         * @return The logs
+         */
+        StringBuilder getLogs( )
+        {
+            return _sbLogs;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Creates the executors of the cache update and of the fetch pipeline. All the fillers are blocking I/O : on a JDK 21+ runtime, the virtual threads
+ * mode runs each task on its own virtual thread, the concurrency being bounded by the HostThrottle semaphores instead of a pool size. The mode is
+ * selected once at startup, the platform threads pools being used if it is disabled or not supported by the runtime. The virtual threads API is
+ * reached by reflection as the plugin is compiled for Java 8.
+ */
+public final class ExecutorFactory
+{
+    private static final String PROPERTY_VIRTUAL_THREADS = "lutecetools.virtualThreads.enabled";
+    private static final VirtualThreads VIRTUAL_THREADS = VirtualThreads.create( AppPropertiesService.getPropertyBoolean( PROPERTY_VIRTUAL_THREADS, false ) );
+
+    /**
+     * Private constructor
+     */
+    private ExecutorFactory( )
+    {
+    }
+
+    /**
+     * Returns true if the tasks run on virtual threads
+     *
+     * @return true in the virtual threads mode
+     */
+    public static boolean isVirtualThreads( )
+    {
+        return VIRTUAL_THREADS != null;
+    }
+
+    /**
+     * Creates an executor : a new virtual thread per task in the virtual threads mode, otherwise a fixed pool of daemon threads
+     *
+     * @param strName
+     *            The threads name prefix
+     * @param nThreads
+     *            The size of the pool (ignored in the virtual threads mode)
+     * @return The executor
+     */
+    public static ExecutorService newExecutor( String strName, int nThreads )
+    {
+        if ( VIRTUAL_THREADS != null )
+        {
+            try
+            {
+                return VIRTUAL_THREADS.newExecutor( strName );
+            }
+            catch( ReflectiveOperationException e )
+            {
+                AppLogService.error( "LuteceTools : Unable to create virtual threads executor, using a threads pool : " + e.getMessage( ), e );
+            }
+        }
+        return Executors.newFixedThreadPool( nThreads, daemonThreadFactory( strName ) );
+    }
+
+    /**
+     * Stop an executor : the queued tasks are dropped, the running ones are interrupted and their end is awaited within a timeout
+     *
+     * @param executor
+     *            The executor
+     * @param lTimeout
+     *            The timeout in ms
+     */
+    public static void shutdown( ExecutorService executor, long lTimeout )
+    {
+        executor.shutdownNow( );
+        try
+        {
+            if ( !executor.awaitTermination( lTimeout, TimeUnit.MILLISECONDS ) )
+            {
+                AppLogService.error( "LuteceTools : Executor tasks still running after " + lTimeout + "ms" );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * Creates a factory of daemon threads
+     *
+     * @param strName
+     *            The threads name prefix
+     * @return The factory
+     */
+    public static ThreadFactory daemonThreadFactory( String strName )
+    {
+        AtomicInteger nCount = new AtomicInteger( );
+        return runnable -> {
+            Thread thread = new Thread( runnable, strName + nCount.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        };
+    }
+
+    /**
+     * Virtual threads API of the runtime (JDK 21+)
+     */
+    private static final class VirtualThreads
+    {
+        private final Method _methodOfVirtual;
+        private final Method _methodName;
+        private final Method _methodFactory;
+        private final Method _methodNewThreadPerTaskExecutor;
+
+        /**
+         * Constructor
+         *
+         * @throws ReflectiveOperationException
+         *             if the runtime has no virtual threads
+         */
+        private VirtualThreads( ) throws ReflectiveOperationException
+        {
+            Class<?> classBuilder = Class.forName( "java.lang.Thread$Builder" );
+            _methodOfVirtual = Thread.class.getMethod( "ofVirtual" );
+            _methodName = classBuilder.getMethod( "name", String.class, long.class );
+            _methodFactory = classBuilder.getMethod( "factory" );
+            _methodNewThreadPerTaskExecutor = Executors.class.getMethod( "newThreadPerTaskExecutor", ThreadFactory.class );
+        }
+
+        /**
+         * Resolves the virtual threads API at startup
+         *
+         * @param bEnabled
+         *            true if the virtual threads mode is enabled
+         * @return The API or null if the mode is disabled or not supported
+         */
+        static VirtualThreads create( boolean bEnabled )
+        {
+            if ( !bEnabled )
+            {
+                return null;
+            }
+            try
+            {
+                VirtualThreads virtualThreads = new VirtualThreads( );
+                // Preview API of the JDK 19 and 20 : present but failing without --enable-preview
+                virtualThreads.newExecutor( "lutecetools-probe-" ).shutdown( );
+                AppLogService.info( "LuteceTools : Cache update and fetch pipeline running on virtual threads" );
+                return virtualThreads;
+            }
+            catch( ReflectiveOperationException e )
+            {
+                AppLogService.info( "LuteceTools : Virtual threads not supported by the Java " + System.getProperty( "java.version" )
+                        + " runtime, using threads pools" );
+                return null;
+            }
+        }
+
+        /**
+         * Creates an executor starting a new virtual thread for each task
+         *
+         * @param strName
+         *            The threads name prefix
+         * @return The executor
+         * @throws ReflectiveOperationException
+         *             if the API can't be called
+         */
+        ExecutorService newExecutor( String strName ) throws ReflectiveOperationException
+        {
+            try
+            {
+                Object builder = _methodName.invoke( _methodOfVirtual.invoke( null ), strName, 1L );
+                ThreadFactory factory = (ThreadFactory) _methodFactory.invoke( builder );
+                return (ExecutorService) _methodNewThreadPerTaskExecutor.invoke( null, factory );
+            }
+            catch( InvocationTargetException e )
+            {
+                throw new ReflectiveOperationException( e.getCause( ) );
+            }
+        }
+    }
+}
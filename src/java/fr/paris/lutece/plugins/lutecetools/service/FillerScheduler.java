@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.lutecetools.business.Component;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Refreshes the infos provided by each filler (a slice of the component) at the filler's own refresh interval, and merges them into the cached
+ * components. Slices are refreshed from the cheapest filler to the most expensive one. The requests of the rate limited services are paced by the
+ * RateLimiter : the slices refresh is deferred when their budget runs low, the fill of a fetched component keeps its previous infos.
+ */
+public final class FillerScheduler
+{
+    private static final String PROPERTY_MAX_COST_PER_RUN = "lutecetools.fillers.scheduler.maxCostPerRun";
+    private static final long DEFAULT_MAX_COST_PER_RUN = 0L; // unlimited
+    private static final long MAX_COST_PER_RUN = AppPropertiesService.getPropertyLong( PROPERTY_MAX_COST_PER_RUN, DEFAULT_MAX_COST_PER_RUN );
+
+    /**
+     * Private constructor
+     */
+    private FillerScheduler( )
+    {
+    }
+
+    /**
+     * Fill a component while fetching it. The infos of the fillers that are refreshed independently are taken from the previous version of the component
+     * while they are not outdated and the POM infos (version, Jira key, ...) they are computed from are unchanged.
+     * 
+     * @param filler
+     *            The filler
+     * @param component
+     *            The component being fetched
+     * @param previous
+     *            The previous version of the component (may be null)
+     * @param sbLogs
+     *            Logs
+     */
+    public static void fillComponent( ComponentInfoFiller filler, Component component, Component previous, StringBuilder sbLogs )
+    {
+        fillComponent( filler, component, previous, sbLogs, ( ) -> {
+        } );
+    }
+
+    /**
+     * Fill a component while fetching it, notifying the start of the filler work : once the filler holds its rate budget and host permit and has
+     * prepared its shared data.
+     * 
+     * @param filler
+     *            The filler
+     * @param component
+     *            The component being fetched
+     * @param previous
+     *            The previous version of the component (may be null)
+     * @param sbLogs
+     *            Logs
+     * @param onStart
+     *            Called when the filler work starts
+     */
+    public static void fillComponent( ComponentInfoFiller filler, Component component, Component previous, StringBuilder sbLogs, Runnable onStart )
+    {
+        if ( ( previous != null ) && isScheduled( filler ) && !isOutdated( filler, previous ) && ChangeDetector.isPomUnchanged( component, previous ) )
+        {
+            ChangeDetector.copyFillerAttributes( filler, component, previous );
+            return;
+        }
+
+        // Rate limited services : the previous infos are kept until the budget is reset, instead of failing
+        if ( !RateLimiter.acquire( filler.getRateLimitKey( ), filler.getCost( ), false ) )
+        {
+            if ( previous != null )
+            {
+                ChangeDetector.copyFillerAttributes( filler, component, previous );
+            }
+            sbLogs.append( "\nLutece Tools - " ).append( filler.getName( ) ).append( " deferred for '" ).append( component.getArtifactId( ) )
+                    .append( "' : rate limit exhausted" );
+            return;
+        }
+
+        // API based fillers are targeting a single host : their name is used as throttling key
+        HostThrottle.run( filler.getName( ), ( ) -> {
+            filler.prepare( );
+            onStart.run( );
+            fill( filler, component, previous, true, sbLogs );
+        } );
+    }
+
+    /**
+     * Refresh the outdated slices of the cached components
+     * 
+     * @param listArtifactIds
+     *            The artifact ids of the components
+     * @param listFillers
+     *            The fillers
+     * @param sbLogs
+     *            Logs
+     * @return The number of refreshed slices
+     */
+    public static int refreshSlices( List<String> listArtifactIds, List<ComponentInfoFiller> listFillers, StringBuilder sbLogs )
+    {
+        List<ComponentInfoFiller> listScheduled = new ArrayList<>( );
+        for ( ComponentInfoFiller filler : listFillers )
+        {
+            if ( isScheduled( filler ) )
+            {
+                listScheduled.add( filler );
+            }
+        }
+        listScheduled.sort( Comparator.comparingInt( ComponentInfoFiller::getCost ) );
+
+        long lCost = 0L;
+        int nRefreshed = 0;
+
+        for ( ComponentInfoFiller filler : listScheduled )
+        {
+            for ( String strArtifactId : listArtifactIds )
+            {
+                if ( ( MAX_COST_PER_RUN > 0 ) && ( lCost >= MAX_COST_PER_RUN ) )
+                {
+                    sbLogs.append( "\nLutece Tools - Slices refresh stopped : max cost per run reached" );
+                    return nRefreshed;
+                }
+
+                Component component = ComponentService.load( strArtifactId );
+
+                // Components not yet fetched are filled by the cache updater
+                if ( ( component != null ) && isOutdated( filler, component ) )
+                {
+                    // Low priority work : the remaining slices of the filler are deferred to the next runs
+                    if ( !RateLimiter.acquire( filler.getRateLimitKey( ), filler.getCost( ), true ) )
+                    {
+                        sbLogs.append( "\nLutece Tools - " ).append( filler.getName( ) ).append( " slices refresh deferred : rate limit" );
+                        break;
+                    }
+                    refreshSlice( filler, component, sbLogs );
+                    lCost += filler.getCost( );
+                    nRefreshed++;
+                }
+            }
+        }
+
+        return nRefreshed;
+    }
+
+    /**
+     * Refresh the slice of a filler and merge it into the cached component
+     * 
+     * @param filler
+     *            The filler
+     * @param component
+     *            The cached component
+     * @param sbLogs
+     *            Logs
+     */
+    private static void refreshSlice( ComponentInfoFiller filler, Component component, StringBuilder sbLogs )
+    {
+        try
+        {
+            Component work = ComponentService.copy( component );
+            // The elapsed refresh interval is the reason of the refresh : the change detection would skip the infos that change without changing the
+            // token (pull requests, issues counts)
+            HostThrottle.run( filler.getName( ), ( ) -> fill( filler, work, component, false, sbLogs ) );
+
+            // The component may have been updated meanwhile : the slice is merged into its latest version (loaded instances are not shared)
+            Component latest = ComponentService.load( component.getArtifactId( ) );
+            Component merged = ( latest != null ) ? latest : component;
+            ChangeDetector.copyFillerAttributes( filler, merged, work );
+            ComponentService.update( merged );
+        }
+        catch( IOException | RuntimeException e )
+        {
+            sbLogs.append( "\n*** ERROR *** Error refreshing " ).append( filler.getName( ) ).append( " infos for component " )
+                    .append( component.getArtifactId( ) ).append( " : " ).append( e.getMessage( ) );
+            AppLogService.debug( "LuteceTools - FillerScheduler : " + e.getMessage( ) );
+        }
+    }
+
+    /**
+     * Call a filler, unless its upstream infos are unchanged since its last call when the changes are detected
+     * 
+     * @param filler
+     *            The filler
+     * @param component
+     *            The component
+     * @param previous
+     *            The previous version of the component (may be null)
+     * @param bDetectChanges
+     *            true to skip the filler if its change token is unchanged
+     * @param sbLogs
+     *            Logs
+     */
+    private static void fill( ComponentInfoFiller filler, Component component, Component previous, boolean bDetectChanges, StringBuilder sbLogs )
+    {
+        String strToken = filler.getChangeToken( component );
+
+        if ( bDetectChanges && ChangeDetector.isUnchanged( filler, strToken, component, previous ) )
+        {
+            ChangeDetector.copyFillerAttributes( filler, component, previous );
+            ChangeDetector.setChecked( filler, component );
+            sbLogs.append( "\nLutece Tools - " ).append( filler.getName( ) ).append( " skipped for '" ).append( component.getArtifactId( ) )
+                    .append( "' : no upstream change" );
+            return;
+        }
+
+        Map<String, Object> mapBefore = ChangeDetector.getAttributesSnapshot( filler, component );
+        filler.fill( component, sbLogs );
+        ChangeDetector.recordFill( filler, strToken, component, mapBefore );
+        ChangeDetector.setChecked( filler, component );
+    }
+
+    /**
+     * Returns true if the filler infos are refreshed independently
+     * 
+     * @param filler
+     *            The filler
+     * @return true if the filler has its own refresh interval
+     */
+    private static boolean isScheduled( ComponentInfoFiller filler )
+    {
+        return filler.getRefreshInterval( ) > 0;
+    }
+
+    /**
+     * Returns true if the filler infos of a component are outdated
+     * 
+     * @param filler
+     *            The filler
+     * @param component
+     *            The component
+     * @return true if outdated
+     */
+    private static boolean isOutdated( ComponentInfoFiller filler, Component component )
+    {
+        return ( new Date( ).getTime( ) - ChangeDetector.getLastCheck( filler, component ) ) > filler.getRefreshInterval( );
+    }
+}
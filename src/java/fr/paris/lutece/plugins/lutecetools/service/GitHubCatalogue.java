@@ -0,0 +1,618 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.lang.StringUtils;
+import org.xml.sax.SAXException;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import fr.paris.lutece.portal.service.datastore.DatastoreService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.httpaccess.HttpAccessException;
+
+/**
+ * Catalogue of the repositories of the GitHub organizations, persisted in the Datastore. The repositories of an organization are listed from the
+ * most recently pushed : an incremental refresh stops at the last pushed_at seen by the previous one. A full listing is done periodically to drop
+ * the deleted or renamed repositories and to update the archived flags.
+ */
+public final class GitHubCatalogue
+{
+    private static final String DSKEY_CATALOGUE = "lutecetools.github.catalogue";
+    private static final String PROPERTY_GITHUB_ORGANIZATIONS = "lutecetools.github.organization";
+    private static final String PROPERTY_GITHUB_API_URL = "lutecetools.github.api.url";
+    private static final String PROPERTY_GITHUB_ACCOUNT_TOKEN = "lutecetools.github.account.token";
+    private static final String PROPERTY_FULL_REFRESH_INTERVAL = "lutecetools.github.catalogue.fullRefreshInterval";
+    private static final long FULL_REFRESH_INTERVAL = AppPropertiesService.getPropertyLong( PROPERTY_FULL_REFRESH_INTERVAL, 86400000L );
+    private static final String PROPERTY_PAGE_SIZE = "lutecetools.github.catalogue.pageSize";
+    private static final int PAGE_SIZE = AppPropertiesService.getPropertyInt( PROPERTY_PAGE_SIZE, 100 );
+    private static final String URL_API_DEFAULT = "https://api.github.com/";
+    private static final String URL_ORGANIZATION_REPOSITORIES = "orgs/%s/repos?type=all&sort=pushed&direction=desc&per_page=%d&page=%d";
+
+    // Keys
+    private static final String KEY_NAME = "name";
+    private static final String KEY_FULL_NAME = "full_name";
+    private static final String KEY_OWNER = "owner";
+    private static final String KEY_LOGIN = "login";
+    private static final String KEY_DEFAULT_BRANCH = "default_branch";
+    private static final String KEY_PUSHED_AT = "pushed_at";
+    private static final String KEY_UPDATED_AT = "updated_at";
+    private static final String KEY_ARCHIVED = "archived";
+
+    private static final ObjectMapper _mapper = new ObjectMapper( ).configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false );
+    private static final ObjectReader _reader = _mapper.reader( );
+    private static CatalogueData _data;
+
+    /**
+     * Private constructor
+     */
+    private GitHubCatalogue( )
+    {
+    }
+
+    /**
+     * Refresh the catalogue of the configured organizations and persist it. The organizations that can't be listed keep their stored repositories.
+     *
+     * @return The repositories, in the organizations order
+     */
+    public static synchronized List<Repository> refresh( )
+    {
+        CatalogueData data = load( );
+        Map<String, OrganizationCatalogue> mapOrganizations = new LinkedHashMap<>( );
+        long lNow = System.currentTimeMillis( );
+
+        for ( String strOrganization : getOrganizations( ) )
+        {
+            OrganizationCatalogue organization = data.getOrganizations( ).get( strOrganization );
+            if ( organization == null )
+            {
+                organization = new OrganizationCatalogue( );
+            }
+            boolean bFull = ( lNow - organization.getLastFullRefresh( ) ) > FULL_REFRESH_INTERVAL;
+            try
+            {
+                List<Repository> listRepositories = fetch( getApiUrl( ), strOrganization, bFull ? 0L : organization.getLastPushedAt( ) );
+                if ( bFull )
+                {
+                    organization.getRepositories( ).clear( );
+                    organization.setLastFullRefresh( lNow );
+                }
+                for ( Repository repository : listRepositories )
+                {
+                    organization.getRepositories( ).put( repository.getName( ).toLowerCase( Locale.ROOT ), repository );
+                    organization.setLastPushedAt( Math.max( organization.getLastPushedAt( ), repository.getPushedAt( ) ) );
+                }
+                AppLogService.info( "LuteceTools : GitHub catalogue " + ( bFull ? "rebuilt" : "updated" ) + " - " + listRepositories.size( )
+                        + " repositories fetched, " + organization.getRepositories( ).size( ) + " repositories for organization " + strOrganization );
+            }
+            catch( HttpAccessException | IOException | SAXException | ParserConfigurationException e )
+            {
+                AppLogService.error( "LuteceTools : Unable to access GitHub repositories of " + strOrganization + ", using the stored catalogue : "
+                        + e.getMessage( ), e );
+            }
+            mapOrganizations.put( strOrganization, organization );
+        }
+
+        data.setOrganizations( mapOrganizations );
+        save( data );
+
+        List<Repository> listRepositories = new ArrayList<>( );
+        for ( OrganizationCatalogue organization : mapOrganizations.values( ) )
+        {
+            listRepositories.addAll( organization.getRepositories( ).values( ) );
+        }
+        return listRepositories;
+    }
+
+    /**
+     * Clear the catalogue : the next refresh lists all the repositories again
+     */
+    public static synchronized void clear( )
+    {
+        _data = null;
+        DatastoreService.removeData( DSKEY_CATALOGUE );
+    }
+
+    /**
+     * List the repositories of an organization from the most recently pushed
+     *
+     * @param strApiUrl
+     *         The API URL, ending with a /
+     * @param strOrganization
+     *         The organization
+     * @param lStopAt
+     *         The listing stops at the first repository pushed before this time (0 to list all)
+     * @return The repositories
+     * @throws HttpAccessException
+     *         if a request fails
+     * @throws IOException
+     *         if a response can't be read
+     * @throws SAXException
+     *         never for JSON
+     * @throws ParserConfigurationException
+     *         never for JSON
+     */
+    static List<Repository> fetch( String strApiUrl, String strOrganization, long lStopAt )
+            throws HttpAccessException, IOException, SAXException, ParserConfigurationException
+    {
+        List<Repository> listRepositories = new ArrayList<>( );
+        for ( int nPage = 1;; nPage++ )
+        {
+            if ( !RateLimiter.acquire( RateLimiter.SERVICE_GITHUB, 1, false ) )
+            {
+                throw new HttpAccessException( "GitHub rate limit exhausted", null );
+            }
+            String strUrl = strApiUrl + String.format( URL_ORGANIZATION_REPOSITORIES, strOrganization, PAGE_SIZE, nPage );
+            Map<String, String> mapHeadersResponse = new HashMap<>( );
+            JsonNode json;
+            try
+            {
+                json = StreamingHttpAccess.doGet( strUrl, getHeaders( ), mapHeadersResponse, _reader::readTree );
+            }
+            finally
+            {
+                RateLimiter.updateFromHeaders( RateLimiter.SERVICE_GITHUB, mapHeadersResponse );
+            }
+            if ( ( json == null ) || ( json.size( ) == 0 ) )
+            {
+                return listRepositories;
+            }
+            for ( JsonNode node : json )
+            {
+                Repository repository = parse( node );
+                if ( repository.getPushedAt( ) < lStopAt )
+                {
+                    return listRepositories;
+                }
+                listRepositories.add( repository );
+            }
+            if ( json.size( ) < PAGE_SIZE )
+            {
+                return listRepositories;
+            }
+        }
+    }
+
+    /**
+     * Parse a repository
+     *
+     * @param node
+     *         The repository JSON
+     * @return The repository
+     */
+    private static Repository parse( JsonNode node )
+    {
+        Repository repository = new Repository( );
+        repository.setName( node.path( KEY_NAME ).asText( ) );
+        repository.setFullName( node.path( KEY_FULL_NAME ).asText( ) );
+        repository.setOwner( node.path( KEY_OWNER ).path( KEY_LOGIN ).asText( ) );
+        repository.setDefaultBranch( node.path( KEY_DEFAULT_BRANCH ).asText( null ) );
+        repository.setPushedAt( parseTime( node.path( KEY_PUSHED_AT ).asText( ) ) );
+        repository.setUpdatedAt( parseTime( node.path( KEY_UPDATED_AT ).asText( ) ) );
+        repository.setArchived( node.path( KEY_ARCHIVED ).asBoolean( ) );
+        return repository;
+    }
+
+    /**
+     * Parse an ISO-8601 time
+     *
+     * @param strTime
+     *         The time
+     * @return The time in ms or 0
+     */
+    private static long parseTime( String strTime )
+    {
+        try
+        {
+            return Instant.parse( strTime ).toEpochMilli( );
+        }
+        catch( DateTimeParseException e )
+        {
+            return 0L;
+        }
+    }
+
+    /**
+     * Load the catalogue from the memory or from the Datastore
+     *
+     * @return The catalogue
+     */
+    private static CatalogueData load( )
+    {
+        if ( _data == null )
+        {
+            String strData = DatastoreService.getDataValue( DSKEY_CATALOGUE, null );
+            if ( strData != null )
+            {
+                try
+                {
+                    _data = _mapper.readValue( strData, CatalogueData.class );
+                }
+                catch( IOException e )
+                {
+                    AppLogService.error( "LuteceTools : Invalid stored GitHub catalogue, rebuilding it : " + e.getMessage( ) );
+                }
+            }
+            if ( _data == null )
+            {
+                _data = new CatalogueData( );
+            }
+        }
+        return _data;
+    }
+
+    /**
+     * Save the catalogue into the Datastore
+     *
+     * @param data
+     *         The catalogue
+     */
+    private static void save( CatalogueData data )
+    {
+        try
+        {
+            DatastoreService.setDataValue( DSKEY_CATALOGUE, _mapper.writeValueAsString( data ) );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "LuteceTools : Unable to store the GitHub catalogue : " + e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * Gets the configured organizations
+     *
+     * @return The organizations
+     */
+    private static List<String> getOrganizations( )
+    {
+        List<String> listOrganizations = new ArrayList<>( );
+        for ( String strOrganization : StringUtils.split( AppPropertiesService.getProperty( PROPERTY_GITHUB_ORGANIZATIONS, "" ), ',' ) )
+        {
+            if ( !strOrganization.trim( ).isEmpty( ) )
+            {
+                listOrganizations.add( strOrganization.trim( ) );
+            }
+        }
+        return listOrganizations;
+    }
+
+    /**
+     * Gets the API URL
+     *
+     * @return The URL, ending with a /
+     */
+    private static String getApiUrl( )
+    {
+        String strApiUrl = AppPropertiesService.getProperty( PROPERTY_GITHUB_API_URL );
+        if ( StringUtils.isEmpty( strApiUrl ) )
+        {
+            return URL_API_DEFAULT;
+        }
+        return strApiUrl.endsWith( "/" ) ? strApiUrl : strApiUrl + "/";
+    }
+
+    /**
+     * Gets the request headers
+     *
+     * @return The headers
+     */
+    private static Map<String, String> getHeaders( )
+    {
+        Map<String, String> headers = new HashMap<>( );
+        headers.put( "Authorization", "token " + AppPropertiesService.getProperty( PROPERTY_GITHUB_ACCOUNT_TOKEN ) );
+        headers.put( "Accept", "application/vnd.github.v3+json" );
+        return headers;
+    }
+
+    /**
+     * Repository of the catalogue
+     */
+    public static final class Repository
+    {
+        private String _strName;
+        private String _strFullName;
+        private String _strOwner;
+        private String _strDefaultBranch;
+        private long _lPushedAt;
+        private long _lUpdatedAt;
+        private boolean _bArchived;
+
+        /**
+         * Returns the name
+         *
+         * @return The name
+         */
+        public String getName( )
+        {
+            return _strName;
+        }
+
+        /**
+         * Sets the name
+         *
+         * @param strName
+         *         The name
+         */
+        public void setName( String strName )
+        {
+            _strName = strName;
+        }
+
+        /**
+         * Returns the full name (owner/name)
+         *
+         * @return The full name
+         */
+        public String getFullName( )
+        {
+            return _strFullName;
+        }
+
+        /**
+         * Sets the full name
+         *
+         * @param strFullName
+         *         The full name
+         */
+        public void setFullName( String strFullName )
+        {
+            _strFullName = strFullName;
+        }
+
+        /**
+         * Returns the owner login
+         *
+         * @return The owner
+         */
+        public String getOwner( )
+        {
+            return _strOwner;
+        }
+
+        /**
+         * Sets the owner login
+         *
+         * @param strOwner
+         *         The owner
+         */
+        public void setOwner( String strOwner )
+        {
+            _strOwner = strOwner;
+        }
+
+        /**
+         * Returns the default branch
+         *
+         * @return The default branch
+         */
+        public String getDefaultBranch( )
+        {
+            return _strDefaultBranch;
+        }
+
+        /**
+         * Sets the default branch
+         *
+         * @param strDefaultBranch
+         *         The default branch
+         */
+        public void setDefaultBranch( String strDefaultBranch )
+        {
+            _strDefaultBranch = strDefaultBranch;
+        }
+
+        /**
+         * Returns the last push time
+         *
+         * @return The time in ms
+         */
+        public long getPushedAt( )
+        {
+            return _lPushedAt;
+        }
+
+        /**
+         * Sets the last push time
+         *
+         * @param lPushedAt
+         *         The time in ms
+         */
+        public void setPushedAt( long lPushedAt )
+        {
+            _lPushedAt = lPushedAt;
+        }
+
+        /**
+         * Returns the last update time
+         *
+         * @return The time in ms
+         */
+        public long getUpdatedAt( )
+        {
+            return _lUpdatedAt;
+        }
+
+        /**
+         * Sets the last update time
+         *
+         * @param lUpdatedAt
+         *         The time in ms
+         */
+        public void setUpdatedAt( long lUpdatedAt )
+        {
+            _lUpdatedAt = lUpdatedAt;
+        }
+
+        /**
+         * Returns true if the repository is archived
+         *
+         * @return true if archived
+         */
+        public boolean isArchived( )
+        {
+            return _bArchived;
+        }
+
+        /**
+         * Sets the archived flag
+         *
+         * @param bArchived
+         *         true if archived
+         */
+        public void setArchived( boolean bArchived )
+        {
+            _bArchived = bArchived;
+        }
+    }
+
+    /**
+     * Repositories of an organization and the state of their listing
+     */
+    public static final class OrganizationCatalogue
+    {
+        private Map<String, Repository> _mapRepositories = new TreeMap<>( );
+        private long _lLastPushedAt;
+        private long _lLastFullRefresh;
+
+        /**
+         * Returns the repositories by lower case name
+         *
+         * @return The repositories
+         */
+        public Map<String, Repository> getRepositories( )
+        {
+            return _mapRepositories;
+        }
+
+        /**
+         * Sets the repositories
+         *
+         * @param mapRepositories
+         *         The repositories by lower case name
+         */
+        public void setRepositories( Map<String, Repository> mapRepositories )
+        {
+            _mapRepositories = new TreeMap<>( mapRepositories );
+        }
+
+        /**
+         * Returns the most recent push time seen
+         *
+         * @return The time in ms
+         */
+        public long getLastPushedAt( )
+        {
+            return _lLastPushedAt;
+        }
+
+        /**
+         * Sets the most recent push time seen
+         *
+         * @param lLastPushedAt
+         *         The time in ms
+         */
+        public void setLastPushedAt( long lLastPushedAt )
+        {
+            _lLastPushedAt = lLastPushedAt;
+        }
+
+        /**
+         * Returns the time of the last full listing
+         *
+         * @return The time in ms
+         */
+        public long getLastFullRefresh( )
+        {
+            return _lLastFullRefresh;
+        }
+
+        /**
+         * Sets the time of the last full listing
+         *
+         * @param lLastFullRefresh
+         *         The time in ms
+         */
+        public void setLastFullRefresh( long lLastFullRefresh )
+        {
+            _lLastFullRefresh = lLastFullRefresh;
+        }
+    }
+
+    /**
+     * Persisted catalogue
+     */
+    public static final class CatalogueData
+    {
+        private Map<String, OrganizationCatalogue> _mapOrganizations = new LinkedHashMap<>( );
+
+        /**
+         * Returns the organizations catalogues
+         *
+         * @return The catalogues by organization
+         */
+        public Map<String, OrganizationCatalogue> getOrganizations( )
+        {
+            return _mapOrganizations;
+        }
+
+        /**
+         * Sets the organizations catalogues
+         *
+         * @param mapOrganizations
+         *         The catalogues by organization
+         */
+        public void setOrganizations( Map<String, OrganizationCatalogue> mapOrganizations )
+        {
+            _mapOrganizations = mapOrganizations;
+        }
+    }
+}
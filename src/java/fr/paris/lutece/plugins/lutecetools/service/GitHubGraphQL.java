@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.lang.StringUtils;
+import org.xml.sax.SAXException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.httpaccess.HttpAccessException;
+
+/**
+ * GitHub GraphQL client fetching the branches and the open pull requests of up to 100 repositories per query. The rate limit returned with each
+ * query is recorded in the RateLimiter so that no query is sent once the quota is exhausted.
+ */
+public final class GitHubGraphQL
+{
+    private static final String PROPERTY_GRAPHQL_URL = "lutecetools.github.graphql.url";
+    private static final String PROPERTY_GITHUB_API_URL = "lutecetools.github.api.url";
+    private static final String PROPERTY_GITHUB_ACCOUNT_TOKEN = "lutecetools.github.account.token";
+    private static final String PROPERTY_BATCH_SIZE = "lutecetools.github.graphql.batchSize";
+    private static final String URL_GRAPHQL_DEFAULT = "https://api.github.com/graphql";
+    private static final String PATH_API_VERSION = "/v3";
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int BATCH_SIZE = Math.min( AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, MAX_BATCH_SIZE ), MAX_BATCH_SIZE );
+
+    // Query
+    private static final String ALIAS_PREFIX = "r";
+    private static final String QUERY_RATE_LIMIT = "rateLimit { limit cost remaining resetAt }";
+    private static final String QUERY_REPOSITORY = ": repository(owner: \"%s\", name: \"%s\") { refs(refPrefix: \"refs/heads/\", first: 100) "
+            + "{ totalCount nodes { name } } pullRequests(states: OPEN, first: 1, orderBy: {field: UPDATED_AT, direction: ASC}) "
+            + "{ totalCount nodes { updatedAt } } }";
+
+    // Keys
+    private static final String KEY_QUERY = "query";
+    private static final String KEY_DATA = "data";
+    private static final String KEY_ERRORS = "errors";
+    private static final String KEY_MESSAGE = "message";
+    private static final String KEY_RATE_LIMIT = "rateLimit";
+    private static final String KEY_LIMIT = "limit";
+    private static final String KEY_COST = "cost";
+    private static final String KEY_REMAINING = "remaining";
+    private static final String KEY_RESET_AT = "resetAt";
+    private static final String KEY_REFS = "refs";
+    private static final String KEY_PULL_REQUESTS = "pullRequests";
+    private static final String KEY_TOTAL_COUNT = "totalCount";
+    private static final String KEY_NODES = "nodes";
+    private static final String KEY_NAME = "name";
+    private static final String KEY_UPDATED_AT = "updatedAt";
+
+    private static final ObjectMapper _mapper = new ObjectMapper( );
+    private static final ObjectReader _reader = _mapper.reader( );
+    private static volatile int _nLastCost = 1;
+
+    /**
+     * Private constructor
+     */
+    private GitHubGraphQL( )
+    {
+    }
+
+    /**
+     * Fetch the activity of repositories by batches. The fetch stops at the first error or when the rate limit is exhausted : the repositories
+     * not fetched are missing from the result.
+     *
+     * @param listPaths
+     *         The repositories paths (owner/name)
+     * @return The activities by path (lower case)
+     */
+    public static Map<String, RepositoryActivity> fetchActivities( List<String> listPaths )
+    {
+        Map<String, RepositoryActivity> mapActivities = new HashMap<>( );
+        int nQueries = 0;
+        for ( int i = 0; i < listPaths.size( ); i += BATCH_SIZE )
+        {
+            if ( !RateLimiter.acquire( RateLimiter.SERVICE_GITHUB_GRAPHQL, _nLastCost, true ) )
+            {
+                AppLogService.info( "LuteceTools : GitHub GraphQL rate limit exhausted, falling back to REST requests" );
+                break;
+            }
+            try
+            {
+                query( listPaths.subList( i, Math.min( i + BATCH_SIZE, listPaths.size( ) ) ), mapActivities );
+                nQueries++;
+            }
+            catch( HttpAccessException | IOException | SAXException | ParserConfigurationException e )
+            {
+                AppLogService.error( "LuteceTools : GitHub GraphQL query failed, falling back to REST requests : " + e.getMessage( ), e );
+                break;
+            }
+        }
+        AppLogService.info( "LuteceTools : GitHub GraphQL - activity of " + mapActivities.size( ) + " repositories fetched by " + nQueries + " queries" );
+        return mapActivities;
+    }
+
+    /**
+     * Query the activity of a batch of repositories
+     *
+     * @param listPaths
+     *         The repositories paths (owner/name)
+     * @param mapActivities
+     *         The map to receive the activities
+     * @throws HttpAccessException
+     *         if the request fails
+     * @throws IOException
+     *         if the response can't be read
+     * @throws SAXException
+     *         never for JSON
+     * @throws ParserConfigurationException
+     *         never for JSON
+     */
+    private static void query( List<String> listPaths, Map<String, RepositoryActivity> mapActivities )
+            throws HttpAccessException, IOException, SAXException, ParserConfigurationException
+    {
+        StringBuilder sbQuery = new StringBuilder( "query { " ).append( QUERY_RATE_LIMIT );
+        for ( int i = 0; i < listPaths.size( ); i++ )
+        {
+            String strPath = listPaths.get( i );
+            int nPos = strPath.indexOf( '/' );
+            sbQuery.append( ' ' ).append( ALIAS_PREFIX ).append( i )
+                    .append( String.format( QUERY_REPOSITORY, strPath.substring( 0, nPos ), strPath.substring( nPos + 1 ) ) );
+        }
+        sbQuery.append( " }" );
+        String strBody = _mapper.createObjectNode( ).put( KEY_QUERY, sbQuery.toString( ) ).toString( );
+
+        JsonNode json = StreamingHttpAccess.doPostJson( getUrl( ), getHeaders( ), strBody, null, _reader::readTree );
+        JsonNode data = ( json != null ) ? json.path( KEY_DATA ) : null;
+        if ( ( data == null ) || !data.isObject( ) )
+        {
+            throw new IOException( "GraphQL query returned no data : " + getErrors( json ) );
+        }
+        if ( json.path( KEY_ERRORS ).size( ) > 0 )
+        {
+            // missing repositories are reported as errors along the data of the others
+            AppLogService.debug( "LuteceTools : GitHub GraphQL errors : " + getErrors( json ) );
+        }
+
+        JsonNode rateLimit = data.path( KEY_RATE_LIMIT );
+        if ( rateLimit.isObject( ) )
+        {
+            _nLastCost = Math.max( rateLimit.path( KEY_COST ).asInt( ), 1 );
+            RateLimiter.update( RateLimiter.SERVICE_GITHUB_GRAPHQL, rateLimit.path( KEY_LIMIT ).asInt( ), rateLimit.path( KEY_REMAINING ).asInt( ),
+                    parseTime( rateLimit.path( KEY_RESET_AT ).asText( ), 0L ) );
+        }
+
+        for ( int i = 0; i < listPaths.size( ); i++ )
+        {
+            RepositoryActivity activity = parseActivity( data.path( ALIAS_PREFIX + i ) );
+            if ( activity != null )
+            {
+                mapActivities.put( listPaths.get( i ).toLowerCase( Locale.ROOT ), activity );
+            }
+        }
+    }
+
+    /**
+     * Parse the activity of a repository
+     *
+     * @param repository
+     *         The repository node
+     * @return The activity or null if the repository is missing or has more branches than a query returns
+     */
+    private static RepositoryActivity parseActivity( JsonNode repository )
+    {
+        if ( !repository.isObject( ) )
+        {
+            return null;
+        }
+        JsonNode refs = repository.path( KEY_REFS );
+        JsonNode branches = refs.path( KEY_NODES );
+        if ( refs.path( KEY_TOTAL_COUNT ).asInt( ) > branches.size( ) )
+        {
+            return null;
+        }
+        List<String> listBranches = new ArrayList<>( );
+        for ( JsonNode branch : branches )
+        {
+            listBranches.add( branch.path( KEY_NAME ).asText( ) );
+        }
+
+        JsonNode pullRequests = repository.path( KEY_PULL_REQUESTS );
+        JsonNode oldest = pullRequests.path( KEY_NODES ).path( 0 );
+        long lOldest = oldest.isObject( ) ? parseTime( oldest.path( KEY_UPDATED_AT ).asText( ), Long.MAX_VALUE ) : Long.MAX_VALUE;
+
+        return new RepositoryActivity( listBranches, pullRequests.path( KEY_TOTAL_COUNT ).asInt( ), lOldest );
+    }
+
+    /**
+     * Parse an ISO-8601 time
+     *
+     * @param strTime
+     *         The time
+     * @param lDefault
+     *         The default value
+     * @return The time in ms
+     */
+    private static long parseTime( String strTime, long lDefault )
+    {
+        try
+        {
+            return Instant.parse( strTime ).toEpochMilli( );
+        }
+        catch( DateTimeParseException e )
+        {
+            return lDefault;
+        }
+    }
+
+    /**
+     * Gets the errors messages of a response
+     *
+     * @param json
+     *         The response
+     * @return The messages
+     */
+    private static String getErrors( JsonNode json )
+    {
+        List<String> listErrors = new ArrayList<>( );
+        if ( json != null )
+        {
+            for ( JsonNode error : json.path( KEY_ERRORS ) )
+            {
+                listErrors.add( error.path( KEY_MESSAGE ).asText( ) );
+            }
+        }
+        return listErrors.toString( );
+    }
+
+    /**
+     * Gets the GraphQL endpoint : the graphql.url property, else derived from the API URL property, else the GitHub.com endpoint
+     *
+     * @return The URL
+     */
+    private static String getUrl( )
+    {
+        String strUrl = AppPropertiesService.getProperty( PROPERTY_GRAPHQL_URL );
+        if ( !StringUtils.isEmpty( strUrl ) )
+        {
+            return strUrl;
+        }
+        String strApiUrl = AppPropertiesService.getProperty( PROPERTY_GITHUB_API_URL );
+        if ( !StringUtils.isEmpty( strApiUrl ) )
+        {
+            return getUrl( strApiUrl );
+        }
+        return URL_GRAPHQL_DEFAULT;
+    }
+
+    /**
+     * Derives the GraphQL endpoint from a REST API URL. The REST API of GitHub Enterprise is versioned (https://{host}/api/v3) while its GraphQL
+     * endpoint is not (https://{host}/api/graphql) : the version is removed.
+     *
+     * @param strApiUrl
+     *            The REST API URL
+     * @return The URL
+     */
+    static String getUrl( String strApiUrl )
+    {
+        String strBaseUrl = StringUtils.removeEnd( strApiUrl, "/" );
+        strBaseUrl = StringUtils.removeEnd( strBaseUrl, PATH_API_VERSION );
+        return strBaseUrl + "/graphql";
+    }
+
+    /**
+     * Gets the request headers
+     *
+     * @return The headers
+     */
+    private static Map<String, String> getHeaders( )
+    {
+        Map<String, String> headers = new HashMap<>( );
+        headers.put( "Authorization", "bearer " + AppPropertiesService.getProperty( PROPERTY_GITHUB_ACCOUNT_TOKEN ) );
+        headers.put( "Accept", "application/json" );
+        return headers;
+    }
+
+    /**
+     * Branches and open pull requests of a repository
+     */
+    public static final class RepositoryActivity
+    {
+        private final List<String> _listBranches;
+        private final int _nPullRequestsCount;
+        private final long _lOldestPullRequest;
+
+        /**
+         * Constructor
+         *
+         * @param listBranches
+         *         The branches names
+         * @param nPullRequestsCount
+         *         The number of open pull requests
+         * @param lOldestPullRequest
+         *         The last update time of the oldest open pull request (Long.MAX_VALUE if none)
+         */
+        RepositoryActivity( List<String> listBranches, int nPullRequestsCount, long lOldestPullRequest )
+        {
+            _listBranches = Collections.unmodifiableList( listBranches );
+            _nPullRequestsCount = nPullRequestsCount;
+            _lOldestPullRequest = lOldestPullRequest;
+        }
+
+        /**
+         * Returns the branches names
+         *
+         * @return The branches
+         */
+        public List<String> getBranches( )
+        {
+            return _listBranches;
+        }
+
+        /**
+         * Returns the number of open pull requests
+         *
+         * @return The number of open pull requests
+         */
+        public int getPullRequestsCount( )
+        {
+            return _nPullRequestsCount;
+        }
+
+        /**
+         * Returns the last update time of the oldest open pull request
+         *
+         * @return The time (Long.MAX_VALUE if none)
+         */
+        public long getOldestPullRequest( )
+        {
+            return _lOldestPullRequest;
+        }
+    }
+}
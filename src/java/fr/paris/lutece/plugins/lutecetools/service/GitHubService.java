@@ -35,24 +35,30 @@ package fr.paris.lutece.plugins.lutecetools.service;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.net.InetSocketAddress;
+import java.net.HttpURLConnection;
 import java.net.Proxy;
-import java.net.SocketAddress;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.github.GHBranch;
 import org.kohsuke.github.GHIssueState;
-import org.kohsuke.github.GHOrganization;
 import org.kohsuke.github.GHPullRequest;
+import org.kohsuke.github.GHRateLimit;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
 import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.HttpConnector;
+import org.kohsuke.github.RateLimitHandler;
+import org.kohsuke.github.extras.ImpatientHttpConnector;
 
 import fr.paris.lutece.plugins.lutecetools.business.Component;
+import fr.paris.lutece.plugins.lutecetools.service.GitHubCatalogue.Repository;
+import fr.paris.lutece.plugins.lutecetools.service.GitHubGraphQL.RepositoryActivity;
 import fr.paris.lutece.portal.service.datastore.DatastoreService;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
@@ -63,16 +69,27 @@ import fr.paris.lutece.portal.service.util.AppPropertiesService;
 public class GitHubService extends AbstractGitPlatformService
 {
     private static final String SERVICE_NAME = "GitHub Info filler service registered";
+    private static final String PROPERTY_REFRESH_INTERVAL = "lutecetools.github.refreshInterval";
+    private static final long DEFAULT_REFRESH_INTERVAL = 3600000L;
+    private static final long REFRESH_INTERVAL = AppPropertiesService.getPropertyLong( PROPERTY_REFRESH_INTERVAL, DEFAULT_REFRESH_INTERVAL );
+    private static final int REST_COST = 3; // repository, branches and pull requests requests
+    private static final int GRAPHQL_COST = 1; // share of the GraphQL batch queries and the site index request
     private static final String PROPERTY_GITHUB_ACCOUNT_NAME = "lutecetools.github.account.name";
     private static final String PROPERTY_GITHUB_ACCOUNT_TOKEN = "lutecetools.github.account.token";
-    private static final String PROPERTY_GITHUB_ORGANIZATIONS = "lutecetools.github.organization";
+    private static final String PROPERTY_GITHUB_API_URL = "lutecetools.github.api.url";
+    private static final String PROPERTY_GRAPHQL_ENABLED = "lutecetools.github.graphql.enabled";
+    private static final boolean GRAPHQL_ENABLED = AppPropertiesService.getPropertyBoolean( PROPERTY_GRAPHQL_ENABLED, true );
+    private static final String PROPERTY_GRAPHQL_TTL = "lutecetools.github.graphql.ttl";
+    private static final long GRAPHQL_TTL = AppPropertiesService.getPropertyLong( PROPERTY_GRAPHQL_TTL, 600000L );
     private static final String DSKEY_PARENT_POM_VERSION = "lutecetools.site_property.globalPom.version";
 
     private static final String SITE_INDEX_PATH_PART1 = "/raw/develop/src/site/";
     private static final String SITE_INDEX_PATH_PART2 = "xdoc/index.xml";
 
     private static String _strParentPomVersion;
-    private static Map<String, GHRepository> _mapRepositories;
+    private static volatile RepositoryIndex<Repository> _index;
+    private static volatile StagedActivities _activities;
+    private static GitHub _github;
 
     /**
      * Initialization
@@ -82,6 +99,34 @@ public class GitHubService extends AbstractGitPlatformService
         _strParentPomVersion = DatastoreService.getDataValue( DSKEY_PARENT_POM_VERSION, "3.0.3" );
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long getRefreshInterval( )
+    {
+        return REFRESH_INTERVAL;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int getCost( )
+    {
+        return GRAPHQL_ENABLED ? GRAPHQL_COST : REST_COST;
+    }
+
+    /**
+     * The REST budget is only charged when the activity is fetched by REST requests : in GraphQL mode the activity comes from the batch queries,
+     * that have their own budget, and the group from the catalogue
+     */
+    @Override
+    public String getRateLimitKey( )
+    {
+        return GRAPHQL_ENABLED ? null : RateLimiter.SERVICE_GITHUB;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -92,11 +137,24 @@ public class GitHubService extends AbstractGitPlatformService
     }
 
     /**
-     * Update repositories info from GitHub
+     * Update repositories info from GitHub : the catalogue of the organizations is refreshed incrementally
      */
     public static void updateGitHubRepositoriesList( )
     {
-        _mapRepositories = getRepositories( );
+        _index = createIndex( GitHubCatalogue.refresh( ) );
+        _activities = null;
+    }
+
+    /**
+     * Clear the repositories index and their activities : they are loaded again on next use
+     */
+    public static void clearCache( )
+    {
+        synchronized( GitHubService.class )
+        {
+            _index = null;
+            _activities = null;
+        }
     }
 
     /**
@@ -105,38 +163,67 @@ public class GitHubService extends AbstractGitPlatformService
     @Override
     public void fill( Component component, StringBuilder sbLogs )
     {
-        String strRepository = getGitHubRepository( component );
-        if ( strRepository == null )
+        Repository repo = getGitHubRepository( component );
+        if ( repo == null )
         {
             return;
         }
         component.set( Component.IS_GIT_REPO, true );
+        component.set( GIT_GROUP, repo.getOwner( ) );
+        component.set( GIT_PLATFORM, getGitPlatform( ) );
+
+        RepositoryActivity activity = getActivity( repo );
+        if ( activity != null )
+        {
+            fillBranches( component, activity.getBranches( ) );
+            component.set( PULL_REQUEST_COUNT, activity.getPullRequestsCount( ) );
+            component.set( OLDEST_PULL_REQUEST, activity.getOldestPullRequest( ) );
+        }
+        else
+        {
+            fillActivity( component, repo, sbLogs );
+        }
+        fillGitHubStatus( component );
+        fillGitHubErrors( component );
+        recordRateLimit( );
 
-        GHRepository repo = _mapRepositories.get( strRepository );
+        fillSiteInfos( component, sbLogs );
+    }
 
+    /**
+     * Fill the branches and the pull requests of a repository using REST requests
+     *
+     * @param component
+     *         The component
+     * @param repository
+     *         The repository of the catalogue
+     * @param sbLogs
+     *         The logs
+     */
+    private void fillActivity( Component component, Repository repository, StringBuilder sbLogs )
+    {
+        // In GraphQL mode the budget is not acquired by the scheduler : the repositories missing from the batch queries are charged here
+        if ( GRAPHQL_ENABLED && !RateLimiter.acquire( RateLimiter.SERVICE_GITHUB, REST_COST, false ) )
+        {
+            sbLogs.append( "\n*** ERROR *** GitHub rate limit exhausted retrieving branches and pull requests for component " )
+                    .append( component.getArtifactId( ) );
+            return;
+        }
+        GHRepository repo;
+        try
+        {
+            repo = getGitHub( ).getRepository( repository.getFullName( ) );
+        }
+        catch( IOException ex )
+        {
+            sbLogs.append( "\n*** ERROR *** Retrieving GitHub repository for component " ).append( component.getArtifactId( ) ).append( " : " )
+                    .append( ex.getMessage( ) );
+            return;
+        }
         try
         {
-            component.set( GIT_GROUP, repo.getOwner( ).getLogin( ) );
-            component.set( GIT_PLATFORM, getGitPlatform( ) );
             Map<String, GHBranch> mapBranches = repo.getBranches( );
-            List<String> listBranches = new ArrayList<>( );
-            List<String> extraBranches = new ArrayList<>( );
-
-            for ( String strBranch : mapBranches.keySet( ) )
-            {
-                if ( "master".equals( strBranch ) || "develop".equals( strBranch ) )
-                {
-                    listBranches.add( strBranch );
-                }
-                else
-                {
-                    extraBranches.add( strBranch );
-                }
-            }
-
-            component.set( BRANCHES_LIST, listBranches );
-            component.set( EXTRA_BRANCHES, extraBranches );
-            component.set( HAS_EXTRA_BRANCHES, !extraBranches.isEmpty( ) );
+            fillBranches( component, mapBranches.keySet( ) );
         }
         catch( Exception ex )
         {
@@ -162,94 +249,203 @@ public class GitHubService extends AbstractGitPlatformService
             sbLogs.append( "\n*** ERROR *** Retreiving Github pull requests for component " ).append( component.getArtifactId( ) ).append( " : " )
                     .append( e.getMessage( ) );
         }
-        fillGitHubStatus( component );
-        fillGitHubErrors( component );
+    }
 
-        fillSiteInfos( component, sbLogs );
+    /**
+     * Fill the branches lists
+     *
+     * @param component
+     *         The component
+     * @param branches
+     *         The branches names
+     */
+    private static void fillBranches( Component component, Collection<String> branches )
+    {
+        List<String> listBranches = new ArrayList<>( );
+        List<String> extraBranches = new ArrayList<>( );
+
+        for ( String strBranch : branches )
+        {
+            if ( "master".equals( strBranch ) || "develop".equals( strBranch ) )
+            {
+                listBranches.add( strBranch );
+            }
+            else
+            {
+                extraBranches.add( strBranch );
+            }
+        }
+
+        component.set( BRANCHES_LIST, listBranches );
+        component.set( EXTRA_BRANCHES, extraBranches );
+        component.set( HAS_EXTRA_BRANCHES, !extraBranches.isEmpty( ) );
     }
 
-    private static String getGitHubRepository( Component component )
+    /**
+     * Gets the activity of a repository staged by the GraphQL batch queries. The activity of all the indexed repositories is fetched on first use,
+     * then again once outdated.
+     *
+     * @param repo
+     *         The repository
+     * @return The activity or null if GraphQL is disabled or the repository was not fetched
+     */
+    private static RepositoryActivity getActivity( Repository repo )
     {
-        if ( _mapRepositories == null )
+        if ( !GRAPHQL_ENABLED )
         {
-            _mapRepositories = getRepositories( );
+            return null;
         }
-        for ( String strRepository : _mapRepositories.keySet( ) )
+        return getActivities( ).get( repo.getFullName( ) );
+    }
+
+    /**
+     * Gets the activities of the indexed repositories, fetching them again if outdated
+     *
+     * @return The activities
+     */
+    private static StagedActivities getActivities( )
+    {
+        StagedActivities activities = _activities;
+        if ( ( activities == null ) || activities.isOutdated( ) )
         {
-            if ( strRepository.endsWith( component.getArtifactId( ) ) )
+            synchronized( GitHubService.class )
             {
-                return strRepository;
+                if ( ( _activities == null ) || _activities.isOutdated( ) )
+                {
+                    RepositoryIndex<Repository> index = _index;
+                    _activities = new StagedActivities( ( index != null ) ? GitHubGraphQL.fetchActivities( index.getPaths( ) )
+                            : new HashMap<>( ) );
+                }
+                activities = _activities;
             }
         }
+        return activities;
+    }
 
-        return null;
-
+    /**
+     * Load the repositories index and their activities shared by the calls
+     */
+    @Override
+    public void prepare( )
+    {
+        getIndex( );
+        if ( GRAPHQL_ENABLED )
+        {
+            getActivities( );
+        }
     }
 
     /**
-     * Gets all repositories of a given organization
-     *
-     * @return A map that contains repositories
+     * {@inheritDoc }
      */
-    static Map<String, GHRepository> getRepositories( )
+    @Override
+    public String getChangeToken( Component component )
     {
-        String strOrganizations = AppPropertiesService.getProperty( PROPERTY_GITHUB_ORGANIZATIONS );
+        Repository repo = getGitHubRepository( component );
+        if ( repo == null )
+        {
+            return "";
+        }
 
-        String[] organizations = strOrganizations.split( "," );
+        return repo.getName( ) + ':' + repo.getPushedAt( ) + ':' + repo.getUpdatedAt( );
+    }
 
-        Map<String, GHRepository> mapRepositories = new ConcurrentHashMap<>( );
+    /**
+     * Gets the repository of a component from the repositories index, loading it on first use
+     *
+     * @param component
+     *         The component
+     * @return The repository or null if not found
+     */
+    private static Repository getGitHubRepository( Component component )
+    {
+        return getIndex( ).get( component.getArtifactId( ) );
+    }
 
-        for ( String strOrganization : organizations )
+    /**
+     * Gets the repositories index, loading it on first use
+     *
+     * @return The index
+     */
+    private static RepositoryIndex<Repository> getIndex( )
+    {
+        RepositoryIndex<Repository> index = _index;
+        if ( index == null )
         {
-            strOrganization = strOrganization.trim( );
-            try
+            synchronized( GitHubService.class )
             {
-                GitHub github = getGitHub( );
-                GHOrganization organization = github.getOrganization( strOrganization );
-                mapRepositories.putAll( organization.getRepositories( ) );
-                int nSize = organization.getRepositories( ).size( );
-                AppLogService.info( "LuteceTools : GitHub Service initialized - " + nSize + " repositories found for organization " + strOrganization );
-            }
-            catch( IOException ex )
-            {
-                AppLogService.error( "LuteceTools : Unable to access GitHub repositories", ex );
+                if ( _index == null )
+                {
+                    _index = createIndex( GitHubCatalogue.refresh( ) );
+                }
+                index = _index;
             }
         }
-        return mapRepositories;
+        return index;
     }
 
     /**
-     * Gets a GitHub object to request repositories
+     * Creates the repositories index
+     *
+     * @param listRepositories
+     *         The repositories in the organizations order
+     * @return The index
+     */
+    private static RepositoryIndex<Repository> createIndex( List<Repository> listRepositories )
+    {
+        RepositoryIndex<Repository> index = new RepositoryIndex<>( );
+        for ( Repository repo : listRepositories )
+        {
+            index.add( repo.getFullName( ), repo.getName( ), repo );
+        }
+        return index;
+    }
+
+    /**
+     * Gets a GitHub object to request repositories. The object is created once and shared : its connector applies the timeouts and the proxy of the
+     * shared HTTP transport and the connections are kept alive by the JDK
      *
      * @return GitHub object
      * @throws IOException
      *         if an exception occurs
      */
-    private static GitHub getGitHub( ) throws IOException
+    private static synchronized GitHub getGitHub( ) throws IOException
     {
-        GitHub github;
-
-        String strAccount = AppPropertiesService.getProperty( PROPERTY_GITHUB_ACCOUNT_NAME );
-        String strToken = AppPropertiesService.getProperty( PROPERTY_GITHUB_ACCOUNT_TOKEN );
-        String strProxyHost = AppPropertiesService.getProperty( "httpAccess.proxyHost" );
-        int nProxyPort = AppPropertiesService.getPropertyInt( "httpAccess.proxyPort", 80 );
-        if ( !StringUtils.isEmpty( strProxyHost ) )
+        if ( _github == null )
         {
+            String strAccount = AppPropertiesService.getProperty( PROPERTY_GITHUB_ACCOUNT_NAME );
+            String strToken = AppPropertiesService.getProperty( PROPERTY_GITHUB_ACCOUNT_TOKEN );
+            String strApiUrl = AppPropertiesService.getProperty( PROPERTY_GITHUB_API_URL );
             GitHubBuilder builder = new GitHubBuilder( );
-            SocketAddress address = new InetSocketAddress( strProxyHost, nProxyPort );
-            Proxy proxy = new Proxy( Proxy.Type.HTTP, address );
-            builder.withProxy( proxy );
+            if ( !StringUtils.isEmpty( strApiUrl ) )
+            {
+                // Alternate API endpoint (GitHub Enterprise or a local stub server)
+                builder.withEndpoint( strApiUrl );
+            }
+            HttpConnector connector = url -> {
+                Proxy proxy = HttpClientService.getProxy( url.getHost( ) );
+                return (HttpURLConnection) ( ( proxy != null ) ? url.openConnection( proxy ) : url.openConnection( ) );
+            };
+            builder.withConnector( new ImpatientHttpConnector( connector, HttpClientService.getConnectTimeout( ), HttpClientService.getSocketTimeout( ) ) );
+            builder.withRateLimitHandler( new DeferringRateLimitHandler( ) );
             builder.withOAuthToken( strToken, strAccount );
-            github = builder.build( );
-            AppLogService.info( "LuteceTools : Using httpaccess.properties defined proxy to connect to GitHub." );
-        }
-        else
-        {
-            github = GitHub.connect( strAccount, strToken );
+            _github = builder.build( );
         }
 
-        return github;
+        return _github;
+    }
 
+    /**
+     * Record the rate limit reported by the last GitHub response
+     */
+    private static void recordRateLimit( )
+    {
+        GitHub github = _github;
+        GHRateLimit rateLimit = ( github != null ) ? github.lastRateLimit( ) : null;
+        if ( ( rateLimit != null ) && ( rateLimit.getResetDate( ) != null ) )
+        {
+            RateLimiter.update( RateLimiter.SERVICE_GITHUB, rateLimit.limit, rateLimit.remaining, rateLimit.getResetDate( ).getTime( ) );
+        }
     }
 
     /**
@@ -355,4 +551,64 @@ public class GitHubService extends AbstractGitPlatformService
 
         }
     }
+
+    /**
+     * Activities of the repositories staged by the GraphQL queries, by repository path
+     */
+    private static final class StagedActivities
+    {
+        private final Map<String, RepositoryActivity> _mapActivities;
+        private final long _lCreated = System.currentTimeMillis( );
+
+        /**
+         * Constructor
+         *
+         * @param mapActivities
+         *         The activities by path (lower case)
+         */
+        StagedActivities( Map<String, RepositoryActivity> mapActivities )
+        {
+            _mapActivities = mapActivities;
+        }
+
+        /**
+         * Gets the activity of a repository
+         *
+         * @param strPath
+         *         The repository path (owner/name)
+         * @return The activity or null
+         */
+        RepositoryActivity get( String strPath )
+        {
+            return _mapActivities.get( strPath.toLowerCase( Locale.ROOT ) );
+        }
+
+        /**
+         * Returns true if the activities must be fetched again
+         *
+         * @return true if outdated
+         */
+        boolean isOutdated( )
+        {
+            return System.currentTimeMillis( ) - _lCreated > GRAPHQL_TTL;
+        }
+    }
+
+    /**
+     * Rate limit handler recording the exhaustion of the budget in the RateLimiter, then failing the request : the remaining work is deferred
+     * instead of blocking the thread until the reset of the window
+     */
+    private static final class DeferringRateLimitHandler extends RateLimitHandler
+    {
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void onError( IOException e, HttpURLConnection uc ) throws IOException
+        {
+            long lResetAt = uc.getHeaderFieldLong( "X-RateLimit-Reset", 0L ) * 1000L;
+            RateLimiter.exhausted( RateLimiter.SERVICE_GITHUB, ( lResetAt > 0 ) ? lResetAt : System.currentTimeMillis( ) + 60000L );
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.apache.commons.lang.StringUtils;
+import org.gitlab.api.GitlabAPI;
+import org.gitlab.api.models.GitlabProject;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Catalogue of the GitLab projects of the configured groups. The projects are listed by pages of simple projections, then only the projects active
+ * since the previous listing are requested until the next full listing. The catalogue is published as an immutable snapshot.
+ */
+public final class GitLabCatalogue
+{
+    private static final String PROPERTY_GITLAB_GROUPS = "lutecetools.gitlab.groups";
+    private static final String PROPERTY_PAGE_SIZE = "lutecetools.gitlab.catalogue.pageSize";
+    private static final int PAGE_SIZE = AppPropertiesService.getPropertyInt( PROPERTY_PAGE_SIZE, 100 );
+    private static final String PROPERTY_TTL = "lutecetools.gitlab.catalogue.ttl";
+    private static final long TTL = AppPropertiesService.getPropertyLong( PROPERTY_TTL, 3600000L );
+    private static final String PROPERTY_FULL_REFRESH_INTERVAL = "lutecetools.gitlab.catalogue.fullRefreshInterval";
+    private static final long FULL_REFRESH_INTERVAL = AppPropertiesService.getPropertyLong( PROPERTY_FULL_REFRESH_INTERVAL, 86400000L );
+    // GitLab updates last_activity_at lazily (at most once an hour for the pushes) : the delta requests overlap the previous listing
+    private static final long DELTA_OVERLAP = 3600000L;
+    private static final String URL_GROUP_PROJECTS = "/groups/%s/projects?simple=true&include_subgroups=true&order_by=last_activity_at&per_page=%d";
+    private static final String URL_PROJECTS = "/projects?simple=true&membership=true&order_by=last_activity_at&per_page=%d";
+    private static final String PARAMETER_LAST_ACTIVITY_AFTER = "&last_activity_after=";
+    private static final String FORMAT_ISO_DATE = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    private static volatile Snapshot _snapshot = new Snapshot( new LinkedHashMap<>( ), 0L, 0L );
+
+    /**
+     * Private constructor
+     */
+    private GitLabCatalogue( )
+    {
+    }
+
+    /**
+     * Gets the projects of the configured groups, refreshing the catalogue if it is outdated
+     *
+     * @param gitlabApi
+     *         The GitLab API client
+     * @return The projects (unmodifiable)
+     */
+    public static List<GitlabProject> getProjects( GitlabAPI gitlabApi )
+    {
+        return getSnapshot( gitlabApi ).getProjects( );
+    }
+
+    /**
+     * Gets the index of the projects of the configured groups, refreshing the catalogue if it is outdated
+     *
+     * @param gitlabApi
+     *         The GitLab API client
+     * @return The index (not to be modified)
+     */
+    public static RepositoryIndex<GitlabProject> getIndex( GitlabAPI gitlabApi )
+    {
+        return getSnapshot( gitlabApi ).getIndex( );
+    }
+
+    /**
+     * Gets the current snapshot, refreshing it if it is outdated
+     *
+     * @param gitlabApi
+     *         The GitLab API client
+     * @return The snapshot
+     */
+    private static Snapshot getSnapshot( GitlabAPI gitlabApi )
+    {
+        Snapshot snapshot = _snapshot;
+        if ( snapshot.isOutdated( ) )
+        {
+            synchronized( GitLabCatalogue.class )
+            {
+                snapshot = _snapshot.isOutdated( ) ? refresh( gitlabApi ) : _snapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Refresh the catalogue : a full listing once the full refresh interval is elapsed, otherwise a listing of the projects active since the previous
+     * refresh. The previous snapshot is kept if a group can't be listed.
+     *
+     * @param gitlabApi
+     *         The GitLab API client
+     * @return The new snapshot
+     */
+    public static synchronized Snapshot refresh( GitlabAPI gitlabApi )
+    {
+        Snapshot snapshot = _snapshot;
+        long lNow = System.currentTimeMillis( );
+        boolean bFull = ( lNow - snapshot.getLastFullRefresh( ) ) > FULL_REFRESH_INTERVAL;
+        String strLastActivityAfter = bFull ? "" : PARAMETER_LAST_ACTIVITY_AFTER + formatDate( snapshot.getLastRefresh( ) - DELTA_OVERLAP );
+
+        Map<String, GitlabProject> mapProjects = bFull ? new LinkedHashMap<>( ) : new LinkedHashMap<>( snapshot.getProjectsMap( ) );
+        int nFetched = 0;
+        try
+        {
+            for ( String strTailUrl : getTailUrls( ) )
+            {
+                for ( GitlabProject project : gitlabApi.retrieve( ).getAll( strTailUrl + strLastActivityAfter, GitlabProject [ ].class ) )
+                {
+                    mapProjects.put( project.getPathWithNamespace( ).toLowerCase( Locale.ROOT ), project );
+                    nFetched++;
+                }
+            }
+        }
+        catch( RuntimeException e )
+        {
+            // The paging iterator of the client wraps the IOExceptions
+            AppLogService.error( "LuteceTools : Unable to list GitLab projects, using the current catalogue : " + e.getMessage( ), e );
+            _snapshot = new Snapshot( snapshot.getProjectsMap( ), lNow, snapshot.getLastFullRefresh( ) );
+            return _snapshot;
+        }
+
+        AppLogService.info( "LuteceTools : GitLab catalogue " + ( bFull ? "rebuilt" : "updated" ) + " - " + nFetched + " projects fetched, "
+                + mapProjects.size( ) + " projects" );
+        _snapshot = new Snapshot( mapProjects, lNow, bFull ? lNow : snapshot.getLastFullRefresh( ) );
+        return _snapshot;
+    }
+
+    /**
+     * Clear the catalogue : the next access lists all the projects again
+     */
+    public static synchronized void clear( )
+    {
+        _snapshot = new Snapshot( new LinkedHashMap<>( ), 0L, 0L );
+    }
+
+    /**
+     * Gets the listing URLs : one by configured group, or the projects of the token user if no group is configured
+     *
+     * @return The URLs relative to the API
+     */
+    private static List<String> getTailUrls( )
+    {
+        List<String> listUrls = new ArrayList<>( );
+        for ( String strGroup : StringUtils.split( AppPropertiesService.getProperty( PROPERTY_GITLAB_GROUPS, "" ), ',' ) )
+        {
+            if ( !strGroup.trim( ).isEmpty( ) )
+            {
+                listUrls.add( String.format( URL_GROUP_PROJECTS, encode( strGroup.trim( ) ), PAGE_SIZE ) );
+            }
+        }
+        if ( listUrls.isEmpty( ) )
+        {
+            listUrls.add( String.format( URL_PROJECTS, PAGE_SIZE ) );
+        }
+        return listUrls;
+    }
+
+    /**
+     * Encode a group path (the full path of a subgroup contains slashes)
+     *
+     * @param strGroup
+     *         The group id or path
+     * @return The encoded group
+     */
+    private static String encode( String strGroup )
+    {
+        try
+        {
+            return URLEncoder.encode( strGroup, "UTF-8" );
+        }
+        catch( UnsupportedEncodingException e )
+        {
+            return strGroup;
+        }
+    }
+
+    /**
+     * Format a time as an ISO-8601 UTC date
+     *
+     * @param lTime
+     *         The time
+     * @return The date
+     */
+    private static String formatDate( long lTime )
+    {
+        SimpleDateFormat format = new SimpleDateFormat( FORMAT_ISO_DATE, Locale.ROOT );
+        format.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+        return format.format( new Date( lTime ) );
+    }
+
+    /**
+     * Immutable state of the catalogue
+     */
+    public static final class Snapshot
+    {
+        private final Map<String, GitlabProject> _mapProjects;
+        private final List<GitlabProject> _listProjects;
+        private final RepositoryIndex<GitlabProject> _index = new RepositoryIndex<>( );
+        private final long _lLastRefresh;
+        private final long _lLastFullRefresh;
+
+        /**
+         * Constructor
+         *
+         * @param mapProjects
+         *         The projects by lower case path
+         * @param lLastRefresh
+         *         The time of the last refresh
+         * @param lLastFullRefresh
+         *         The time of the last full listing
+         */
+        Snapshot( Map<String, GitlabProject> mapProjects, long lLastRefresh, long lLastFullRefresh )
+        {
+            _mapProjects = Collections.unmodifiableMap( mapProjects );
+            _listProjects = Collections.unmodifiableList( new ArrayList<>( mapProjects.values( ) ) );
+            _lLastRefresh = lLastRefresh;
+            _lLastFullRefresh = lLastFullRefresh;
+            for ( GitlabProject project : _listProjects )
+            {
+                _index.add( project.getPathWithNamespace( ), project.getName( ), project );
+            }
+        }
+
+        /**
+         * Returns true if the projects must be listed again
+         *
+         * @return true if outdated
+         */
+        boolean isOutdated( )
+        {
+            return System.currentTimeMillis( ) - _lLastRefresh > TTL;
+        }
+
+        /**
+         * Returns the projects index
+         *
+         * @return The index
+         */
+        RepositoryIndex<GitlabProject> getIndex( )
+        {
+            return _index;
+        }
+
+        /**
+         * Returns the projects by lower case path
+         *
+         * @return The projects
+         */
+        Map<String, GitlabProject> getProjectsMap( )
+        {
+            return _mapProjects;
+        }
+
+        /**
+         * Returns the projects
+         *
+         * @return The projects
+         */
+        List<GitlabProject> getProjects( )
+        {
+            return _listProjects;
+        }
+
+        /**
+         * Returns the time of the last refresh
+         *
+         * @return The time
+         */
+        long getLastRefresh( )
+        {
+            return _lLastRefresh;
+        }
+
+        /**
+         * Returns the time of the last full listing
+         *
+         * @return The time
+         */
+        long getLastFullRefresh( )
+        {
+            return _lLastFullRefresh;
+        }
+    }
+}
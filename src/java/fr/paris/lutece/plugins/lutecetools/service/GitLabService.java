@@ -37,9 +37,10 @@ import fr.paris.lutece.plugins.lutecetools.business.Component;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
-import java.io.IOException;
+import java.net.Proxy;
+import java.net.URI;
+import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.gitlab.api.GitlabAPI;
@@ -52,13 +53,35 @@ public class GitLabService extends AbstractGitPlatformService
 {
 
     private static final String SERVICE_NAME = "Gitlab Info filler service";
+    private static final String PROPERTY_REFRESH_INTERVAL = "lutecetools.gitlab.refreshInterval";
+    private static final long DEFAULT_REFRESH_INTERVAL = 3600000L;
+    private static final long REFRESH_INTERVAL = AppPropertiesService.getPropertyLong( PROPERTY_REFRESH_INTERVAL, DEFAULT_REFRESH_INTERVAL );
+    private static final int COST = 2; // site index requests
     private static final String PROPERTY_GITLAB_URL = "lutecetools.gitlab.url";
     private static final String PROPERTY_GITLAB_ACCOUNT_TOKEN = "lutecetools.gitlab.account.token";
 
     private static final String SITE_INDEX_PATH_PART1 = "/raw/develop/src/site/";
     private static final String SITE_INDEX_PATH_PART2 = "xdoc/index.xml";
 
-    private static Map<String, GitlabProject> _mapRepositories;
+    private static GitlabAPI _gitlabApi;
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long getRefreshInterval( )
+    {
+        return REFRESH_INTERVAL;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int getCost( )
+    {
+        return COST;
+    }
 
     /**
      * {@inheritDoc }
@@ -75,10 +98,9 @@ public class GitLabService extends AbstractGitPlatformService
     @Override
     public void fill( Component component, StringBuilder sbLogs )
     {
-        String strRepository = getGitLabRepository( component );
-        if ( strRepository != null )
+        GitlabProject project = getGitLabRepository( component );
+        if ( project != null )
         {
-            GitlabProject project = _mapRepositories.get( strRepository );
             component.set( Component.IS_GIT_REPO, true );
             component.set( GIT_PLATFORM, getGitPlatform( ) );
             component.set( GIT_GROUP, getGroup( project ) );
@@ -94,55 +116,87 @@ public class GitLabService extends AbstractGitPlatformService
 
     }
 
-    private static String getGitLabRepository( Component component )
+    /**
+     * Load the projects catalogue shared by the calls
+     */
+    @Override
+    public void prepare( )
     {
-        try
-        {
-            if ( _mapRepositories == null )
-            {
-                _mapRepositories = getRepositories( );
-            }
-            for ( String strRepository : _mapRepositories.keySet( ) )
-            {
-                if ( strRepository.endsWith( component.getArtifactId( ) ) )
-                {
-                    return strRepository;
-                }
-            }
+        GitLabCatalogue.getIndex( getGitlabAPI( ) );
+    }
 
-        }
-        catch( IOException ex )
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String getChangeToken( Component component )
+    {
+        GitlabProject project = getGitLabRepository( component );
+        if ( project == null )
         {
-            AppLogService.error( "GitlabService - Error getting repositories : " + ex.getMessage( ), ex );
+            return "";
         }
-        return null;
 
+        Date dateLastActivity = project.getLastActivityAt( );
+
+        return project.getName( ) + ':' + ( ( dateLastActivity != null ) ? dateLastActivity.getTime( ) : 0L );
     }
 
     /**
-     * Fetch all repositories hosted by the platform
+     * Update the projects catalogue from GitLab
+     */
+    public static void updateGitLabRepositoriesList( )
+    {
+        GitLabCatalogue.refresh( getGitlabAPI( ) );
+    }
+
+    /**
+     * Gets the repository of a component from the projects catalogue, loading it on first use
      *
-     * @return The repositories map
-     * @throws IOException
-     *         if an error occurs
+     * @param component
+     *         The component
+     * @return The repository or null if not found
      */
-    public static Map<String, GitlabProject> getRepositories( ) throws IOException
+    private static GitlabProject getGitLabRepository( Component component )
+    {
+        return GitLabCatalogue.getIndex( getGitlabAPI( ) ).get( component.getArtifactId( ) );
+    }
+
+    /**
+     * Fetch the repositories of the configured groups
+     *
+     * @return The repositories map by name
+     */
+    public static Map<String, GitlabProject> getRepositories( )
     {
-        String strUrl = AppPropertiesService.getProperty( PROPERTY_GITLAB_URL );
-        String strToken = AppPropertiesService.getProperty( PROPERTY_GITLAB_ACCOUNT_TOKEN );
-        GitlabAPI gitLabApi = GitlabAPI.connect( strUrl, strToken );
-        List<GitlabProject> listProjects = gitLabApi.getProjects( );
-        AppLogService.debug( "GitlabService - fetching Gitlab repositories " + listProjects.size( ) );
         Map<String, GitlabProject> mapRepositories = new HashMap<>( );
-        for ( GitlabProject project : listProjects )
+        for ( GitlabProject project : GitLabCatalogue.getProjects( getGitlabAPI( ) ) )
         {
-            String strGroup = getGroup( project );
-            AppLogService.debug( "GitlabService - fetching repository : " + project.getName( ) + " group : " + strGroup );
             mapRepositories.put( project.getName( ), project );
+            AppLogService.debug( "GitlabService - repository : " + project.getName( ) + " group : " + getGroup( project ) );
         }
         return mapRepositories;
     }
 
+    /**
+     * Gets the GitLab API client. The client is created once and shared : it applies the timeout and the proxy of the shared HTTP transport and the
+     * connections are kept alive by the JDK
+     *
+     * @return The client
+     */
+    private static synchronized GitlabAPI getGitlabAPI( )
+    {
+        if ( _gitlabApi == null )
+        {
+            String strUrl = AppPropertiesService.getProperty( PROPERTY_GITLAB_URL );
+            String strToken = AppPropertiesService.getProperty( PROPERTY_GITLAB_ACCOUNT_TOKEN );
+            GitlabAPI gitlabApi = GitlabAPI.connect( strUrl, strToken ).setRequestTimeout( HttpClientService.getSocketTimeout( ) );
+            Proxy proxy = HttpClientService.getProxy( ( strUrl != null ) ? URI.create( strUrl ).getHost( ) : null );
+            _gitlabApi = ( proxy != null ) ? gitlabApi.proxy( proxy ) : gitlabApi;
+        }
+        return _gitlabApi;
+    }
+
     /**
      * Gets the group from a given GitLab project
      *
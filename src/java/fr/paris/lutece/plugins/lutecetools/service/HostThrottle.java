@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Limits the number of concurrent requests sent to a same remote host during a parallel cache update
+ */
+public final class HostThrottle
+{
+    private static final String PROPERTY_MAX_REQUESTS_PER_HOST = "lutecetools.update.maxRequestsPerHost";
+    private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 4;
+    private static final int MAX_REQUESTS_PER_HOST = AppPropertiesService.getPropertyInt( PROPERTY_MAX_REQUESTS_PER_HOST, DEFAULT_MAX_REQUESTS_PER_HOST );
+
+    private static Map<String, Semaphore> _mapSemaphores = new ConcurrentHashMap<>( );
+
+    /**
+     * Private constructor
+     */
+    private HostThrottle( )
+    {
+    }
+
+    /**
+     * Acquire a permit for the host of a given URL. Blocks until a permit is available.
+     *
+     * @param strUrl
+     *            The URL
+     * @throws InterruptedException
+     *             if the current thread is interrupted while waiting
+     */
+    public static void acquire( String strUrl ) throws InterruptedException
+    {
+        getSemaphore( getHostKey( strUrl ) ).acquire( );
+    }
+
+    /**
+     * Release a permit previously acquired for the host of a given URL
+     *
+     * @param strUrl
+     *            The URL
+     */
+    public static void release( String strUrl )
+    {
+        getSemaphore( getHostKey( strUrl ) ).release( );
+    }
+
+    /**
+     * Run a task while holding a permit for a given key. The key is either an URL (the host is used) or the name of a service that targets a single host
+     * (eg: an API client based filler).
+     *
+     * @param strKey
+     *            The URL or the service key
+     * @param task
+     *            The task
+     */
+    public static void run( String strKey, Runnable task )
+    {
+        Semaphore semaphore = getSemaphore( getHostKey( strKey ) );
+        try
+        {
+            semaphore.acquire( );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            return;
+        }
+        try
+        {
+            task.run( );
+        }
+        finally
+        {
+            semaphore.release( );
+        }
+    }
+
+    /**
+     * Gets the semaphore associated to a key
+     *
+     * @param strKey
+     *            The key
+     * @return The semaphore
+     */
+    private static Semaphore getSemaphore( String strKey )
+    {
+        return _mapSemaphores.computeIfAbsent( strKey, k -> new Semaphore( MAX_REQUESTS_PER_HOST, true ) );
+    }
+
+    /**
+     * Gets the host of an URL or the key itself if it is not an URL
+     *
+     * @param strKey
+     *            The URL or a key
+     * @return The host key
+     */
+    static String getHostKey( String strKey )
+    {
+        if ( strKey == null )
+        {
+            return "";
+        }
+        try
+        {
+            String strHost = new URI( strKey ).getHost( );
+            if ( strHost != null )
+            {
+                return strHost.toLowerCase( );
+            }
+        }
+        catch( URISyntaxException e )
+        {
+            // not an URL : the key is used as is
+        }
+        return strKey;
+    }
+}
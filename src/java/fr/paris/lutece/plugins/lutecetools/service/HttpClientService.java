@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Shared HTTP transport of the plugin : a single pooled client keeping connections alive per host, so that a refresh of all the components reuses its
+ * connections (and TLS sessions) instead of opening one per request. The proxy, its credentials and the hosts reached without proxy are read from the
+ * httpAccess.* properties used by the HttpAccess library. The client is closed when the webapp shuts down.
+ */
+public final class HttpClientService
+{
+    private static final String PROPERTY_MAX_CONNECTIONS = "lutecetools.http.maxConnections";
+    private static final String PROPERTY_MAX_CONNECTIONS_PER_HOST = "lutecetools.http.maxConnectionsPerHost";
+    private static final String PROPERTY_CONNECT_TIMEOUT = "lutecetools.http.connectTimeout";
+    private static final String PROPERTY_SOCKET_TIMEOUT = "lutecetools.http.socketTimeout";
+    private static final String PROPERTY_POOL_TIMEOUT = "lutecetools.http.poolTimeout";
+    private static final String PROPERTY_KEEP_ALIVE = "lutecetools.http.keepAlive";
+    private static final String PROPERTY_IDLE_TIMEOUT = "lutecetools.http.idleTimeout";
+    private static final String PROPERTY_PROXY_HOST = "httpAccess.proxyHost";
+    private static final String PROPERTY_PROXY_PORT = "httpAccess.proxyPort";
+    private static final String PROPERTY_PROXY_USERNAME = "httpAccess.proxyUserName";
+    private static final String PROPERTY_PROXY_PASSWORD = "httpAccess.proxyPassword";
+    private static final String PROPERTY_NO_PROXY_FOR = "httpAccess.noProxyFor";
+    private static final String PROPERTY_MAX_REQUESTS_PER_HOST = "lutecetools.update.maxRequestsPerHost";
+
+    private static final int DEFAULT_MAX_CONNECTIONS = 64;
+    private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 4;
+    private static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    private static final int DEFAULT_SOCKET_TIMEOUT = 30000;
+    private static final int DEFAULT_POOL_TIMEOUT = 60000;
+    private static final long DEFAULT_KEEP_ALIVE = 30000L;
+    private static final long DEFAULT_IDLE_TIMEOUT = 60000L;
+    private static final int DEFAULT_PROXY_PORT = 80;
+
+    private static final int CONNECT_TIMEOUT = AppPropertiesService.getPropertyInt( PROPERTY_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT );
+    private static final int SOCKET_TIMEOUT = AppPropertiesService.getPropertyInt( PROPERTY_SOCKET_TIMEOUT, DEFAULT_SOCKET_TIMEOUT );
+    private static final long KEEP_ALIVE = AppPropertiesService.getPropertyLong( PROPERTY_KEEP_ALIVE, DEFAULT_KEEP_ALIVE );
+    private static final long IDLE_TIMEOUT = AppPropertiesService.getPropertyLong( PROPERTY_IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT );
+
+    private static PoolingHttpClientConnectionManager _connectionManager;
+    private static CloseableHttpClient _client;
+    private static volatile long _lLastEviction;
+
+    /**
+     * Private constructor
+     */
+    private HttpClientService( )
+    {
+    }
+
+    /**
+     * Gets the shared HTTP client. Expired and idle connections are evicted from time to time
+     * 
+     * @return The client
+     */
+    public static CloseableHttpClient getClient( )
+    {
+        long lNow = System.currentTimeMillis( );
+        if ( lNow - _lLastEviction > IDLE_TIMEOUT )
+        {
+            evictConnections( lNow );
+        }
+        return init( );
+    }
+
+    /**
+     * Gets the connect and read timeout to use by the clients that can't share the HTTP client (GitHub, GitLab)
+     * 
+     * @return The timeout in ms
+     */
+    public static int getConnectTimeout( )
+    {
+        return CONNECT_TIMEOUT;
+    }
+
+    /**
+     * Gets the read timeout to use by the clients that can't share the HTTP client (GitHub, GitLab)
+     * 
+     * @return The timeout in ms
+     */
+    public static int getSocketTimeout( )
+    {
+        return SOCKET_TIMEOUT;
+    }
+
+    /**
+     * Gets the proxy defined in the httpAccess properties to reach a host
+     * 
+     * @param strHost
+     *            The target host
+     * @return The proxy or null if no proxy is defined or if the host is reached without proxy
+     */
+    public static Proxy getProxy( String strHost )
+    {
+        String strProxyHost = AppPropertiesService.getProperty( PROPERTY_PROXY_HOST );
+        if ( StringUtils.isEmpty( strProxyHost ) || isNoProxyHost( strHost ) )
+        {
+            return null;
+        }
+        int nProxyPort = AppPropertiesService.getPropertyInt( PROPERTY_PROXY_PORT, DEFAULT_PROXY_PORT );
+        return new Proxy( Proxy.Type.HTTP, new InetSocketAddress( strProxyHost, nProxyPort ) );
+    }
+
+    /**
+     * Tells if a host is listed in the hosts reached without proxy. The list is separated by commas, an entry starting with a dot or a star matches
+     * the sub domains
+     * 
+     * @param strHost
+     *            The host
+     * @return true if the host must be reached without proxy
+     */
+    static boolean isNoProxyHost( String strHost )
+    {
+        String strNoProxyFor = AppPropertiesService.getProperty( PROPERTY_NO_PROXY_FOR );
+        if ( StringUtils.isEmpty( strNoProxyFor ) || StringUtils.isEmpty( strHost ) )
+        {
+            return false;
+        }
+        String strTarget = strHost.toLowerCase( Locale.ROOT );
+        for ( String strEntry : strNoProxyFor.split( "," ) )
+        {
+            String strPattern = strEntry.trim( ).toLowerCase( Locale.ROOT );
+            if ( strPattern.startsWith( "*" ) )
+            {
+                strPattern = strPattern.substring( 1 );
+            }
+            if ( strPattern.isEmpty( ) )
+            {
+                continue;
+            }
+            if ( strPattern.startsWith( "." ) ? ( strTarget.endsWith( strPattern ) || strTarget.equals( strPattern.substring( 1 ) ) )
+                    : strTarget.equals( strPattern ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the pool statistics
+     * 
+     * @return The statistics
+     */
+    public static String getPoolStats( )
+    {
+        return ( _connectionManager != null ) ? _connectionManager.getTotalStats( ).toString( ) : "";
+    }
+
+    /**
+     * Close all the connections. The client is created again on next use
+     */
+    public static synchronized void shutdown( )
+    {
+        if ( _client != null )
+        {
+            try
+            {
+                _client.close( );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "LuteceTools - HttpClientService : Error closing the HTTP client : " + e.getMessage( ), e );
+            }
+            _client = null;
+            _connectionManager = null;
+        }
+    }
+
+    /**
+     * Close the expired and idle connections
+     * 
+     * @param lNow
+     *            The current time
+     */
+    private static synchronized void evictConnections( long lNow )
+    {
+        if ( _connectionManager != null )
+        {
+            _connectionManager.closeExpiredConnections( );
+            _connectionManager.closeIdleConnections( IDLE_TIMEOUT, TimeUnit.MILLISECONDS );
+        }
+        _lLastEviction = lNow;
+    }
+
+    /**
+     * Creates the client on first use
+     * 
+     * @return The client
+     */
+    private static synchronized CloseableHttpClient init( )
+    {
+        if ( _client == null )
+        {
+            int nMaxPerHost = AppPropertiesService.getPropertyInt( PROPERTY_MAX_CONNECTIONS_PER_HOST,
+                    AppPropertiesService.getPropertyInt( PROPERTY_MAX_REQUESTS_PER_HOST, DEFAULT_MAX_REQUESTS_PER_HOST ) );
+            _connectionManager = new PoolingHttpClientConnectionManager( );
+            _connectionManager.setMaxTotal( AppPropertiesService.getPropertyInt( PROPERTY_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS ) );
+            _connectionManager.setDefaultMaxPerRoute( nMaxPerHost );
+
+            RequestConfig config = RequestConfig.custom( ).setConnectTimeout( CONNECT_TIMEOUT ).setSocketTimeout( SOCKET_TIMEOUT )
+                    .setConnectionRequestTimeout( AppPropertiesService.getPropertyInt( PROPERTY_POOL_TIMEOUT, DEFAULT_POOL_TIMEOUT ) ).build( );
+
+            HttpClientBuilder builder = HttpClients.custom( ).setConnectionManager( _connectionManager ).setDefaultRequestConfig( config )
+                    .setKeepAliveStrategy( new KeepAliveStrategy( ) );
+
+            String strProxyHost = AppPropertiesService.getProperty( PROPERTY_PROXY_HOST );
+            if ( !StringUtils.isEmpty( strProxyHost ) )
+            {
+                HttpHost proxy = new HttpHost( strProxyHost, AppPropertiesService.getPropertyInt( PROPERTY_PROXY_PORT, DEFAULT_PROXY_PORT ) );
+                builder.setRoutePlanner( new NoProxyRoutePlanner( proxy ) );
+
+                String strProxyUserName = AppPropertiesService.getProperty( PROPERTY_PROXY_USERNAME );
+                if ( !StringUtils.isEmpty( strProxyUserName ) )
+                {
+                    CredentialsProvider credentials = new BasicCredentialsProvider( );
+                    credentials.setCredentials( new AuthScope( proxy.getHostName( ), proxy.getPort( ) ),
+                            new UsernamePasswordCredentials( strProxyUserName, AppPropertiesService.getProperty( PROPERTY_PROXY_PASSWORD ) ) );
+                    builder.setDefaultCredentialsProvider( credentials );
+                }
+            }
+            _client = builder.build( );
+            _lLastEviction = System.currentTimeMillis( );
+        }
+        return _client;
+    }
+
+    /**
+     * Routes the requests through the proxy, except those to the hosts reached without proxy
+     */
+    private static final class NoProxyRoutePlanner extends DefaultProxyRoutePlanner
+    {
+        /**
+         * Constructor
+         * 
+         * @param proxy
+         *            The proxy
+         */
+        NoProxyRoutePlanner( HttpHost proxy )
+        {
+            super( proxy );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected HttpHost determineProxy( HttpHost target, HttpRequest request, HttpContext context ) throws HttpException
+        {
+            return isNoProxyHost( target.getHostName( ) ) ? null : super.determineProxy( target, request, context );
+        }
+    }
+
+    /**
+     * Keeps connections alive for the duration sent by the server (Keep-Alive header) bounded by the configured duration
+     */
+    private static final class KeepAliveStrategy implements ConnectionKeepAliveStrategy
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getKeepAliveDuration( HttpResponse response, HttpContext context )
+        {
+            long lDuration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration( response, context );
+            return ( lDuration > 0 ) ? Math.min( lDuration, KEEP_ALIVE ) : KEEP_ALIVE;
+        }
+    }
+}
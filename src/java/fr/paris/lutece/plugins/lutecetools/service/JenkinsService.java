@@ -33,6 +33,11 @@
  */
 package fr.paris.lutece.plugins.lutecetools.service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
 import fr.paris.lutece.plugins.lutecetools.business.Component;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.signrequest.BasicAuthorizationAuthenticator;
@@ -81,4 +86,19 @@ public class JenkinsService implements ComponentInfoFiller
         String strPassword = AppPropertiesService.getProperty( PROPERTY_JENKINS_CREDENTIALS_PWD );
         return new BasicAuthorizationAuthenticator( strUser, strPassword );
     }
+
+    /**
+     * Gets the Jenkins request headers (Basic authorization) to use with the shared HTTP client
+     * 
+     * @return The headers
+     */
+    public Map<String, String> getJenkinsHeaders( )
+    {
+        String strUser = AppPropertiesService.getProperty( PROPERTY_JENKINS_CREDENTIALS_USER );
+        String strPassword = AppPropertiesService.getProperty( PROPERTY_JENKINS_CREDENTIALS_PWD );
+        String strCredentials = strUser + ":" + strPassword;
+        Map<String, String> mapHeaders = new HashMap<>( );
+        mapHeaders.put( "Authorization", "Basic " + Base64.getEncoder( ).encodeToString( strCredentials.getBytes( StandardCharsets.UTF_8 ) ) );
+        return mapHeaders;
+    }
 }
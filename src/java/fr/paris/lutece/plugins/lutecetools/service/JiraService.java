@@ -33,19 +33,30 @@
  */
 package fr.paris.lutece.plugins.lutecetools.service;
 
-import java.io.IOException;
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 
 import com.atlassian.jira.rest.client.api.JiraRestClient;
 import com.atlassian.jira.rest.client.api.RestClientException;
+import com.atlassian.jira.rest.client.api.SearchRestClient;
 import com.atlassian.jira.rest.client.api.VersionRestClient;
+import com.atlassian.jira.rest.client.api.domain.Issue;
 import com.atlassian.jira.rest.client.api.domain.Project;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
 import com.atlassian.jira.rest.client.api.domain.Version;
 import com.atlassian.jira.rest.client.api.domain.VersionRelatedIssuesCount;
 import com.atlassian.jira.rest.client.auth.BasicHttpAuthenticationHandler;
 import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClientFactory;
+import com.atlassian.util.concurrent.Promise;
 
 import fr.paris.lutece.plugins.lutecetools.business.Component;
 import fr.paris.lutece.portal.service.util.AppLogService;
@@ -76,11 +87,35 @@ public class JiraService implements ComponentInfoFiller
     private static final String JIRA_PWD = AppPropertiesService.getProperty( PROPERTY_JIRA_PWD );
     
     private static final String SERVICE_NAME = "JIRA Info filler service registered";
+    private static final String PROPERTY_REFRESH_INTERVAL = "lutecetools.jira.refreshInterval";
+    private static final long DEFAULT_REFRESH_INTERVAL = 14400000L;
+    private static final long REFRESH_INTERVAL = AppPropertiesService.getPropertyLong( PROPERTY_REFRESH_INTERVAL, DEFAULT_REFRESH_INTERVAL );
+    private static final int COST = 3; // project and versions requests
     private static final int JIRAKEY_ERROR_MISSING = 1;
     private static final int JIRAKEY_ERROR_INVALID = 2;
 
     private static final AsynchronousJiraRestClientFactory FACTORY = new AsynchronousJiraRestClientFactory( );
     private static final BasicHttpAuthenticationHandler AUTH = new BasicHttpAuthenticationHandler( JIRA_USR, JIRA_PWD );
+    private static final String PROPERTY_BULK_ENABLED = "lutecetools.jira.bulk.enabled";
+    private static final boolean BULK_ENABLED = AppPropertiesService.getPropertyBoolean( PROPERTY_BULK_ENABLED, true );
+    private static final String PROPERTY_BULK_PAGE_SIZE = "lutecetools.jira.bulk.pageSize";
+    private static final int BULK_PAGE_SIZE = AppPropertiesService.getPropertyInt( PROPERTY_BULK_PAGE_SIZE, 500 );
+    private static final String PROPERTY_BULK_TTL = "lutecetools.jira.bulk.ttl";
+    private static final long BULK_TTL = AppPropertiesService.getPropertyLong( PROPERTY_BULK_TTL, 600000L );
+    private static final String PROPERTY_PROJECT_TTL = "lutecetools.jira.project.ttl";
+    private static final long PROJECT_TTL = AppPropertiesService.getPropertyLong( PROPERTY_PROJECT_TTL, 60000L );
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+    private static final String PROPERTY_RATE_LIMIT_DELAY = "lutecetools.jira.rateLimit.delay";
+    private static final long RATE_LIMIT_DELAY = AppPropertiesService.getPropertyLong( PROPERTY_RATE_LIMIT_DELAY, 60000L );
+    private static final String JQL_UNRELEASED_VERSIONS_ISSUES = "project in (%s) AND fixVersion in unreleasedVersions()";
+    // fields required by the issue parser of the client, plus the counted ones
+    private static final Set<String> SEARCH_FIELDS = new HashSet<>( Arrays.asList( "summary", "issuetype", "created", "updated", "project", "status",
+            "fixVersions", "resolution" ) );
+
+    private static JiraRestClient _client;
+    private static final Map<String, CachedProject> _mapProjects = new ConcurrentHashMap<>( );
+    private static final Set<String> _setProjectKeys = ConcurrentHashMap.newKeySet( );
+    private static volatile IssuesCounts _issuesCounts;
 
     /**
      * Constructor
@@ -104,6 +139,33 @@ public class JiraService implements ComponentInfoFiller
         }
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long getRefreshInterval( )
+    {
+        return REFRESH_INTERVAL;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int getCost( )
+    {
+        return COST;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String getRateLimitKey( )
+    {
+        return RateLimiter.SERVICE_JIRA;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -119,7 +181,6 @@ public class JiraService implements ComponentInfoFiller
     @Override
     public void fill( Component component, StringBuilder sbLogs )
     {
-        JiraRestClient client = null;
         String strJiraKey = component.get( Component.JIRA_KEY );
 
         if ( strJiraKey == null )
@@ -131,9 +192,7 @@ public class JiraService implements ComponentInfoFiller
         }
         try
         {
-            client = FACTORY.create( new URI( URL_JIRA_SERVER ), AUTH );
-
-            Project project = client.getProjectClient( ).getProject( strJiraKey ).claim( );
+            Project project = getProject( strJiraKey );
             Version versionLastReleased = null;
             Version versionLastUnreleased = null;
             for ( Version version : project.getVersions( ) )
@@ -154,21 +213,17 @@ public class JiraService implements ComponentInfoFiller
             if ( versionLastUnreleased != null )
             {
                 component.set( JIRA_LAST_UNRELEASED_VERSION, versionLastUnreleased.getName( ) );
-                String strURI = URL_API_VERSION + versionLastUnreleased.getId( );
-                URI uriVersion = new URI( strURI );
-                VersionRestClient clientVersion = client.getVersionRestClient( );
-                int nUnresolvedIssues = clientVersion.getNumUnresolvedIssues( uriVersion ).claim( );
+                int [ ] counts = getIssuesCounts( project.getKey( ), versionLastUnreleased );
+                int nIssues = counts [0];
+                int nUnresolvedIssues = counts [1];
                 component.set( JIRA_UNRESOLVED_ISSUES_COUNT, nUnresolvedIssues );
-                VersionRelatedIssuesCount vRelatedIssues = clientVersion.getVersionRelatedIssuesCount( uriVersion )
-                        .claim( );
-                component.set( JIRA_ISSUES_COUNT, vRelatedIssues.getNumFixedIssues( ) );
-                component.set( JIRA_FIXED_ISSUES_COUNT, vRelatedIssues.getNumFixedIssues( ) - nUnresolvedIssues );
+                component.set( JIRA_ISSUES_COUNT, nIssues );
+                component.set( JIRA_FIXED_ISSUES_COUNT, nIssues - nUnresolvedIssues );
                 if ( AppLogService.isDebugEnabled( ) )
                 {
                     StringBuilder sbDebug = new StringBuilder( );
                     sbDebug.append( "LuteceTools : JiraService - Project " ).append( strJiraKey )
-                            .append( " AffectedIssues : " ).append( vRelatedIssues.getNumAffectedIssues( ) )
-                            .append( " FixedIssues : " ).append( vRelatedIssues.getNumFixedIssues( ) )
+                            .append( " FixedIssues : " ).append( nIssues )
                             .append( " Unresolved : " ).append( nUnresolvedIssues );
                     AppLogService.debug( sbDebug.toString( ) );
                 }
@@ -178,6 +233,11 @@ public class JiraService implements ComponentInfoFiller
         }
         catch ( RestClientException ex )
         {
+            if ( isRateLimited( ex ) )
+            {
+                sbLogs.append( "\n*** ERROR *** Jira rate limit exhausted getting Jira Infos for component " ).append( component.getArtifactId( ) );
+                return;
+            }
             component.set( JIRA_KEY_ERROR, JIRAKEY_ERROR_INVALID );
             sbLogs.append( "\n*** ERROR *** Invalid Jira Key '" ).append( strJiraKey ).append( " for component " )
                     .append( component.getArtifactId( ) );
@@ -189,20 +249,239 @@ public class JiraService implements ComponentInfoFiller
                     .append( "' : " ).append( ex.getMessage( ) ).append( " for component " )
                     .append( component.getArtifactId( ) );
         }
-        finally
+    }
+
+    /**
+     * Returns a token built from the ids of the last released and unreleased versions of the project
+     * 
+     * @param component The component
+     * @return The token or null if the project is not available
+     */
+    @Override
+    public String getChangeToken( Component component )
+    {
+        String strJiraKey = component.get( Component.JIRA_KEY );
+
+        if ( strJiraKey == null )
+        {
+            return "";
+        }
+
+        try
+        {
+            // The project is kept for the fill that may follow
+            Project project = getProject( strJiraKey );
+            Long lLastReleasedId = null;
+            Long lLastUnreleasedId = null;
+            for ( Version version : project.getVersions( ) )
+            {
+                if ( version.isReleased( ) )
+                {
+                    lLastReleasedId = version.getId( );
+                }
+                else
+                {
+                    lLastUnreleasedId = version.getId( );
+                }
+            }
+
+            return strJiraKey + ':' + lLastReleasedId + ':' + lLastUnreleasedId;
+        }
+        catch ( Exception ex )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Clear the projects and issues counts fetched by the bulk mode
+     */
+    public static void clearCache( )
+    {
+        _mapProjects.clear( );
+        _setProjectKeys.clear( );
+        _issuesCounts = null;
+    }
+
+    /**
+     * Returns true if a request has been rejected by the rate limit of Jira. The client doesn't give the response headers : the requests are then
+     * deferred for a fixed delay.
+     * 
+     * @param ex The exception
+     * @return true if rate limited
+     */
+    private static boolean isRateLimited( RestClientException ex )
+    {
+        if ( ex.getStatusCode( ).isPresent( ) && ( ex.getStatusCode( ).get( ) == SC_TOO_MANY_REQUESTS ) )
+        {
+            RateLimiter.exhausted( RateLimiter.SERVICE_JIRA, System.currentTimeMillis( ) + RATE_LIMIT_DELAY );
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the shared Jira client. The client is created once and reused by all the components
+     * 
+     * @return The client
+     * @throws URISyntaxException if the Jira URL is invalid
+     */
+    private static synchronized JiraRestClient getClient( ) throws URISyntaxException
+    {
+        if ( _client == null )
+        {
+            _client = FACTORY.create( new URI( URL_JIRA_SERVER ), AUTH );
+        }
+        return _client;
+    }
+
+    /**
+     * Gets a Jira project with its versions. The project is kept for a short time to be shared by the change detection and the fill of a component
+     * 
+     * @param strJiraKey The Jira key
+     * @return The project
+     * @throws URISyntaxException if the Jira URL is invalid
+     */
+    private static Project getProject( String strJiraKey ) throws URISyntaxException
+    {
+        long lNow = System.currentTimeMillis( );
+        CachedProject cached = _mapProjects.get( strJiraKey );
+        if ( ( cached != null ) && ( lNow - cached._lFetched < PROJECT_TTL ) )
+        {
+            return cached._project;
+        }
+        Project project = getClient( ).getProjectClient( ).getProject( strJiraKey ).claim( );
+        _mapProjects.put( strJiraKey, new CachedProject( project, lNow ) );
+        // only existing projects are searched in bulk : an unknown project would make the whole search fail
+        _setProjectKeys.add( project.getKey( ) );
+        return project;
+    }
+
+    /**
+     * Gets the issues counts of a version : the counts of the unreleased versions of the known projects are fetched in bulk by a few JQL searches.
+     * If not available or if the project was not known at the time of the search, the counts of the version are requested concurrently.
+     * 
+     * @param strProjectKey The project key
+     * @param version The version
+     * @return An array containing the number of issues and the number of unresolved issues
+     * @throws URISyntaxException if the Jira URL is invalid
+     */
+    private static int [ ] getIssuesCounts( String strProjectKey, Version version ) throws URISyntaxException
+    {
+        IssuesCounts issuesCounts = getBulkIssuesCounts( );
+        if ( ( issuesCounts != null ) && issuesCounts.covers( strProjectKey ) && ( version.getId( ) != null ) )
+        {
+            return issuesCounts.get( version.getId( ) );
+        }
+
+        URI uriVersion = new URI( URL_API_VERSION + version.getId( ) );
+        VersionRestClient clientVersion = getClient( ).getVersionRestClient( );
+        // both requests are issued before waiting for their results
+        Promise<Integer> promiseUnresolved = clientVersion.getNumUnresolvedIssues( uriVersion );
+        Promise<VersionRelatedIssuesCount> promiseRelated = clientVersion.getVersionRelatedIssuesCount( uriVersion );
+        int nUnresolvedIssues = promiseUnresolved.claim( );
+        int nIssues = promiseRelated.claim( ).getNumFixedIssues( );
+        return new int [ ] {
+                nIssues, nUnresolvedIssues
+        };
+    }
+
+    /**
+     * Gets the issues counts of the unreleased versions of the known projects, searching them again if outdated
+     * 
+     * @return The counts or null if the bulk mode is disabled or failed
+     */
+    private static IssuesCounts getBulkIssuesCounts( )
+    {
+        if ( !BULK_ENABLED )
+        {
+            return null;
+        }
+        IssuesCounts issuesCounts = _issuesCounts;
+        if ( ( issuesCounts != null ) && !issuesCounts.isOutdated( ) )
+        {
+            return issuesCounts.isAvailable( ) ? issuesCounts : null;
+        }
+        synchronized( JiraService.class )
         {
-            if ( client != null )
+            if ( ( _issuesCounts == null ) || _issuesCounts.isOutdated( ) )
             {
-                try
+                _issuesCounts = searchIssuesCounts( );
+            }
+            return _issuesCounts.isAvailable( ) ? _issuesCounts : null;
+        }
+    }
+
+    /**
+     * Search the issues of the unreleased versions of the known projects and count them by fix version
+     * 
+     * @return The counts
+     */
+    private static IssuesCounts searchIssuesCounts( )
+    {
+        IssuesCounts issuesCounts = new IssuesCounts( _setProjectKeys );
+        if ( issuesCounts._setKeys.isEmpty( ) )
+        {
+            return issuesCounts;
+        }
+        try
+        {
+            SearchRestClient clientSearch = getClient( ).getSearchClient( );
+            String strJql = String.format( JQL_UNRELEASED_VERSIONS_ISSUES, getProjectsList( issuesCounts._setKeys ) );
+            int nStart = 0;
+            int nTotal;
+            do
+            {
+                SearchResult result = clientSearch.searchJql( strJql, BULK_PAGE_SIZE, nStart, SEARCH_FIELDS ).claim( );
+                int nCount = 0;
+                for ( Issue issue : result.getIssues( ) )
                 {
-                    client.close( );
+                    issuesCounts.add( issue );
+                    nCount++;
                 }
-                catch ( IOException ex )
+                nTotal = result.getTotal( );
+                nStart += nCount;
+                if ( nCount == 0 )
                 {
-                    AppLogService.error( "LuteceTools : Error using Jira Client API : " + ex.getMessage( ), ex );
+                    break;
                 }
             }
+            while ( nStart < nTotal );
+
+            issuesCounts.setAvailable( );
+            AppLogService.info( "LuteceTools : JiraService - " + nStart + " issues of unreleased versions of " + issuesCounts._setKeys.size( )
+                    + " projects counted in bulk" );
         }
+        catch ( Exception ex )
+        {
+            if ( ex instanceof RestClientException )
+            {
+                isRateLimited( (RestClientException) ex );
+            }
+            AppLogService.error( "LuteceTools : JiraService - Error counting issues in bulk, falling back to requests by version : " + ex.getMessage( ),
+                    ex );
+        }
+        return issuesCounts;
+    }
+
+    /**
+     * Gets the project keys as a JQL list of quoted values
+     * 
+     * @param setKeys The project keys
+     * @return The list
+     */
+    private static String getProjectsList( Set<String> setKeys )
+    {
+        StringBuilder sbList = new StringBuilder( );
+        for ( String strKey : setKeys )
+        {
+            if ( sbList.length( ) > 0 )
+            {
+                sbList.append( ',' );
+            }
+            sbList.append( '"' ).append( strKey.replace( "\\", "\\\\" ).replace( "\"", "\\\"" ) ).append( '"' );
+        }
+        return sbList.toString( );
     }
 
     /**
@@ -264,4 +543,119 @@ public class JiraService implements ComponentInfoFiller
         return nStatus;
     }
 
+    /**
+     * Project fetched by the change detection or by the fill
+     */
+    private static final class CachedProject
+    {
+        private final Project _project;
+        private final long _lFetched;
+
+        /**
+         * Constructor
+         * 
+         * @param project The project
+         * @param lFetched The fetch time
+         */
+        CachedProject( Project project, long lFetched )
+        {
+            _project = project;
+            _lFetched = lFetched;
+        }
+    }
+
+    /**
+     * Issues counts of the unreleased versions of some projects, by version id
+     */
+    private static final class IssuesCounts
+    {
+        private final Map<Long, int [ ]> _mapCounts = new HashMap<>( );
+        private final Set<String> _setKeys;
+        private final long _lCreated = System.currentTimeMillis( );
+        private boolean _bAvailable;
+
+        /**
+         * Constructor
+         * 
+         * @param setKeys The keys of the projects searched
+         */
+        IssuesCounts( Set<String> setKeys )
+        {
+            _setKeys = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+            _setKeys.addAll( setKeys );
+        }
+
+        /**
+         * Returns true if the issues of a project have been counted
+         * 
+         * @param strProjectKey The project key
+         * @return true if the project has been searched
+         */
+        boolean covers( String strProjectKey )
+        {
+            return ( strProjectKey != null ) && _setKeys.contains( strProjectKey );
+        }
+
+        /**
+         * Count an issue for each of its fix versions
+         * 
+         * @param issue The issue
+         */
+        void add( Issue issue )
+        {
+            if ( issue.getFixVersions( ) == null )
+            {
+                return;
+            }
+            for ( Version version : issue.getFixVersions( ) )
+            {
+                int [ ] counts = _mapCounts.computeIfAbsent( version.getId( ), id -> new int [ 2] );
+                counts [0]++;
+                if ( issue.getResolution( ) == null )
+                {
+                    counts [1]++;
+                }
+            }
+        }
+
+        /**
+         * Gets the counts of a version
+         * 
+         * @param lVersionId The version id
+         * @return An array containing the number of issues and the number of unresolved issues
+         */
+        int [ ] get( Long lVersionId )
+        {
+            int [ ] counts = _mapCounts.get( lVersionId );
+            return ( counts != null ) ? counts.clone( ) : new int [ 2];
+        }
+
+        /**
+         * Mark the counts as complete
+         */
+        void setAvailable( )
+        {
+            _bAvailable = true;
+        }
+
+        /**
+         * Returns true if all the issues have been counted
+         * 
+         * @return true if available
+         */
+        boolean isAvailable( )
+        {
+            return _bAvailable;
+        }
+
+        /**
+         * Returns true if the counts must be searched again
+         * 
+         * @return true if outdated
+         */
+        boolean isOutdated( )
+        {
+            return System.currentTimeMillis( ) - _lCreated > BULK_TTL;
+        }
+    }
 }
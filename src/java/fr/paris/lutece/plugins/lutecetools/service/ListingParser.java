@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser of the directory listings pages of the Maven repositories.
+ * <p>
+ * The page is scanned in a single pass using indexes over the source : no intermediate copy of the page is made and anchors are returned as views of
+ * the source until they are converted to String.
+ * </p>
+ */
+public final class ListingParser
+{
+    private static final String TAG_ANCHOR_START = "<a ";
+    private static final String TAG_ANCHOR_END = "</a>";
+
+    /**
+     * Private constructor
+     */
+    private ListingParser( )
+    {
+    }
+
+    /**
+     * Gets the anchors labels of a listing page
+     * 
+     * @param strHtml
+     *            The HTML code
+     * @return The list
+     */
+    public static List<String> getAnchorsList( CharSequence strHtml )
+    {
+        List<CharSequence> listAnchors = getAnchors( strHtml, false );
+        List<String> list = new ArrayList<>( listAnchors.size( ) );
+        for ( CharSequence anchor : listAnchors )
+        {
+            list.add( anchor.toString( ) );
+        }
+        return list;
+    }
+
+    /**
+     * Gets the labels of the anchors of a listing page that are versions (starting with a digit)
+     * 
+     * @param strHtml
+     *            The HTML code
+     * @return The list
+     */
+    public static List<String> getVersionsList( CharSequence strHtml )
+    {
+        List<CharSequence> listAnchors = getAnchors( strHtml, true );
+        List<String> list = new ArrayList<>( listAnchors.size( ) );
+        for ( CharSequence anchor : listAnchors )
+        {
+            list.add( anchor.toString( ) );
+        }
+        return list;
+    }
+
+    /**
+     * Gets the anchors labels of a listing page as views of the page
+     * 
+     * @param strHtml
+     *            The HTML code
+     * @param bVersionsOnly
+     *            true to keep only the labels starting with a digit
+     * @return The list of labels without slashes
+     */
+    public static List<CharSequence> getAnchors( CharSequence strHtml, boolean bVersionsOnly )
+    {
+        List<CharSequence> list = new ArrayList<>( );
+        int nLength = strHtml.length( );
+        int nPos = indexOf( strHtml, TAG_ANCHOR_START, 0 );
+
+        while ( nPos >= 0 )
+        {
+            int nStart = indexOf( strHtml, ">", nPos + TAG_ANCHOR_START.length( ) );
+            int nEnd = ( nStart < 0 ) ? -1 : indexOf( strHtml, TAG_ANCHOR_END, nStart + 1 );
+            if ( nEnd < 0 )
+            {
+                break;
+            }
+            nStart++;
+
+            // Trim the leading and trailing slashes of directory names
+            while ( ( nStart < nEnd ) && ( strHtml.charAt( nStart ) == '/' ) )
+            {
+                nStart++;
+            }
+            int nLabelEnd = nEnd;
+            while ( ( nLabelEnd > nStart ) && ( strHtml.charAt( nLabelEnd - 1 ) == '/' ) )
+            {
+                nLabelEnd--;
+            }
+
+            if ( !bVersionsOnly || ( ( nStart < nLabelEnd ) && Character.isDigit( strHtml.charAt( nStart ) ) ) )
+            {
+                list.add( getLabel( strHtml, nStart, nLabelEnd ) );
+            }
+
+            nPos = ( nEnd + TAG_ANCHOR_END.length( ) < nLength ) ? indexOf( strHtml, TAG_ANCHOR_START, nEnd + TAG_ANCHOR_END.length( ) ) : -1;
+        }
+
+        return list;
+    }
+
+    /**
+     * Gets the label of an anchor
+     * 
+     * @param source
+     *            The page
+     * @param nStart
+     *            The start index of the label
+     * @param nEnd
+     *            The end index of the label
+     * @return A view of the page or a new String if the label contains inner slashes to remove
+     */
+    private static CharSequence getLabel( CharSequence source, int nStart, int nEnd )
+    {
+        for ( int i = nStart; i < nEnd; i++ )
+        {
+            if ( source.charAt( i ) == '/' )
+            {
+                StringBuilder sb = new StringBuilder( nEnd - nStart );
+                for ( int j = nStart; j < nEnd; j++ )
+                {
+                    char c = source.charAt( j );
+                    if ( c != '/' )
+                    {
+                        sb.append( c );
+                    }
+                }
+                return sb.toString( );
+            }
+        }
+        return new Label( source, nStart, nEnd );
+    }
+
+    /**
+     * Finds a string in a char sequence
+     * 
+     * @param source
+     *            The char sequence
+     * @param strSearched
+     *            The searched string
+     * @param nFrom
+     *            The start index
+     * @return The index or -1 if not found
+     */
+    private static int indexOf( CharSequence source, String strSearched, int nFrom )
+    {
+        if ( source instanceof String )
+        {
+            return ( (String) source ).indexOf( strSearched, nFrom );
+        }
+
+        char cFirst = strSearched.charAt( 0 );
+        int nMax = source.length( ) - strSearched.length( );
+        for ( int i = nFrom; i <= nMax; i++ )
+        {
+            if ( source.charAt( i ) == cFirst )
+            {
+                int j = 1;
+                while ( ( j < strSearched.length( ) ) && ( source.charAt( i + j ) == strSearched.charAt( j ) ) )
+                {
+                    j++;
+                }
+                if ( j == strSearched.length( ) )
+                {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * View of an anchor label over the listing page
+     */
+    private static final class Label implements CharSequence
+    {
+        private final CharSequence _source;
+        private final int _nStart;
+        private final int _nEnd;
+
+        /**
+         * Constructor
+         * 
+         * @param source
+         *            The page
+         * @param nStart
+         *            The start index
+         * @param nEnd
+         *            The end index
+         */
+        Label( CharSequence source, int nStart, int nEnd )
+        {
+            _source = source;
+            _nStart = nStart;
+            _nEnd = nEnd;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int length( )
+        {
+            return _nEnd - _nStart;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public char charAt( int nIndex )
+        {
+            return _source.charAt( _nStart + nIndex );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public CharSequence subSequence( int nStart, int nEnd )
+        {
+            return new Label( _source, _nStart + nStart, _nStart + nEnd );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString( )
+        {
+            return _source.subSequence( _nStart, _nEnd ).toString( );
+        }
+    }
+}
@@ -36,11 +36,22 @@ package fr.paris.lutece.plugins.lutecetools.service;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -57,7 +68,6 @@ import fr.paris.lutece.portal.service.datastore.DatastoreService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
-import fr.paris.lutece.util.httpaccess.HttpAccess;
 import fr.paris.lutece.util.httpaccess.HttpAccessException;
 
 /**
@@ -65,6 +75,9 @@ import fr.paris.lutece.util.httpaccess.HttpAccessException;
  */
 public final class MavenRepoService
 {
+    public static final String CACHE_AGE = "cacheAge";
+    public static final String CACHE_STALE = "cacheStale";
+
     // Maven repos URLs
 	private static final String PROPERTY_MAVEN_URL_PREFIX = "lutecetools.maven.repository.url";
 	private static final List<String> PROPERTIES_MAVEN_URL = AppPropertiesService.getKeys( PROPERTY_MAVEN_URL_PREFIX );
@@ -101,23 +114,57 @@ public final class MavenRepoService
     private static final String PROPERTY_MAVEN_PATH_THEMES = "lutecetools.maven.repository.path.themes";
     private static final String URL_MAVEN_PATH_THEMES = AppPropertiesService.getProperty( PROPERTY_MAVEN_PATH_THEMES );
 
+    // Version resolver by repository : metadata (maven-metadata.xml) or browse (HTML listing)
+    private static final String PROPERTY_MAVEN_RESOLVER_PREFIX = "lutecetools.maven.repository.resolver.";
+    private static final String RESOLVER_METADATA = "metadata";
+    private static final String FILE_MAVEN_METADATA = "maven-metadata.xml";
+
+    // Repository probes cache
+    private static final String PROPERTY_PROBE_TTL = "lutecetools.maven.repository.probe.ttl";
+    private static final long DEFAULT_PROBE_TTL = 86400000L; // 1 day
+    private static final String PROPERTY_PROBE_CONTENT_TTL = "lutecetools.maven.repository.probe.content.ttl";
+    private static final long DEFAULT_PROBE_CONTENT_TTL = 300000L; // 5 minutes
+    private static final String PROPERTY_PROBE_NOT_FOUND_TTL = "lutecetools.maven.repository.probe.notFound.ttl";
+    private static final long DEFAULT_PROBE_NOT_FOUND_TTL = 600000L; // 10 minutes
+    private static final String PROPERTY_PROBE_CONTENT_MAX_ENTRIES = "lutecetools.maven.repository.probe.content.maxEntries";
+    private static final int DEFAULT_PROBE_CONTENT_MAX_ENTRIES = 500;
+
     private static final String KEY_SITE_POM_VERSION = "lutecetools.pom.site.version";
+    private static final String KEY_COMPONENTS_LIST = "lutecetools.componentsList";
     private static final String RELEASE_NOT_FOUND = "Release not found";
 
-    private static final String EXCEPTION_MESSAGE = "LuteceTools - MavenRepoService : Error retrieving pom infos : ";
     private static final String PROPERTY_NON_AVAILABLE = "lutecetools.nonAvailable";
     private static final String NON_AVAILABLE = AppPropertiesService.getProperty( PROPERTY_NON_AVAILABLE );
     private static final String PROPERTY_UPDATE_DELAY = "lutecetools.update.delay";
     private static final long DEFAULT_UPDATE_DELAY = 7200000L; // 2 hours
     private static final long UPDATE_DELAY = AppPropertiesService.getPropertyLong( PROPERTY_UPDATE_DELAY,
             DEFAULT_UPDATE_DELAY );
+    private static final String PROPERTY_UPDATE_THREADS = "lutecetools.update.threads";
+    private static final int DEFAULT_UPDATE_THREADS = 4;
+    private static final int UPDATE_THREADS = AppPropertiesService.getPropertyInt( PROPERTY_UPDATE_THREADS,
+            DEFAULT_UPDATE_THREADS );
+    private static final String PROPERTY_SWR_ENABLED = "lutecetools.staleWhileRevalidate.enabled";
+    private static final boolean SWR_ENABLED = AppPropertiesService.getPropertyBoolean( PROPERTY_SWR_ENABLED, true );
+    private static final String PROPERTY_SWR_THREADS = "lutecetools.staleWhileRevalidate.threads";
+    private static final int SWR_THREADS = AppPropertiesService.getPropertyInt( PROPERTY_SWR_THREADS, 4 );
+    private static final String PROPERTY_SWR_MAX_WAIT = "lutecetools.staleWhileRevalidate.maxWait";
+    private static final long SWR_MAX_WAIT = AppPropertiesService.getPropertyLong( PROPERTY_SWR_MAX_WAIT, 30000L );
 
     // Tags
     private static final String TAG_LUTECE_CORE = "lutece-core";
 
     private static MavenRepoService _singleton;
-    private static StringBuilder _sbLogs = new StringBuilder( );
+    private static Queue<String> _queueLogs = new ConcurrentLinkedQueue<>( );
+    private static RepositoryProbeCache _probeCache = new RepositoryProbeCache(
+            AppPropertiesService.getPropertyLong( PROPERTY_PROBE_TTL, DEFAULT_PROBE_TTL ),
+            AppPropertiesService.getPropertyLong( PROPERTY_PROBE_NOT_FOUND_TTL, DEFAULT_PROBE_NOT_FOUND_TTL ),
+            AppPropertiesService.getPropertyLong( PROPERTY_PROBE_CONTENT_TTL, DEFAULT_PROBE_CONTENT_TTL ),
+            AppPropertiesService.getPropertyInt( PROPERTY_PROBE_CONTENT_MAX_ENTRIES, DEFAULT_PROBE_CONTENT_MAX_ENTRIES ) );
     private static List<ComponentInfoFiller> _listComponentFiller = new ArrayList<>( );
+    private static volatile ComponentsListSnapshot _componentsListSnapshot;
+    private static final Map<String, CompletableFuture<Component>> _mapRefreshes = new ConcurrentHashMap<>( );
+    private static ExecutorService _refreshExecutor;
+    private static final Set<ExecutorService> _setUpdateExecutors = ConcurrentHashMap.newKeySet( );
 
     /**
      * Private constructor
@@ -147,11 +194,39 @@ public final class MavenRepoService
         return _singleton;
     }
     
+    /**
+     * Gets the first repository URL where an artifact (or a directory) is available
+     * 
+     * @param listRepoPathTypeProperties The repository paths properties (releases or snapshots)
+     * @param strComponentPath The component path
+     * @param strArtifactId The artifact ID (may be null)
+     * @return The browse URL or null if not found
+     */
     private String getAvailableUrl(List<String> listRepoPathTypeProperties, String strComponentPath, String strArtifactId)
     {
-    	HttpAccess httpAccess = new HttpAccess( );
-    	String strHtml = null;
-    	
+        return getAvailableUrl( listRepoPathTypeProperties, strComponentPath, strArtifactId, false );
+    }
+
+    /**
+     * Gets the first repository URL where an artifact (or a directory) is available
+     * 
+     * @param listRepoPathTypeProperties The repository paths properties (releases or snapshots)
+     * @param strComponentPath The component path
+     * @param strArtifactId The artifact ID (may be null)
+     * @param bListing true if the URL is a directory that has no maven-metadata.xml and must be probed by its listing
+     * @return The browse URL or null if not found
+     */
+    private String getAvailableUrl(List<String> listRepoPathTypeProperties, String strComponentPath, String strArtifactId, boolean bListing)
+    {
+        String strProbeKey = getRepositoryType( listRepoPathTypeProperties ) + ':' + strComponentPath
+                + ( ( strArtifactId != null ) ? strArtifactId : "" ) + ( bListing ? ":listing" : "" );
+        RepositoryProbeCache.Probe probe = _probeCache.getProbe( strProbeKey );
+
+        if ( probe != null )
+        {
+            return probe.getUrl( );
+        }
+
     	for (String strUrlProperty : PROPERTIES_MAVEN_URL)
     	{    		
     		String[] tabUrl = strUrlProperty.split("\\.");
@@ -165,27 +240,184 @@ public final class MavenRepoService
     				
     				if (strArtifactId != null && !strArtifactId.isEmpty())
     	    			url = url + strArtifactId;
+
+    				String strProbeUrl = ( !bListing && isMetadataResolver( url ) ) ? getMetadataUrl( url ) : url;
+    				String strHtml = null;
     				
     				try
     	            {  
-    	    			strHtml = httpAccess.doGet( url );
+    	    			strHtml = doGet( strProbeUrl );
     	            }
     	            catch ( HttpAccessException e )
     	            {
-    	                AppLogService.info( "LuteceTools - MavenRepoService : Not available url : " + url );
+    	                AppLogService.info( "LuteceTools - MavenRepoService : Not available url : " + strProbeUrl );
     	            }
     	    		
     	    		if ( strHtml != null && !strHtml.isEmpty())
     	    		{
+    	    			_probeCache.putFound( strProbeKey, url, strProbeUrl, strHtml );
     	    			return url;
     	    		} 
     			}	
     			
         	}    		   			
     	}     
+
+        _probeCache.putNotFound( strProbeKey );
     	
     	return null;
     }
+
+    /**
+     * Gets the repository type (releases or snapshots) of a list of repository paths properties
+     * 
+     * @param listRepoPathTypeProperties The repository paths properties
+     * @return The repository type
+     */
+    private String getRepositoryType( List<String> listRepoPathTypeProperties )
+    {
+        if ( listRepoPathTypeProperties == PROPERTIES_RELEASES_PATH )
+        {
+            return PROPERTY_RELEASES_PATH_PREFIX;
+        }
+        if ( listRepoPathTypeProperties == PROPERTIES_SNAPSHOTS_PATH )
+        {
+            return PROPERTY_SNAPSHOTS_PATH_PREFIX;
+        }
+        return String.join( ",", listRepoPathTypeProperties );
+    }
+
+    /**
+     * Gets the content of an URL, reusing the content fetched while probing repositories if still available
+     * 
+     * @param strUrl The URL
+     * @return The content
+     * @throws HttpAccessException if an error occurs
+     */
+    private String getContent( String strUrl ) throws HttpAccessException
+    {
+        String strContent = _probeCache.getContent( strUrl );
+
+        return ( strContent != null ) ? strContent : doGet( strUrl );
+    }
+
+    /**
+     * Clear the repository probes cache
+     */
+    public static void clearProbeCache( )
+    {
+        _probeCache.clear( );
+    }
+
+    /**
+     * Returns the key (ie: public, private) of the repository hosting a given URL
+     * 
+     * @param strUrl The URL
+     * @return The repository key or null if the URL doesn't belong to a configured repository
+     */
+    private String getRepositoryKey( String strUrl )
+    {
+        for ( String strUrlProperty : PROPERTIES_MAVEN_URL )
+        {
+            String strRepositoryUrl = AppPropertiesService.getProperty( strUrlProperty );
+            if ( strRepositoryUrl != null && strUrl.startsWith( strRepositoryUrl ) )
+            {
+                return strUrlProperty.substring( strUrlProperty.lastIndexOf( '.' ) + 1 );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if versions of the repository hosting the given URL are resolved with maven-metadata.xml files
+     * 
+     * @param strUrl The URL
+     * @return true if the metadata resolver is configured for this repository
+     */
+    private boolean isMetadataResolver( String strUrl )
+    {
+        if ( strUrl == null )
+        {
+            return false;
+        }
+        String strRepositoryKey = getRepositoryKey( strUrl );
+        return strRepositoryKey != null
+                && RESOLVER_METADATA.equals( AppPropertiesService.getProperty( PROPERTY_MAVEN_RESOLVER_PREFIX + strRepositoryKey ) );
+    }
+
+    /**
+     * Gets the maven-metadata.xml file URL of a given browse URL
+     * 
+     * @param strBrowseUrl The browse URL of an artifact or a snapshot version
+     * @return The metadata URL
+     */
+    private String getMetadataUrl( String strBrowseUrl )
+    {
+        String strUrl = strBrowseUrl.replace( PATH_MAVEN_REPO_TREE, PATH_MAVEN_REPO_FILE );
+        return strUrl.endsWith( "/" ) ? strUrl + FILE_MAVEN_METADATA : strUrl + "/" + FILE_MAVEN_METADATA;
+    }
+
+    /**
+     * Fetch and parse a maven-metadata.xml file
+     * 
+     * @param strBrowseUrl The browse URL of an artifact or a snapshot version
+     * @return The parsed metadata
+     * @throws HttpAccessException if the file can't be fetched
+     */
+    private SaxMetadataHandler getMetadata( String strBrowseUrl ) throws HttpAccessException
+    {
+        SaxMetadataHandler handler = new SaxMetadataHandler( );
+        String strMetadataUrl = getMetadataUrl( strBrowseUrl );
+        // the content fetched while probing the repositories is reused, otherwise the response stream is parsed directly
+        String strMetadata = _probeCache.getContent( strMetadataUrl );
+
+        try
+        {
+            SAXParser saxParser = SAXParserFactory.newInstance( ).newSAXParser( );
+            if ( strMetadata != null )
+            {
+                saxParser.parse( new InputSource( new StringReader( strMetadata ) ), handler );
+            }
+            else
+            {
+                ConditionalHttpAccess.doGet( strMetadataUrl, null, is -> {
+                    saxParser.parse( new InputSource( is ), handler );
+                    return handler;
+                } );
+            }
+        }
+        catch ( IOException | SAXException | ParserConfigurationException e )
+        {
+            AppLogService.error( "LuteceTools - MavenRepoService : Error parsing maven metadata : " + e.getMessage( ), e );
+        }
+
+        return handler;
+    }
+
+    /**
+     * Gets the latest version listed by a metadata file
+     * 
+     * @param handler The parsed metadata
+     * @return The latest version or null if no version is available
+     */
+    private String getLatestVersion( SaxMetadataHandler handler )
+    {
+        List<String> listVersions = new ArrayList<>( );
+        for ( String strVersion : handler.getVersions( ) )
+        {
+            if ( !strVersion.isEmpty( ) && Character.isDigit( strVersion.charAt( 0 ) ) )
+            {
+                listVersions.add( strVersion );
+            }
+        }
+
+        if ( !listVersions.isEmpty( ) )
+        {
+            return VersionUtils.getLatestVersion( listVersions );
+        }
+
+        return ( handler.getRelease( ) != null ) ? handler.getRelease( ) : handler.getLatest( );
+    }
     
     /**
      * Set the component's version
@@ -221,19 +453,16 @@ public final class MavenRepoService
     	{
     		try
             {
-                HttpAccess httpAccess = new HttpAccess( );
-                String strHtml = httpAccess.doGet( strUrl );
-
-                List<String> listElement = getAnchorsList( strHtml );
-                List<String> listVersions = new ArrayList<>( );
-                for ( String strAnchor : listElement )
+                if ( isMetadataResolver( strUrl ) )
                 {
-                    if ( strAnchor.matches( "^[\\d].*" ) )
-                    {
-                        listVersions.add( strAnchor );
-                    }
+                    String strLatest = getLatestVersion( getMetadata( strUrl ) );
+                    return ( strLatest != null ) ? strLatest : RELEASE_NOT_FOUND;
                 }
 
+                String strHtml = getContent( strUrl );
+
+                List<String> listVersions = ListingParser.getVersionsList( strHtml );
+
                 if ( listVersions.isEmpty( ) )
                 {
                     return RELEASE_NOT_FOUND;
@@ -287,21 +516,102 @@ public final class MavenRepoService
     }
 
     /**
-     * Get the components list
+     * Get the components list. The list is served from the last snapshot read from the repository and is only fetched live if no snapshot has ever
+     * been read.
      * 
      * @return The list
      */
     public List<String> getComponentsListFromRepository( )
+    {
+        ComponentsListSnapshot snapshot = _componentsListSnapshot;
+
+        if ( snapshot == null )
+        {
+            snapshot = loadComponentsList( );
+        }
+
+        return new ArrayList<>( snapshot.getArtifactIds( ) );
+    }
+
+    /**
+     * Load the components list from the Datastore or from the repository if not yet stored
+     * 
+     * @return The components list snapshot
+     */
+    private synchronized ComponentsListSnapshot loadComponentsList( )
+    {
+        if ( _componentsListSnapshot == null )
+        {
+            String strList = DatastoreService.getDataValue( KEY_COMPONENTS_LIST, null );
+
+            if ( strList != null && !strList.isEmpty( ) )
+            {
+                _componentsListSnapshot = new ComponentsListSnapshot( Arrays.asList( strList.split( "," ) ), 0L, 0L );
+            }
+            else
+            {
+                refreshComponentsList( );
+            }
+        }
+
+        return _componentsListSnapshot;
+    }
+
+    /**
+     * Read the components list from the repository and publish it as a new snapshot. The previous snapshot is kept if the repository is not available.
+     * 
+     * @return The current components list snapshot
+     */
+    public synchronized ComponentsListSnapshot refreshComponentsList( )
+    {
+        List<String> list = fetchComponentsListFromRepository( );
+        ComponentsListSnapshot snapshot = _componentsListSnapshot;
+
+        if ( !list.isEmpty( ) )
+        {
+            long lVersion = ( snapshot != null ) ? snapshot.getVersion( ) + 1 : 1L;
+            snapshot = new ComponentsListSnapshot( list, lVersion, new Date( ).getTime( ) );
+            _componentsListSnapshot = snapshot;
+            DatastoreService.setDataValue( KEY_COMPONENTS_LIST, String.join( ",", list ) );
+        }
+        else
+            if ( snapshot == null )
+            {
+                // Nothing available yet : publish an empty list that will be replaced by the next successful refresh
+                snapshot = new ComponentsListSnapshot( list, 0L, 0L );
+                _componentsListSnapshot = snapshot;
+            }
+
+        return snapshot;
+    }
+
+    /**
+     * Get the components list from the repository
+     * 
+     * @return The list or an empty list if the repository is not available
+     */
+    private List<String> fetchComponentsListFromRepository( )
     {
         List<String> list = new ArrayList<>( );
 
         try
         {
-            HttpAccess httpAccess = new HttpAccess( );
-            
-            String strUrl = getAvailableUrl(PROPERTIES_SNAPSHOTS_PATH, URL_MAVEN_PATH_PLUGINS, null);
-            String strHtml = httpAccess.doGet( strUrl ); 
-            list = getAnchorsList( strHtml );
+            // The plugins directory has no maven-metadata.xml : it is always read from its listing
+            String strUrl = getAvailableUrl(PROPERTIES_SNAPSHOTS_PATH, URL_MAVEN_PATH_PLUGINS, null, true);
+
+            if ( strUrl == null )
+            {
+                AppLogService.error( "LuteceTools - MavenRepoService : No repository available to list components" );
+                return list;
+            }
+
+            String strHtml = getContent( strUrl ); 
+            list = ListingParser.getAnchorsList( strHtml );
+
+            if ( list.isEmpty( ) )
+            {
+                return list;
+            }
 
             // remove the first link
             list.remove( 0 );
@@ -312,7 +622,7 @@ public final class MavenRepoService
         catch ( HttpAccessException e )
         {
             AppLogService.error(
-                    "LuteceTools - MavenRepoService : Error retrieving release version : " + e.getMessage( ), e );
+                    "LuteceTools - MavenRepoService : Error retrieving components list : " + e.getMessage( ), e );
         }
 
         return list;
@@ -344,7 +654,7 @@ public final class MavenRepoService
     }
 
     /**
-     * Gets a component
+     * Gets a component. With bFetch, a missing or reloaded component is fetched before being returned.
      * 
      * @param strArtifactId
      * @param bFetch
@@ -354,7 +664,6 @@ public final class MavenRepoService
      */
     public Component getComponent( String strArtifactId, boolean bFetch, boolean bForceReload, String strType )
     {
-
         Component component = bForceReload ? null : ComponentService.load( strArtifactId );
 
         if ( component == null )
@@ -362,24 +671,198 @@ public final class MavenRepoService
             if ( bFetch )
             {
                 StringBuilder sbLogs = new StringBuilder( );
-                component = fetchComponent( strArtifactId, strType, sbLogs );
-                ComponentService.save( component );
+                try
+                {
+                    component = fetchComponent( strArtifactId, strType, null, sbLogs );
+                    ComponentService.save( component );
+                }
+                catch( RuntimeException e )
+                {
+                    // Not saved : the fetch is done again by the next request
+                    AppLogService.error( "LuteceTools - MavenRepoService : Error fetching component " + strArtifactId + " : " + e.getMessage( ) );
+                    component = getNonAvailableComponent( strArtifactId );
+                }
             }
             else
             {
-                component = new Component( );
-                component.setArtifactId( strArtifactId );
-                component.set( Component.CORE_VERSION, NON_AVAILABLE );
-                component.set( Component.PARENT_POM_VERSION, NON_AVAILABLE );
-                component.set( Component.SCM_URL, NON_AVAILABLE );
-                component.set( Component.SNAPSHOT_VERSION, NON_AVAILABLE );
-                component.set( Component.SNAPSHOT_CORE_VERSION, NON_AVAILABLE );
-                component.set( Component.SNAPSHOT_PARENT_POM_VERSION, NON_AVAILABLE );
-                component.set( Component.JIRA_KEY, NON_AVAILABLE );
-                component.setVersion( NON_AVAILABLE );
-                component.set( Component.IS_GIT_REPO, false );
+                component = getNonAvailableComponent( strArtifactId );
+            }
+        }
+
+        return component;
+    }
+
+    /**
+     * Gets a component without waiting for its fetch when it is cached : an outdated component (or any cached component if a reload is forced) is
+     * returned at once, marked with its age and as stale, while it is fetched in the background. Only a missing component is waited for, up to
+     * lutecetools.staleWhileRevalidate.maxWait. Used by the REST API : the fetch is blocking if lutecetools.staleWhileRevalidate.enabled is false.
+     * 
+     * @param strArtifactId The artifact ID
+     * @param bForceReload true to fetch the component again
+     * @param strType the component type
+     * @return The component
+     */
+    public Component getComponentStaleWhileRevalidate( String strArtifactId, boolean bForceReload, String strType )
+    {
+        if ( !SWR_ENABLED )
+        {
+            return getComponent( strArtifactId, true, bForceReload, strType );
+        }
+
+        Component cached = ComponentService.load( strArtifactId );
+
+        if ( ( cached != null ) && !bForceReload && !shouldBeUpdated( cached ) )
+        {
+            return cached;
+        }
+
+        // A forced reload doesn't reuse the infos of the cached component
+        CompletableFuture<Component> future = refreshInBackground( strArtifactId, strType, bForceReload ? null : cached );
+
+        if ( cached != null )
+        {
+            return getStaleComponent( cached );
+        }
+
+        try
+        {
+            return future.get( SWR_MAX_WAIT, TimeUnit.MILLISECONDS );
+        }
+        catch( TimeoutException | ExecutionException e )
+        {
+            AppLogService.info( "LuteceTools - MavenRepoService : Component " + strArtifactId + " not available yet : " + e.getMessage( ) );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        Component component = getNonAvailableComponent( strArtifactId );
+        component.set( CACHE_STALE, true );
+        return component;
+    }
+
+    /**
+     * Fetch a component in the background. The concurrent requests for a same component share the fetch in progress.
+     * 
+     * @param strArtifactId The artifact ID
+     * @param strType the component type
+     * @param previous The previous version of the component used to skip unchanged fillers (may be null)
+     * @return The future component
+     */
+    private CompletableFuture<Component> refreshInBackground( String strArtifactId, String strType, Component previous )
+    {
+        CompletableFuture<Component> created = new CompletableFuture<>( );
+        CompletableFuture<Component> future = _mapRefreshes.putIfAbsent( strArtifactId, created );
+        if ( future != null )
+        {
+            return future;
+        }
+
+        getRefreshExecutor( ).execute( ( ) -> {
+            StringBuilder sbLogs = new StringBuilder( );
+            try
+            {
+                Component component = fetchComponent( strArtifactId, strType, previous, sbLogs );
+                ComponentService.save( component );
+                created.complete( component );
+            }
+            catch( RuntimeException e )
+            {
+                sbLogs.append( "\n*** ERROR *** Error updating component " ).append( strArtifactId ).append( " : " ).append( e.getMessage( ) );
+                created.completeExceptionally( e );
+            }
+            finally
+            {
+                // Removed once completed : a later request starts a new fetch
+                _mapRefreshes.remove( strArtifactId, created );
+                _queueLogs.add( sbLogs.toString( ) );
             }
+        } );
+        return created;
+    }
+
+    /**
+     * Gets a copy of a cached component marked with its age and as stale
+     * 
+     * @param cached The cached component
+     * @return The marked copy, or the cached component if it can't be copied
+     */
+    private static Component getStaleComponent( Component cached )
+    {
+        try
+        {
+            Component component = ComponentService.copy( cached );
+            component.set( CACHE_AGE, new Date( ).getTime( ) - cached.getLastUpdate( ) );
+            component.set( CACHE_STALE, true );
+            return component;
         }
+        catch( IOException e )
+        {
+            AppLogService.error( "LuteceTools - MavenRepoService : Unable to copy component " + cached.getArtifactId( ) + " : " + e.getMessage( ) );
+            return cached;
+        }
+    }
+
+    /**
+     * Gets the executor of the background fetches, created on first use
+     * 
+     * @return The executor
+     */
+    private static synchronized ExecutorService getRefreshExecutor( )
+    {
+        if ( _refreshExecutor == null )
+        {
+            _refreshExecutor = ExecutorFactory.newExecutor( "lutecetools-refresh-", SWR_THREADS );
+        }
+        return _refreshExecutor;
+    }
+
+    /**
+     * Stop the background fetches and the cache updates in progress. The pending requests of a background fetch are cancelled.
+     * 
+     * @param lTimeout The timeout in ms to await the end of the running tasks of each executor
+     */
+    public static void shutdown( long lTimeout )
+    {
+        ExecutorService refreshExecutor;
+        synchronized( MavenRepoService.class )
+        {
+            refreshExecutor = _refreshExecutor;
+            _refreshExecutor = null;
+        }
+        if ( refreshExecutor != null )
+        {
+            ExecutorFactory.shutdown( refreshExecutor, lTimeout );
+        }
+        for ( ExecutorService executor : _setUpdateExecutors )
+        {
+            ExecutorFactory.shutdown( executor, lTimeout );
+        }
+        for ( CompletableFuture<Component> future : _mapRefreshes.values( ) )
+        {
+            future.cancel( false );
+        }
+    }
+
+    /**
+     * Gets a component whose infos are not available
+     * 
+     * @param strArtifactId The artifact ID
+     * @return The component
+     */
+    private static Component getNonAvailableComponent( String strArtifactId )
+    {
+        Component component = new Component( );
+        component.setArtifactId( strArtifactId );
+        component.set( Component.CORE_VERSION, NON_AVAILABLE );
+        component.set( Component.PARENT_POM_VERSION, NON_AVAILABLE );
+        component.set( Component.SCM_URL, NON_AVAILABLE );
+        component.set( Component.SNAPSHOT_VERSION, NON_AVAILABLE );
+        component.set( Component.SNAPSHOT_CORE_VERSION, NON_AVAILABLE );
+        component.set( Component.SNAPSHOT_PARENT_POM_VERSION, NON_AVAILABLE );
+        component.set( Component.JIRA_KEY, NON_AVAILABLE );
+        component.setVersion( NON_AVAILABLE );
+        component.set( Component.IS_GIT_REPO, false );
 
         return component;
     }
@@ -390,10 +873,25 @@ public final class MavenRepoService
      * @param strArtifactId The Artifact ID
      * 
      * @param strType       the component type
+     * @param previous      The previous version of the component used to skip unchanged fillers (may be null)
+     * @param sbLogs        Logs
+     * @return The component
+     * @throws fr.paris.lutece.portal.service.util.AppException if the Maven infos can't be fetched : the component must not be saved
+     */
+    private Component fetchComponent( String strArtifactId, String strType, Component previous, StringBuilder sbLogs )
+    {
+        return EnrichmentPipeline.fetch( strArtifactId, sb -> fetchMavenInfos( strArtifactId, strType, sb ), _listComponentFiller, previous, sbLogs );
+    }
+
+    /**
+     * Fetch the versions and the POM infos of a component from the Maven repository
+     * 
+     * @param strArtifactId The Artifact ID
+     * @param strType       the component type
      * @param sbLogs        Logs
      * @return The component
      */
-    private Component fetchComponent( String strArtifactId, String strType, StringBuilder sbLogs )
+    private Component fetchMavenInfos( String strArtifactId, String strType, StringBuilder sbLogs )
     {
         Component component = new Component( );
         component.setArtifactId( strArtifactId );
@@ -422,10 +920,7 @@ public final class MavenRepoService
         sbLogs.append( "\nLutece Tools - Fetching Maven Info for '" ).append( component.getArtifactId( ) )
                 .append( "' - duration : " ).append( lTime2 - lTime1 ).append( "ms." );
 
-        for ( ComponentInfoFiller filler : _listComponentFiller )
-        {
-            filler.fill( component, sbLogs );
-        }
+        ChangeDetector.setPomFingerprint( component );
 
         return component;
     }
@@ -466,9 +961,7 @@ public final class MavenRepoService
             
             String strPomUrl = sbPomUrl.toString( ).replace(PATH_MAVEN_REPO_TREE, PATH_MAVEN_REPO_FILE);
             
-            getPomInfos( component, strPomUrl, false, sbLogs );
-
-            PomService.instance( ).getLuteceDependencies( component, sbPomUrl.toString( ), false, sbLogs );
+            PomService.instance( ).getPomInfos( component, strPomUrl, false, sbLogs );
         }
         
         // Get SNAPSHOT pom url
@@ -476,8 +969,7 @@ public final class MavenRepoService
 
         if ( strSnapshotPomUrl != null )
         {
-            getPomInfos( component, strSnapshotPomUrl, true, sbLogs );
-            PomService.instance( ).getLuteceDependencies( component, strSnapshotPomUrl, true, sbLogs );
+            PomService.instance( ).getPomInfos( component, strSnapshotPomUrl, true, sbLogs );
         }
         else
         {
@@ -485,52 +977,6 @@ public final class MavenRepoService
         }
     }
 
-    /**
-     * Retreive POM infos for a given component
-     * 
-     * @param component The component
-     * @param strPomUrl The POM URL
-     * @param bSnapshot false for release, true for snapshot
-     * @param sbLogs    Logs
-     */
-    private void getPomInfos( Component component, String strPomUrl, boolean bSnapshot, StringBuilder sbLogs )
-    {
-        try
-        {
-            HttpAccess httpAccess = new HttpAccess( );
-            String strPom = httpAccess.doGet( strPomUrl );
-            SAXParserFactory saxParserFactory = SAXParserFactory.newInstance( );
-            SAXParser saxParser = saxParserFactory.newSAXParser( );
-            SaxPomHandler handler = new SaxPomHandler( );
-            saxParser.parse( new InputSource( new StringReader( strPom ) ), handler );
-
-            if ( bSnapshot )
-            {
-                component.set( Component.SNAPSHOT_PARENT_POM_VERSION, handler.getParentPomVersion( ) );
-                component.set( Component.SNAPSHOT_CORE_VERSION, handler.getCoreVersion( ) );
-                component.set( Component.SNAPSHOT_SCM_URL, handler.getScmUrl( ) );
-            }
-            else
-            {
-                component.set( Component.PARENT_POM_VERSION, handler.getParentPomVersion( ) );
-                component.set( Component.CORE_VERSION, handler.getCoreVersion( ) );
-                component.set( Component.SCM_URL, handler.getScmUrl( ) );
-            }
-            component.set( Component.SCM_CONNECTION, handler.getScmConnection( ) );
-            component.set( Component.SCM_DEVELOPER_CONNECTION, handler.getScmDeveloperConnection( ) );
-            component.set( Component.JIRA_KEY, handler.getJiraKey( ) );
-        }
-        catch ( HttpAccessException e )
-        {
-            sbLogs.append( "\n*** ERROR *** Error reading pom for component " ).append( component.getArtifactId( ) )
-                    .append( EXCEPTION_MESSAGE ).append( e.getMessage( ) );
-        }
-        catch ( IOException | SAXException | ParserConfigurationException e )
-        {
-            AppLogService.error( EXCEPTION_MESSAGE + e.getMessage( ), e );
-        }
-    }
-
     /**
      * Retrieve the POM URL for the latest snapshot
      * 
@@ -558,21 +1004,15 @@ public final class MavenRepoService
         	strSnapshotsDirUrl = getAvailableUrl(PROPERTIES_SNAPSHOTS_PATH, URL_MAVEN_PATH_PLUGINS, component.getArtifactId( ));            
         }
 
-        try
+        if ( isMetadataResolver( strSnapshotsDirUrl ) )
         {
-            HttpAccess httpAccess = new HttpAccess( );
-            List<String> listVersions = new ArrayList<>( );
-            
-            String strHtml = httpAccess.doGet( strSnapshotsDirUrl );
-            List<String> listElement = getAnchorsList( strHtml );
+            return getSnapshotPomUrlFromMetadata( component, strSnapshotsDirUrl, sbLogs );
+        }
 
-            for ( String strAnchor : listElement )
-            {
-                if ( strAnchor.matches( "^[\\d].*" ) )
-                {
-                    listVersions.add( strAnchor );
-                }
-            }
+        try
+        {
+            String strHtml = getContent( strSnapshotsDirUrl );
+            List<String> listVersions = ListingParser.getVersionsList( strHtml );
 
             if ( listVersions.isEmpty( ) )
             {
@@ -586,8 +1026,8 @@ public final class MavenRepoService
             String strLastSnapshotDirUrl = strSnapshotsDirUrl + "/" + strSnapshotVersion;
             strPomUrl = strLastSnapshotDirUrl;
             
-            strHtml = httpAccess.doGet( strLastSnapshotDirUrl );
-            listElement = getAnchorsList( strHtml );
+            strHtml = doGet( strLastSnapshotDirUrl );
+            List<String> listElement = ListingParser.getAnchorsList( strHtml );
             String strPomFileName = getPomFileName(listElement);
             
             if ( strPomFileName == null || strPomFileName.isEmpty() )
@@ -608,8 +1048,8 @@ public final class MavenRepoService
             	
             	strLastSnapshotDirUrl = strLastSnapshotDirUrl + "/" + strLastDirname;
             	
-                strHtml = httpAccess.doGet( strLastSnapshotDirUrl );
-                listElement = getAnchorsList( strHtml );                
+                strHtml = doGet( strLastSnapshotDirUrl );
+                listElement = ListingParser.getAnchorsList( strHtml );                
                 strPomFileName = getPomFileName(listElement);
             }
             
@@ -623,6 +1063,46 @@ public final class MavenRepoService
         return strPomUrl;
     }
     
+    /**
+     * Retrieve the POM URL for the latest snapshot using maven-metadata.xml files
+     * 
+     * @param component The component
+     * @param strSnapshotsDirUrl The browse URL of the artifact in the snapshots repository
+     * @param sbLogs    The logs
+     * @return The URL
+     */
+    private String getSnapshotPomUrlFromMetadata( Component component, String strSnapshotsDirUrl, StringBuilder sbLogs )
+    {
+        try
+        {
+            String strSnapshotVersion = getLatestVersion( getMetadata( strSnapshotsDirUrl ) );
+
+            if ( strSnapshotVersion == null )
+            {
+                sbLogs.append( "\n*** ERROR ***  Error retrieving snapshot pom URL : no versions found" );
+                return null;
+            }
+            component.set( Component.SNAPSHOT_VERSION, strSnapshotVersion );
+
+            String strLastSnapshotDirUrl = strSnapshotsDirUrl + ( strSnapshotsDirUrl.endsWith( "/" ) ? "" : "/" ) + strSnapshotVersion;
+            String strPomVersion = getMetadata( strLastSnapshotDirUrl ).getPomSnapshotValue( strSnapshotVersion );
+
+            if ( strPomVersion == null )
+            {
+                strPomVersion = strSnapshotVersion;
+            }
+
+            return strLastSnapshotDirUrl.replace( PATH_MAVEN_REPO_TREE, PATH_MAVEN_REPO_FILE ) + "/" + component.getArtifactId( ) + "-"
+                    + strPomVersion + ".pom";
+        }
+        catch ( HttpAccessException e )
+        {
+            sbLogs.append( "\n*** ERROR ***  Error retrieving snapshot pom URL : " ).append( e.getMessage( ) );
+        }
+
+        return null;
+    }
+
     private String getPomFileName(List<String> listElement)
     {
     	String strPomFileName = null;
@@ -637,53 +1117,16 @@ public final class MavenRepoService
     	return strPomFileName;
     }
     
-   
     /**
-     * Gets anchor list using regexp
+     * Do a conditional GET request holding a permit for the target host
      * 
-     * @param strHtml The HTML code
-     * @return The list
+     * @param strUrl The URL
+     * @return The response body
+     * @throws HttpAccessException if an error occurs
      */
-    List<String> getAnchorsList2( String strHtml )
+    private String doGet( String strUrl ) throws HttpAccessException
     {
-        List<String> list = new ArrayList<>( );
-        String strPattern = "<a[^>]*>(.+?)</a>";
-        Pattern pattern = Pattern.compile( strPattern, Pattern.DOTALL );
-        Matcher matcher = pattern.matcher( strHtml );
-
-        while ( matcher.find( ) )
-        {
-            list.add( strHtml.substring( matcher.start( ), matcher.end( ) ) );
-        }
-
-        return list;
-    }
-
-    /**
-     * Gets anchor list using more optimized method
-     * 
-     * @param strHtml The HTML code
-     * @return The list
-     */
-    private List<String> getAnchorsList( String strHtml )
-    {
-        List<String> list = new ArrayList<>( );
-        String strCurrent = strHtml;
-
-        int nPos = strCurrent.indexOf( "<a " );
-
-        while ( nPos > 0 )
-        {
-            strCurrent = strCurrent.substring( nPos );
-
-            int nEndTag = strCurrent.indexOf( ">" );
-            int nTagEnd = strCurrent.indexOf( "</a>" );
-            list.add( strCurrent.substring( nEndTag + 1, nTagEnd ).replaceAll( "\\/", "" ) );
-            strCurrent = strCurrent.substring( nTagEnd + 4 );
-            nPos = strCurrent.indexOf( "<a " );
-        }
-
-        return list;
+        return ConditionalHttpAccess.doGet( strUrl );
     }
 
     private String getMavenRepoDirectoryType( String strArtifactId, String strComponentType )
@@ -726,38 +1169,116 @@ public final class MavenRepoService
     }
 
     /**
-     * Update the cache (reset and rebuild)
+     * Update the cache (reset and rebuild). Components are fetched in parallel using a pool of
+     * lutecetools.update.threads workers, or a virtual thread per component in the virtual threads mode.
      */
     public void updateCache( )
     {
         GitHubService.updateGitHubRepositoriesList( );
+        GitLabService.updateGitLabRepositoriesList( );
 
-        List<String> listComponents = getComponentsListFromRepository( );
+        List<String> listComponents = refreshComponentsList( ).getArtifactIds( );
+        List<Callable<Void>> listTasks = new ArrayList<>( );
 
         for ( String strArtifactId : listComponents )
+        {
+            listTasks.add( ( ) -> {
+                updateComponent( strArtifactId );
+                return null;
+            } );
+        }
+
+        ExecutorService executor = ExecutorFactory.newExecutor( "lutecetools-update-", UPDATE_THREADS );
+        _setUpdateExecutors.add( executor );
+        try
+        {
+            for ( Future<Void> future : executor.invokeAll( listTasks ) )
+            {
+                future.get( );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            AppLogService.error( "LuteceTools - MavenRepoService : Cache update interrupted" );
+            Thread.currentThread( ).interrupt( );
+        }
+        catch ( ExecutionException e )
+        {
+            AppLogService.error( "LuteceTools - MavenRepoService : Error updating cache : " + e.getMessage( ), e );
+        }
+        finally
+        {
+            _setUpdateExecutors.remove( executor );
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Update a component of the cache if needed
+     * 
+     * @param strArtifactId The Artifact ID
+     */
+    private void updateComponent( String strArtifactId )
+    {
+        StringBuilder sbLogs = new StringBuilder( );
+
+        try
         {
             Component component = ComponentService.load( strArtifactId );
 
             if ( shouldBeUpdated( component ) )
             {
-                component = fetchComponent( strArtifactId, null, _sbLogs );
+                component = fetchComponent( strArtifactId, null, component, sbLogs );
                 ComponentService.save( component );
             }
             else
             {
-                _sbLogs.append( "\nComponent " ).append( strArtifactId ).append( " is up to date" );
+                sbLogs.append( "\nComponent " ).append( strArtifactId ).append( " is up to date" );
             }
         }
+        catch ( RuntimeException e )
+        {
+            sbLogs.append( "\n*** ERROR *** Error updating component " ).append( strArtifactId ).append( " : " )
+                    .append( e.getMessage( ) );
+        }
+        finally
+        {
+            _queueLogs.add( sbLogs.toString( ) );
+        }
     }
 
+    /**
+     * Refresh the infos of the fillers that have their own refresh interval
+     * 
+     * @param sbLogs Logs
+     * @return The number of refreshed slices
+     */
+    public int refreshFillerSlices( StringBuilder sbLogs )
+    {
+        return FillerScheduler.refreshSlices( getComponentsListFromRepository( ), _listComponentFiller, sbLogs );
+    }
+
+    /**
+     * Gets the logs of the cache updates
+     * 
+     * @return The logs
+     */
     public String getLogs( )
     {
-        return _sbLogs.toString( );
+        StringBuilder sbLogs = new StringBuilder( );
+        for ( String strLogs : _queueLogs )
+        {
+            sbLogs.append( strLogs );
+        }
+        return sbLogs.toString( );
     }
 
-    public static synchronized void clearLogs( )
+    /**
+     * Clear the logs
+     */
+    public static void clearLogs( )
     {
-        _sbLogs = new StringBuilder( );
+        _queueLogs.clear( );
     }
 
     /**
@@ -40,21 +40,12 @@ package fr.paris.lutece.plugins.lutecetools.service;
 
 import fr.paris.lutece.plugins.lutecetools.business.Component;
 import fr.paris.lutece.portal.service.util.AppLogService;
-import fr.paris.lutece.util.httpaccess.HttpAccess;
 import fr.paris.lutece.util.httpaccess.HttpAccessException;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
@@ -65,14 +56,6 @@ import org.xml.sax.SAXException;
 public final class PomService
 {
 
-    private static final String TAG_DEPENDENCY = "dependency";
-    private static final String TAG_DEPENDENCY_GROUPID = "groupId";
-    private static final String TAG_DEPENDENCY_ARTIFACT_ID = "artifactId";
-    private static final String TAG_DEPENDENCY_VERSION = "version";
-    private static final String TAG_DEPENDENCY_TYPE = "type";
-
-    private static final String CONSTANT_LUTECE_GROUP = "fr.paris.lutece";
-
     private static final String EXCEPTION_MESSAGE = "LuteceTools - PomService : Error retrieving Pom tags : ";
 
     private static PomService _singleton;
@@ -100,81 +83,39 @@ public final class PomService
     }
 
     /**
-     * Retreive SITE infos for a given component
+     * Retreive POM infos for a given component. The POM is fetched once and parsed in a single SAX pass that extracts the header infos (parent POM, core
+     * version, SCM, Jira key) and the Lutece dependencies.
      * 
      * @param component The component
-     * @param strPomUrl
+     * @param strPomUrl The POM file URL
+     * @param bSnapshot false for release, true for snapshot
      * @param sbLogs    Logs
      */
-    public void getLuteceDependencies( Component component, String strPomUrl, boolean bSnapshot, StringBuilder sbLogs )
+    public void getPomInfos( Component component, String strPomUrl, boolean bSnapshot, StringBuilder sbLogs )
     {
         try
         {
-            HttpAccess httpAccess = new HttpAccess( );
-            String strPom = httpAccess.doGet( strPomUrl );
-
-            DocumentBuilderFactory documentBuilder = DocumentBuilderFactory.newInstance( );
-            InputStream is = new ByteArrayInputStream( strPom.getBytes( ) ); // use inputstream to ignore BOM when
-                                                                             // parsing
-
-            DocumentBuilder builder = documentBuilder.newDocumentBuilder( );
-            Document document = builder.parse( new InputSource( is ) );
-            Element root = document.getDocumentElement( );
-
-            List<HashMap<String, String>> dependencyList = new ArrayList<>( );
+            // the response stream is parsed directly (an input stream is used to ignore BOM when parsing)
+            SaxPomHandler handler = ConditionalHttpAccess.doGet( strPomUrl, null, this::parse );
 
-            NodeList nodeDependencyList = root.getElementsByTagName( TAG_DEPENDENCY );
-            for ( int i = 0; i < nodeDependencyList.getLength( ); i++ )
+            if ( bSnapshot )
             {
-                Element elmt = (Element) nodeDependencyList.item( i );
-                NodeList groupList = elmt.getElementsByTagName( TAG_DEPENDENCY_GROUPID );
-                String strGroupId = null;
-                if ( groupList != null && groupList.getLength( ) > 0 )
-                {
-                    Element groupElement = (Element) groupList.item( 0 );
-                    strGroupId = groupElement.getTextContent( );
-                }
-                if ( strGroupId == null || !strGroupId.startsWith( CONSTANT_LUTECE_GROUP ) )
-                {
-                    continue;
-                }
-                NodeList artifactIdList = elmt.getElementsByTagName( TAG_DEPENDENCY_ARTIFACT_ID );
-                String strArtifactId = null;
-                if ( artifactIdList != null && artifactIdList.getLength( ) > 0 )
-                {
-                    Element artifactElement = (Element) artifactIdList.item( 0 );
-                    strArtifactId = artifactElement.getTextContent( );
-                }
-
-                NodeList versionList = elmt.getElementsByTagName( TAG_DEPENDENCY_VERSION );
-                String strVersion = null;
-                if ( versionList != null && versionList.getLength( ) > 0 )
-                {
-                    Element versionElement = (Element) versionList.item( 0 );
-                    strVersion = versionElement.getTextContent( );
-                }
-
-                NodeList typeList = elmt.getElementsByTagName( TAG_DEPENDENCY_TYPE );
-                String strType = null;
-                if ( typeList != null && typeList.getLength( ) > 0 )
-                {
-                    Element typeElement = (Element) typeList.item( 0 );
-                    strType = typeElement.getTextContent( );
-                }
-
-                HashMap<String, String> dependencyMap = new HashMap<>( );
-                dependencyMap.put( TAG_DEPENDENCY_GROUPID, strGroupId );
-                dependencyMap.put( TAG_DEPENDENCY_ARTIFACT_ID, strArtifactId );
-                dependencyMap.put( TAG_DEPENDENCY_VERSION, strVersion );
-                dependencyMap.put( TAG_DEPENDENCY_TYPE, strType );
-
-                dependencyList.add( dependencyMap );
+                component.set( Component.SNAPSHOT_PARENT_POM_VERSION, handler.getParentPomVersion( ) );
+                component.set( Component.SNAPSHOT_CORE_VERSION, handler.getCoreVersion( ) );
+                component.set( Component.SNAPSHOT_SCM_URL, handler.getScmUrl( ) );
             }
-
-            component.set( ( bSnapshot ? "SNAPSHOT_" : "" ) + Component.DEPENDENCY_LIST, dependencyList );
-
+            else
+            {
+                component.set( Component.PARENT_POM_VERSION, handler.getParentPomVersion( ) );
+                component.set( Component.CORE_VERSION, handler.getCoreVersion( ) );
+                component.set( Component.SCM_URL, handler.getScmUrl( ) );
+            }
+            component.set( Component.SCM_CONNECTION, handler.getScmConnection( ) );
+            component.set( Component.SCM_DEVELOPER_CONNECTION, handler.getScmDeveloperConnection( ) );
+            component.set( Component.JIRA_KEY, handler.getJiraKey( ) );
+            component.set( ( bSnapshot ? "SNAPSHOT_" : "" ) + Component.DEPENDENCY_LIST, handler.getLuteceDependencies( ) );
         }
-        catch ( IOException | ParserConfigurationException | DOMException | SAXException e )
+        catch ( IOException | ParserConfigurationException | SAXException e )
         {
             AppLogService.error( EXCEPTION_MESSAGE + component.getArtifactId( ) + " : " + e.getMessage( ), e );
         }
@@ -185,4 +126,22 @@ public final class PomService
         }
     }
 
+    /**
+     * Parse a POM
+     * 
+     * @param is The POM input stream (an input stream is used to ignore BOM when parsing)
+     * @return The handler holding the POM infos
+     * @throws ParserConfigurationException if an error occurs
+     * @throws SAXException if an error occurs
+     * @throws IOException if an error occurs
+     */
+    SaxPomHandler parse( InputStream is ) throws ParserConfigurationException, SAXException, IOException
+    {
+        SAXParser saxParser = SAXParserFactory.newInstance( ).newSAXParser( );
+        SaxPomHandler handler = new SaxPomHandler( );
+        saxParser.parse( new InputSource( is ), handler );
+
+        return handler;
+    }
+
 }
@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Paces the requests sent to the rate limited services (GitHub, Jira, Sonar). Each service has a token bucket (rate and burst set by properties)
+ * and the budget reported by the server (X-RateLimit-Remaining / X-RateLimit-Reset headers, Retry-After, GraphQL rateLimit). When the budget is
+ * exhausted, the work is deferred until the reset of the window instead of failing : deferrable (low priority) work also leaves a reserve of
+ * requests to the cache update.
+ */
+public final class RateLimiter
+{
+    public static final String SERVICE_GITHUB = "github";
+    public static final String SERVICE_GITHUB_GRAPHQL = "github-graphql";
+    public static final String SERVICE_JIRA = "jira";
+    public static final String SERVICE_SONAR = "sonar";
+
+    private static final String PROPERTY_PREFIX = "lutecetools.rateLimit.";
+    private static final String PROPERTY_SUFFIX_RATE = ".rate";
+    private static final String PROPERTY_SUFFIX_BURST = ".burst";
+    private static final String PROPERTY_SUFFIX_RESERVE = ".reserve";
+    private static final String PROPERTY_MAX_WAIT = "lutecetools.rateLimit.maxWait";
+    private static final long MAX_WAIT = AppPropertiesService.getPropertyLong( PROPERTY_MAX_WAIT, 30000L );
+    private static final int DEFAULT_BURST = 100;
+
+    private static final String HEADER_LIMIT = "X-RateLimit-Limit";
+    private static final String HEADER_REMAINING = "X-RateLimit-Remaining";
+    private static final String HEADER_RESET = "X-RateLimit-Reset";
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    private static final long EPOCH_SECONDS_MAX = 100000000000L;
+
+    private static final Map<String, Budget> _mapBudgets = new ConcurrentHashMap<>( );
+
+    /**
+     * Private constructor
+     */
+    private RateLimiter( )
+    {
+    }
+
+    /**
+     * Acquire the budget of a request. Waits for the token bucket if needed. Returns false when the work must be deferred : the server budget is
+     * exhausted until its reset (below the reserve for a deferrable work), or the bucket wait would exceed the max wait for a deferrable work.
+     *
+     * @param strService
+     *         The service key (no limit if null)
+     * @param nCost
+     *         The number of requests
+     * @param bDeferrable
+     *         true for a low priority work
+     * @return true if the requests can be sent, false if the work must be deferred
+     */
+    public static boolean acquire( String strService, int nCost, boolean bDeferrable )
+    {
+        if ( strService == null )
+        {
+            return true;
+        }
+        long lWait = getBudget( strService ).reserve( nCost, bDeferrable );
+        if ( lWait < 0 )
+        {
+            return false;
+        }
+        if ( lWait > 0 )
+        {
+            try
+            {
+                TimeUnit.MILLISECONDS.sleep( lWait );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record the budget reported by a server
+     *
+     * @param strService
+     *         The service key
+     * @param nLimit
+     *         The number of requests of the window (-1 if unknown)
+     * @param nRemaining
+     *         The remaining requests
+     * @param lResetAt
+     *         The reset time of the window in ms
+     */
+    public static void update( String strService, int nLimit, int nRemaining, long lResetAt )
+    {
+        getBudget( strService ).update( nLimit, nRemaining, lResetAt );
+    }
+
+    /**
+     * Record that a server rejected a request because of its rate limit
+     *
+     * @param strService
+     *         The service key
+     * @param lResetAt
+     *         The time the requests can be sent again in ms
+     */
+    public static void exhausted( String strService, long lResetAt )
+    {
+        AppLogService.info( "LuteceTools : " + strService + " rate limit exhausted until " + Instant.ofEpochMilli( lResetAt ) );
+        getBudget( strService ).update( -1, 0, lResetAt );
+    }
+
+    /**
+     * Record the budget reported by the headers of a response : X-RateLimit-Limit, X-RateLimit-Remaining, X-RateLimit-Reset (epoch seconds or
+     * ISO-8601) and Retry-After (seconds)
+     *
+     * @param strService
+     *         The service key
+     * @param mapHeaders
+     *         The response headers (may be null)
+     */
+    public static void updateFromHeaders( String strService, Map<String, String> mapHeaders )
+    {
+        if ( ( mapHeaders == null ) || mapHeaders.isEmpty( ) )
+        {
+            return;
+        }
+        Map<String, String> headers = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+        headers.putAll( mapHeaders );
+
+        long lRetryAfter = parseLong( headers.get( HEADER_RETRY_AFTER ), -1L );
+        if ( lRetryAfter >= 0 )
+        {
+            exhausted( strService, System.currentTimeMillis( ) + TimeUnit.SECONDS.toMillis( lRetryAfter ) );
+            return;
+        }
+        long lRemaining = parseLong( headers.get( HEADER_REMAINING ), -1L );
+        if ( lRemaining >= 0 )
+        {
+            update( strService, (int) parseLong( headers.get( HEADER_LIMIT ), -1L ), (int) lRemaining, parseResetTime( headers.get( HEADER_RESET ) ) );
+        }
+    }
+
+    /**
+     * Gets the status of the budgets of all the services
+     *
+     * @return The status by service
+     */
+    public static Map<String, Map<String, Object>> getStatus( )
+    {
+        Map<String, Map<String, Object>> mapStatus = new TreeMap<>( );
+        for ( Map.Entry<String, Budget> entry : _mapBudgets.entrySet( ) )
+        {
+            mapStatus.put( entry.getKey( ), entry.getValue( ).getStatus( ) );
+        }
+        return mapStatus;
+    }
+
+    /**
+     * Gets the budget of a service
+     *
+     * @param strService
+     *         The service key
+     * @return The budget
+     */
+    private static Budget getBudget( String strService )
+    {
+        return _mapBudgets.computeIfAbsent( strService, Budget::new );
+    }
+
+    /**
+     * Parse the reset time of a window
+     *
+     * @param strReset
+     *         The header value : epoch seconds, epoch ms or ISO-8601 date
+     * @return The time in ms or 0 if unknown
+     */
+    private static long parseResetTime( String strReset )
+    {
+        if ( strReset == null )
+        {
+            return 0L;
+        }
+        long lReset = parseLong( strReset, -1L );
+        if ( lReset >= 0 )
+        {
+            return ( lReset < EPOCH_SECONDS_MAX ) ? TimeUnit.SECONDS.toMillis( lReset ) : lReset;
+        }
+        try
+        {
+            return Instant.parse( strReset.trim( ) ).toEpochMilli( );
+        }
+        catch( DateTimeParseException e )
+        {
+            return 0L;
+        }
+    }
+
+    /**
+     * Parse a long
+     *
+     * @param strValue
+     *         The value (may be null)
+     * @param lDefault
+     *         The default value
+     * @return The long
+     */
+    private static long parseLong( String strValue, long lDefault )
+    {
+        if ( strValue == null )
+        {
+            return lDefault;
+        }
+        try
+        {
+            return Long.parseLong( strValue.trim( ) );
+        }
+        catch( NumberFormatException e )
+        {
+            return lDefault;
+        }
+    }
+
+    /**
+     * Token bucket and server budget of a service
+     */
+    private static final class Budget
+    {
+        private final double _dRate;
+        private final int _nBurst;
+        private final int _nReserve;
+        private double _dTokens;
+        private long _lLastRefill = System.currentTimeMillis( );
+        private int _nLimit = -1;
+        private int _nRemaining = -1;
+        private long _lResetAt;
+        private long _lDeferred;
+        private long _lWaited;
+
+        /**
+         * Constructor
+         *
+         * @param strService
+         *         The service key
+         */
+        Budget( String strService )
+        {
+            String strPrefix = PROPERTY_PREFIX + strService;
+            _dRate = Double.parseDouble( AppPropertiesService.getProperty( strPrefix + PROPERTY_SUFFIX_RATE, "0" ) );
+            _nBurst = AppPropertiesService.getPropertyInt( strPrefix + PROPERTY_SUFFIX_BURST, DEFAULT_BURST );
+            _nReserve = AppPropertiesService.getPropertyInt( strPrefix + PROPERTY_SUFFIX_RESERVE, 0 );
+            _dTokens = _nBurst;
+        }
+
+        /**
+         * Reserve the tokens of a request
+         *
+         * @param nCost
+         *         The number of requests
+         * @param bDeferrable
+         *         true for a low priority work
+         * @return The time to wait before sending the requests in ms, or -1 if the work must be deferred
+         */
+        synchronized long reserve( int nCost, boolean bDeferrable )
+        {
+            long lNow = System.currentTimeMillis( );
+            if ( ( _nRemaining >= 0 ) && ( lNow >= _lResetAt ) )
+            {
+                // new window : the server budget is unknown until the next response
+                _nRemaining = -1;
+            }
+            if ( ( _nRemaining >= 0 ) && ( _nRemaining - nCost < ( bDeferrable ? _nReserve : 0 ) ) )
+            {
+                _lDeferred++;
+                return -1L;
+            }
+            long lWait = 0L;
+            if ( _dRate > 0 )
+            {
+                _dTokens = Math.min( _nBurst, _dTokens + ( lNow - _lLastRefill ) * _dRate / 1000 );
+                _lLastRefill = lNow;
+                lWait = ( _dTokens >= nCost ) ? 0L : (long) Math.ceil( ( nCost - _dTokens ) * 1000 / _dRate );
+                if ( bDeferrable && ( lWait > MAX_WAIT ) )
+                {
+                    _lDeferred++;
+                    return -1L;
+                }
+                _dTokens -= nCost;
+            }
+            if ( _nRemaining >= 0 )
+            {
+                // estimated until the next response updates it
+                _nRemaining -= nCost;
+            }
+            _lWaited += lWait;
+            return lWait;
+        }
+
+        /**
+         * Record the budget reported by the server
+         *
+         * @param nLimit
+         *         The number of requests of the window (-1 if unknown)
+         * @param nRemaining
+         *         The remaining requests
+         * @param lResetAt
+         *         The reset time of the window in ms
+         */
+        synchronized void update( int nLimit, int nRemaining, long lResetAt )
+        {
+            if ( nLimit >= 0 )
+            {
+                _nLimit = nLimit;
+            }
+            _nRemaining = nRemaining;
+            _lResetAt = lResetAt;
+        }
+
+        /**
+         * Gets the status of the budget
+         *
+         * @return The status
+         */
+        synchronized Map<String, Object> getStatus( )
+        {
+            Map<String, Object> mapStatus = new LinkedHashMap<>( );
+            mapStatus.put( "rate", _dRate );
+            mapStatus.put( "burst", _nBurst );
+            mapStatus.put( "tokens", Math.floor( Math.min( _nBurst, _dTokens + ( System.currentTimeMillis( ) - _lLastRefill ) * _dRate / 1000 ) ) );
+            mapStatus.put( "reserve", _nReserve );
+            mapStatus.put( "limit", _nLimit );
+            mapStatus.put( "remaining", _nRemaining );
+            mapStatus.put( "resetAt", ( _lResetAt > 0 ) ? Instant.ofEpochMilli( _lResetAt ).toString( ) : null );
+            mapStatus.put( "deferred", _lDeferred );
+            mapStatus.put( "waited", _lWaited );
+            return mapStatus;
+        }
+    }
+}
@@ -2,32 +2,53 @@ package fr.paris.lutece.plugins.lutecetools.service;
 
 import com.taskadapter.redmineapi.*;
 import com.taskadapter.redmineapi.bean.*;
+import com.taskadapter.redmineapi.internal.ResultsWrapper;
 import fr.paris.lutece.plugins.lutecetools.business.Component;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.http.client.HttpClient;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 
 public class RedmineService implements ComponentInfoFiller
 {
 
     public static final String REDMINE_STATUS = "redmineStatus";
     private static final String SERVICE_NAME = "Redmine Info filler service registered";
+    private static final String PROPERTY_REFRESH_INTERVAL = "lutecetools.redmine.refreshInterval";
+    private static final long DEFAULT_REFRESH_INTERVAL = 14400000L;
+    private static final long REFRESH_INTERVAL = AppPropertiesService.getPropertyLong( PROPERTY_REFRESH_INTERVAL, DEFAULT_REFRESH_INTERVAL );
+    private static final int COST = 4; // project, versions and two issues counts requests
+    private static final String PROPERTY_PROJECT_TTL = "lutecetools.redmine.project.ttl";
+    private static final long PROJECT_TTL = AppPropertiesService.getPropertyLong( PROPERTY_PROJECT_TTL, 60000L );
     private static final String REDMINE_URL = AppPropertiesService.getProperty( "lutecetools.redmine.url" );
     private static final String REDMINE_API_KEY = AppPropertiesService.getProperty( "lutecetools.redmine.apiKey" );
-    private static final int LIMIT = 100; // Maximum limit as per Redmine API
+    private static final String COUNT_LIMIT = "1"; // only the total count is used
+    private static final String STATUS_OPEN = "open";
+    private static final String STATUS_CLOSED = "closed";
+
+    private static final Map<String, CachedProject> _mapProjects = new ConcurrentHashMap<>( );
 
-    private final IssueManager issueManager;
-    private final ProjectManager projectManager;
+    private HttpClient _httpClient;
+    private RedmineManager _redmineManager;
 
-    public RedmineService( )
+    /**
+     * Gets the Redmine manager working on the shared HTTP client. The manager is created again if the client has been closed and replaced
+     * 
+     * @return The manager
+     */
+    private synchronized RedmineManager getRedmineManager( )
     {
-        // Initialize RedmineManager and managers once in the constructor
-        RedmineManager redmineManager = RedmineManagerFactory.createWithApiKey( REDMINE_URL, REDMINE_API_KEY );
-        this.issueManager = redmineManager.getIssueManager( );
-        this.projectManager = redmineManager.getProjectManager( );
+        HttpClient httpClient = HttpClientService.getClient( );
+        if ( httpClient != _httpClient )
+        {
+            _redmineManager = RedmineManagerFactory.createWithApiKey( REDMINE_URL, REDMINE_API_KEY, httpClient );
+            _httpClient = httpClient;
+        }
+        return _redmineManager;
     }
 
     @Override
@@ -45,26 +66,23 @@ public class RedmineService implements ComponentInfoFiller
 
         try
         {
-            Project project = projectManager.getProjectByKey( strJiraKey.toLowerCase( ) );
+            CachedProject cached = getProject( strJiraKey );
+            int nProjectId = cached._project.getId( );
 
-            // Fetch open issues
-            List<Issue> openIssues = fetchIssuesByStatus( project.getId( ), "open" );
-            component.set( "redmineOpenIssuesCount", openIssues.size( ) );
+            // Count open issues
+            int nOpenIssues = countIssues( nProjectId, STATUS_OPEN, null );
+            component.set( "redmineOpenIssuesCount", nOpenIssues );
 
-            // Fetch closed issues and filter based on snapshotVersion
-            List<Issue> closedIssues = fetchIssuesByStatus( project.getId( ), "closed" );
-            List<Issue> filteredClosedIssues = closedIssues.stream( ).filter( issue -> {
-                String targetVersion = issue.getTargetVersion( ) != null ? issue.getTargetVersion( ).getName( ) : null;
-                return targetVersion != null && targetVersion.equals( snapshotVersion.replace( "-SNAPSHOT", "" ) );
-            } ).collect( Collectors.toList( ) );
-
-            component.set( "redmineClosedIssuesCount", filteredClosedIssues.size( ) );
+            // Count closed issues of the version matching the snapshotVersion
+            Integer nVersionId = getVersionId( cached._listVersions, snapshotVersion );
+            int nClosedIssues = ( nVersionId != null ) ? countIssues( nProjectId, STATUS_CLOSED, nVersionId ) : 0;
+            component.set( "redmineClosedIssuesCount", nClosedIssues );
 
             if ( AppLogService.isDebugEnabled( ) )
             {
                 StringBuilder sbDebug = new StringBuilder( );
-                sbDebug.append( "RedmineService - Project " ).append( strJiraKey ).append( " OpenIssues : " ).append( openIssues.size( ) )
-                        .append( " ClosedIssues : " ).append( filteredClosedIssues.size( ) );
+                sbDebug.append( "RedmineService - Project " ).append( strJiraKey ).append( " OpenIssues : " ).append( nOpenIssues )
+                        .append( " ClosedIssues : " ).append( nClosedIssues );
                 AppLogService.debug( sbDebug.toString( ) );
             }
         }
@@ -74,28 +92,146 @@ public class RedmineService implements ComponentInfoFiller
         }
     }
 
-    private List<Issue> fetchIssuesByStatus( int projectId, String statusId ) throws RedmineException
+    /**
+     * Count the issues of a project using the total count returned by the server : a single issue is transferred whatever the number of issues
+     * (a limit of 0 is replaced by the default page size by Redmine)
+     * 
+     * @param nProjectId
+     *            The project id
+     * @param strStatusId
+     *            The status filter (open, closed)
+     * @param nVersionId
+     *            The target version id filter or null
+     * @return The number of issues
+     * @throws RedmineException
+     *             if an error occurs
+     */
+    private int countIssues( int nProjectId, String strStatusId, Integer nVersionId ) throws RedmineException
     {
-        List<Issue> allIssues = new ArrayList<>( );
-        int offset = 0;
+        Params params = new Params( ).add( "project_id", String.valueOf( nProjectId ) ).add( "status_id", strStatusId ).add( "limit", COUNT_LIMIT );
+        if ( nVersionId != null )
+        {
+            params.add( "fixed_version_id", String.valueOf( nVersionId ) );
+        }
 
-        while ( true )
+        ResultsWrapper<Issue> results = getRedmineManager( ).getIssueManager( ).getIssues( params );
+        Integer nTotal = results.getTotalFoundOnServer( );
+
+        return ( nTotal != null ) ? nTotal : results.getResultsNumber( );
+    }
+
+    /**
+     * Gets a project with its versions. They are kept for a short time to be shared by the change detection and the fill of a component
+     * 
+     * @param strKey
+     *            The project key
+     * @return The project and its versions
+     * @throws RedmineException
+     *             if an error occurs
+     */
+    private CachedProject getProject( String strKey ) throws RedmineException
+    {
+        String strProjectKey = strKey.toLowerCase( );
+        long lNow = System.currentTimeMillis( );
+        CachedProject cached = _mapProjects.get( strProjectKey );
+        if ( ( cached != null ) && ( lNow - cached._lFetched < PROJECT_TTL ) )
         {
-            Params params = new Params( ).add( "project_id", String.valueOf( projectId ) ).add( "limit", String.valueOf( LIMIT ) )
-                    .add( "offset", String.valueOf( offset ) ).add( "status_id", statusId );
+            return cached;
+        }
+        ProjectManager projectManager = getRedmineManager( ).getProjectManager( );
+        Project project = projectManager.getProjectByKey( strProjectKey );
+        cached = new CachedProject( project, projectManager.getVersions( project.getId( ) ), lNow );
+        _mapProjects.put( strProjectKey, cached );
+        return cached;
+    }
 
-            List<Issue> issues = issueManager.getIssues( params ).getResults( );
+    /**
+     * Clear the projects kept for the fill
+     */
+    public static void clearCache( )
+    {
+        _mapProjects.clear( );
+    }
 
-            if ( issues.isEmpty( ) )
+    /**
+     * Gets the id of the project version matching a snapshot version
+     * 
+     * @param listVersions
+     *            The versions of the project
+     * @param strSnapshotVersion
+     *            The snapshot version
+     * @return The version id or null if not found
+     */
+    private Integer getVersionId( List<Version> listVersions, String strSnapshotVersion )
+    {
+        if ( strSnapshotVersion == null )
+        {
+            return null;
+        }
+        String strVersion = strSnapshotVersion.replace( "-SNAPSHOT", "" );
+        for ( Version version : listVersions )
+        {
+            if ( strVersion.equals( version.getName( ) ) )
             {
-                break; // Exit the loop if there are no more issues
+                return version.getId( );
             }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a token built from the project versions (ids, status and last update dates)
+     * 
+     * @param component
+     *            The component
+     * @return The token or null if the versions are not available
+     */
+    @Override
+    public String getChangeToken( Component component )
+    {
+        String strJiraKey = component.get( Component.JIRA_KEY );
 
-            allIssues.addAll( issues );
-            offset += LIMIT; // Increment offset for the next page
+        if ( strJiraKey == null )
+        {
+            return "";
         }
 
-        return allIssues;
+        try
+        {
+            // The project is kept for the fill that may follow
+            CachedProject cached = getProject( strJiraKey );
+            StringBuilder sbToken = new StringBuilder( String.valueOf( cached._project.getId( ) ) );
+
+            for ( Version version : cached._listVersions )
+            {
+                sbToken.append( ';' ).append( version.getId( ) ).append( ':' ).append( version.getStatus( ) ).append( ':' )
+                        .append( ( version.getUpdatedOn( ) != null ) ? version.getUpdatedOn( ).getTime( ) : 0L );
+            }
+
+            return sbToken.toString( );
+        }
+        catch( RedmineException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long getRefreshInterval( )
+    {
+        return REFRESH_INTERVAL;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int getCost( )
+    {
+        return COST;
     }
 
     @Override
@@ -103,4 +239,31 @@ public class RedmineService implements ComponentInfoFiller
     {
         return SERVICE_NAME;
     }
-}
\ No newline at end of file
+
+    /**
+     * Project and versions fetched by the change detection or by the fill
+     */
+    private static final class CachedProject
+    {
+        private final Project _project;
+        private final List<Version> _listVersions;
+        private final long _lFetched;
+
+        /**
+         * Constructor
+         * 
+         * @param project
+         *            The project
+         * @param listVersions
+         *            The versions of the project
+         * @param lFetched
+         *            The fetch time
+         */
+        CachedProject( Project project, List<Version> listVersions, long lFetched )
+        {
+            _project = project;
+            _listVersions = listVersions;
+            _lFetched = lFetched;
+        }
+    }
+}
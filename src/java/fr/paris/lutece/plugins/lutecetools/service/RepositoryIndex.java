@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Index of the repositories of a git platform, built once when the repositories list is loaded. A component is looked up by the exact repository
+ * name first, then by a name suffix starting after a '-' (ie : plugin-foo matches lutece-tech-plugin-foo but not lutece-plugin-barfoo). When several
+ * repositories end with the same suffix the shortest name wins, then the first in alphabetical order. When a name is used by several
+ * organizations, the repository added first wins.
+ *
+ * @param <R>
+ *            The repository type
+ */
+public final class RepositoryIndex<R>
+{
+    private final Map<String, R> _mapByName = new HashMap<>( );
+    private final Map<String, R> _mapByPath = new HashMap<>( );
+    private final Map<String, String> _mapNamesBySuffix = new HashMap<>( );
+    private final List<String> _listPaths = new ArrayList<>( );
+
+    /**
+     * Adds a repository
+     *
+     * @param strPath
+     *         The path of the repository (organization/name)
+     * @param strName
+     *         The name of the repository
+     * @param repository
+     *         The repository
+     */
+    public void add( String strPath, String strName, R repository )
+    {
+        String strKey = normalize( strName );
+        if ( _mapByPath.putIfAbsent( normalize( strPath ), repository ) == null )
+        {
+            _listPaths.add( strPath );
+        }
+        if ( _mapByName.putIfAbsent( strKey, repository ) != null )
+        {
+            return;
+        }
+        for ( int nPos = strKey.indexOf( '-' ); nPos >= 0; nPos = strKey.indexOf( '-', nPos + 1 ) )
+        {
+            _mapNamesBySuffix.merge( strKey.substring( nPos + 1 ), strKey, RepositoryIndex::getPreferredName );
+        }
+    }
+
+    /**
+     * Gets the repository of an artifact : exact name lookup first, then suffix lookup
+     *
+     * @param strArtifactId
+     *         The artifact id
+     * @return The repository or null if not found
+     */
+    public R get( String strArtifactId )
+    {
+        String strKey = normalize( strArtifactId );
+        R repository = _mapByName.get( strKey );
+        if ( repository == null )
+        {
+            String strName = _mapNamesBySuffix.get( strKey );
+            repository = ( strName != null ) ? _mapByName.get( strName ) : null;
+        }
+        return repository;
+    }
+
+    /**
+     * Gets a repository by its path
+     *
+     * @param strPath
+     *         The path (organization/name)
+     * @return The repository or null if not found
+     */
+    public R getByPath( String strPath )
+    {
+        return _mapByPath.get( normalize( strPath ) );
+    }
+
+    /**
+     * Returns the paths of the repositories
+     *
+     * @return The paths (organization/name)
+     */
+    public List<String> getPaths( )
+    {
+        return Collections.unmodifiableList( _listPaths );
+    }
+
+    /**
+     * Returns the number of repositories
+     *
+     * @return The number of repositories
+     */
+    public int size( )
+    {
+        return _mapByPath.size( );
+    }
+
+    /**
+     * Normalize a name or a path
+     *
+     * @param strName
+     *         The name
+     * @return The normalized name
+     */
+    private static String normalize( String strName )
+    {
+        return strName.trim( ).toLowerCase( Locale.ROOT );
+    }
+
+    /**
+     * Gets the name to use for a suffix shared by two repositories
+     *
+     * @param strName1
+     *         The first name
+     * @param strName2
+     *         The second name
+     * @return The shortest name, then the first in alphabetical order
+     */
+    private static String getPreferredName( String strName1, String strName2 )
+    {
+        if ( strName1.length( ) != strName2.length( ) )
+        {
+            return ( strName1.length( ) < strName2.length( ) ) ? strName1 : strName2;
+        }
+        return ( strName1.compareTo( strName2 ) <= 0 ) ? strName1 : strName2;
+    }
+}
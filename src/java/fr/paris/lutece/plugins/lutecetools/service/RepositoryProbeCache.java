@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the Maven repositories probes. A probe records the repository URL where an artifact has been found (or that it has been found nowhere) and
+ * the content fetched while probing, so it can be reused instead of being downloaded again. Not found probes expire sooner, so that a new release is
+ * seen quickly. The contents are bounded in number (LRU eviction) and the expired ones are purged periodically.
+ */
+public class RepositoryProbeCache
+{
+    private final long _lProbeTtl;
+    private final long _lNotFoundTtl;
+    private final long _lContentTtl;
+    private final Map<String, Probe> _mapProbes = new ConcurrentHashMap<>( );
+    private final Map<String, Content> _mapContents;
+    private volatile long _lLastPurge = System.currentTimeMillis( );
+
+    /**
+     * Constructor
+     * 
+     * @param lProbeTtl
+     *            The time to live of a successful probe in ms
+     * @param lNotFoundTtl
+     *            The time to live of a failed probe in ms
+     * @param lContentTtl
+     *            The time to live of a fetched content in ms
+     * @param nMaxContents
+     *            The maximum number of contents kept
+     */
+    public RepositoryProbeCache( long lProbeTtl, long lNotFoundTtl, long lContentTtl, int nMaxContents )
+    {
+        _lProbeTtl = lProbeTtl;
+        _lNotFoundTtl = lNotFoundTtl;
+        _lContentTtl = lContentTtl;
+        _mapContents = Collections.synchronizedMap( new LinkedHashMap<String, Content>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, Content> eldest )
+            {
+                return size( ) > nMaxContents;
+            }
+        } );
+    }
+
+    /**
+     * Gets a probe result
+     * 
+     * @param strKey
+     *            The probe key
+     * @return The probe or null if not probed or expired
+     */
+    public Probe getProbe( String strKey )
+    {
+        Probe probe = _mapProbes.get( strKey );
+        if ( probe != null && isExpired( probe._lTimestamp, ( probe._strUrl != null ) ? _lProbeTtl : _lNotFoundTtl ) )
+        {
+            _mapProbes.remove( strKey );
+            return null;
+        }
+        return probe;
+    }
+
+    /**
+     * Record a successful probe
+     * 
+     * @param strKey
+     *            The probe key
+     * @param strUrl
+     *            The resolved URL
+     * @param strProbeUrl
+     *            The URL that has been fetched to probe
+     * @param strContent
+     *            The fetched content
+     */
+    public void putFound( String strKey, String strUrl, String strProbeUrl, String strContent )
+    {
+        _mapProbes.put( strKey, new Probe( strUrl ) );
+        _mapContents.put( strProbeUrl, new Content( strContent ) );
+        purgeExpiredContents( );
+    }
+
+    /**
+     * Record a failed probe
+     * 
+     * @param strKey
+     *            The probe key
+     */
+    public void putNotFound( String strKey )
+    {
+        _mapProbes.put( strKey, new Probe( null ) );
+    }
+
+    /**
+     * Gets a content fetched while probing
+     * 
+     * @param strUrl
+     *            The URL
+     * @return The content or null if not available or expired
+     */
+    public String getContent( String strUrl )
+    {
+        Content content = _mapContents.get( strUrl );
+        if ( content == null )
+        {
+            return null;
+        }
+        if ( isExpired( content._lTimestamp, _lContentTtl ) )
+        {
+            _mapContents.remove( strUrl );
+            return null;
+        }
+        return content._strContent;
+    }
+
+    /**
+     * Clear the cache
+     */
+    public void clear( )
+    {
+        _mapProbes.clear( );
+        _mapContents.clear( );
+    }
+
+    /**
+     * Returns the number of contents kept
+     * 
+     * @return The number of contents
+     */
+    public int getContentsCount( )
+    {
+        return _mapContents.size( );
+    }
+
+    /**
+     * Remove the expired contents, at most once per content TTL : the contents that are not read again would be kept otherwise
+     */
+    private void purgeExpiredContents( )
+    {
+        long lNow = System.currentTimeMillis( );
+        if ( lNow - _lLastPurge <= _lContentTtl )
+        {
+            return;
+        }
+        _lLastPurge = lNow;
+        synchronized( _mapContents )
+        {
+            _mapContents.values( ).removeIf( content -> isExpired( content._lTimestamp, _lContentTtl ) );
+        }
+        _mapProbes.values( ).removeIf( probe -> isExpired( probe._lTimestamp, ( probe._strUrl != null ) ? _lProbeTtl : _lNotFoundTtl ) );
+    }
+
+    private static boolean isExpired( long lTimestamp, long lTtl )
+    {
+        return System.currentTimeMillis( ) - lTimestamp > lTtl;
+    }
+
+    /**
+     * A probe result
+     */
+    public static final class Probe
+    {
+        private final String _strUrl;
+        private final long _lTimestamp = System.currentTimeMillis( );
+
+        private Probe( String strUrl )
+        {
+            _strUrl = strUrl;
+        }
+
+        /**
+         * Returns the resolved URL
+         * 
+         * @return The URL or null if the artifact has been found in no repository
+         */
+        public String getUrl( )
+        {
+            return _strUrl;
+        }
+    }
+
+    /**
+     * A fetched content
+     */
+    private static final class Content
+    {
+        private final String _strContent;
+        private final long _lTimestamp = System.currentTimeMillis( );
+
+        private Content( String strContent )
+        {
+            _strContent = strContent;
+        }
+    }
+}
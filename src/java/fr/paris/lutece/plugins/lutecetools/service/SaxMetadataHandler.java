@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SaxMetadataHandler : parses a maven-metadata.xml file at artifact level (versions list) or at snapshot version level (timestamped snapshot files)
+ */
+public class SaxMetadataHandler extends DefaultHandler
+{
+    private static final String TAG_LATEST = "latest";
+    private static final String TAG_RELEASE = "release";
+    private static final String TAG_VERSION = "version";
+    private static final String TAG_VERSIONS = "versions";
+    private static final String TAG_SNAPSHOT = "snapshot";
+    private static final String TAG_TIMESTAMP = "timestamp";
+    private static final String TAG_BUILD_NUMBER = "buildNumber";
+    private static final String TAG_SNAPSHOT_VERSION = "snapshotVersion";
+    private static final String TAG_CLASSIFIER = "classifier";
+    private static final String TAG_EXTENSION = "extension";
+    private static final String TAG_VALUE = "value";
+    private static final String EXTENSION_POM = "pom";
+
+    private String _strLatest;
+    private String _strRelease;
+    private List<String> _listVersions = new ArrayList<>( );
+    private String _strTimestamp;
+    private String _strBuildNumber;
+    private String _strPomSnapshotValue;
+
+    private boolean _bVersions;
+    private boolean _bSnapshot;
+    private boolean _bSnapshotVersion;
+    private String _strClassifier;
+    private String _strExtension;
+    private String _strValue;
+    private StringBuilder _sbText = new StringBuilder( );
+
+    /**
+     * Returns the latest version
+     * 
+     * @return The latest version
+     */
+    public String getLatest( )
+    {
+        return _strLatest;
+    }
+
+    /**
+     * Returns the release version
+     * 
+     * @return The release version
+     */
+    public String getRelease( )
+    {
+        return _strRelease;
+    }
+
+    /**
+     * Returns the versions list
+     * 
+     * @return The versions list
+     */
+    public List<String> getVersions( )
+    {
+        return _listVersions;
+    }
+
+    /**
+     * Returns the snapshot timestamp
+     * 
+     * @return The snapshot timestamp
+     */
+    public String getTimestamp( )
+    {
+        return _strTimestamp;
+    }
+
+    /**
+     * Returns the snapshot build number
+     * 
+     * @return The snapshot build number
+     */
+    public String getBuildNumber( )
+    {
+        return _strBuildNumber;
+    }
+
+    /**
+     * Returns the timestamped version of the snapshot POM file
+     * 
+     * @param strSnapshotVersion
+     *            The snapshot version (ie: 1.0.0-SNAPSHOT)
+     * @return The timestamped version (ie: 1.0.0-20200101.120000-3) or null if not available
+     */
+    public String getPomSnapshotValue( String strSnapshotVersion )
+    {
+        if ( _strPomSnapshotValue != null )
+        {
+            return _strPomSnapshotValue;
+        }
+        if ( _strTimestamp != null && _strBuildNumber != null && strSnapshotVersion != null )
+        {
+            return strSnapshotVersion.replace( "SNAPSHOT", _strTimestamp + "-" + _strBuildNumber );
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void startElement( String uri, String localName, String qName, Attributes attributes ) throws SAXException
+    {
+        _sbText.setLength( 0 );
+
+        if ( qName.equalsIgnoreCase( TAG_VERSIONS ) )
+        {
+            _bVersions = true;
+        }
+        else
+            if ( qName.equalsIgnoreCase( TAG_SNAPSHOT ) )
+            {
+                _bSnapshot = true;
+            }
+            else
+                if ( qName.equalsIgnoreCase( TAG_SNAPSHOT_VERSION ) )
+                {
+                    _bSnapshotVersion = true;
+                    _strClassifier = null;
+                    _strExtension = null;
+                    _strValue = null;
+                }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void endElement( String uri, String localName, String qName ) throws SAXException
+    {
+        String strText = _sbText.toString( ).trim( );
+        _sbText.setLength( 0 );
+
+        if ( qName.equalsIgnoreCase( TAG_VERSIONS ) )
+        {
+            _bVersions = false;
+        }
+        else
+            if ( qName.equalsIgnoreCase( TAG_SNAPSHOT ) )
+            {
+                _bSnapshot = false;
+            }
+            else
+                if ( qName.equalsIgnoreCase( TAG_SNAPSHOT_VERSION ) )
+                {
+                    _bSnapshotVersion = false;
+                    if ( EXTENSION_POM.equals( _strExtension ) && _strClassifier == null )
+                    {
+                        _strPomSnapshotValue = _strValue;
+                    }
+                }
+                else
+                    if ( _bVersions && qName.equalsIgnoreCase( TAG_VERSION ) )
+                    {
+                        _listVersions.add( strText );
+                    }
+                    else
+                        if ( _bSnapshot && qName.equalsIgnoreCase( TAG_TIMESTAMP ) )
+                        {
+                            _strTimestamp = strText;
+                        }
+                        else
+                            if ( _bSnapshot && qName.equalsIgnoreCase( TAG_BUILD_NUMBER ) )
+                            {
+                                _strBuildNumber = strText;
+                            }
+                            else
+                                if ( _bSnapshotVersion && qName.equalsIgnoreCase( TAG_CLASSIFIER ) )
+                                {
+                                    _strClassifier = strText;
+                                }
+                                else
+                                    if ( _bSnapshotVersion && qName.equalsIgnoreCase( TAG_EXTENSION ) )
+                                    {
+                                        _strExtension = strText;
+                                    }
+                                    else
+                                        if ( _bSnapshotVersion && qName.equalsIgnoreCase( TAG_VALUE ) )
+                                        {
+                                            _strValue = strText;
+                                        }
+                                        else
+                                            if ( qName.equalsIgnoreCase( TAG_LATEST ) )
+                                            {
+                                                _strLatest = strText;
+                                            }
+                                            else
+                                                if ( qName.equalsIgnoreCase( TAG_RELEASE ) )
+                                                {
+                                                    _strRelease = strText;
+                                                }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void characters( char [ ] ch, int start, int length ) throws SAXException
+    {
+        _sbText.append( ch, start, length );
+    }
+}
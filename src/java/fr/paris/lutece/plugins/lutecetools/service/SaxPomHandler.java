@@ -33,6 +33,11 @@
  */
 package fr.paris.lutece.plugins.lutecetools.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -50,12 +55,20 @@ public class SaxPomHandler extends DefaultHandler
     private static final String TAG_URL = "url";
     private static final String TAG_CONNECTION = "connection";
     private static final String TAG_DEVELOPPER_CONNECTION = "developerConnection";
+    private static final String TAG_DEPENDENCY = "dependency";
+    private static final String TAG_EXCLUSIONS = "exclusions";
+    private static final String TAG_GROUP_ID = "groupId";
+    private static final String TAG_TYPE = "type";
+    private static final String CONSTANT_LUTECE_GROUP = "fr.paris.lutece";
     private String _strParentPomVersion;
     private String _strCoreVersion;
     private String _strJiraKey;
     private StringBuilder _sbScmUrl = new StringBuilder( );
     private StringBuilder _sbScmConnection = new StringBuilder( );
     private StringBuilder _sbScmDeveloperConnection = new StringBuilder( );
+    private List<Map<String, String>> _listDependencies = new ArrayList<>( );
+    private Map<String, String> _mapDependency;
+    private StringBuilder _sbDependencyText = new StringBuilder( );
 
     private boolean _bPomParent;
     private boolean _bVersion;
@@ -66,6 +79,7 @@ public class SaxPomHandler extends DefaultHandler
     private boolean _bURL;
     private boolean _bConnection;
     private boolean _bDevelopperConnection;
+    private boolean _bExclusions;
 
     /**
      * Returns Parent Pom version
@@ -127,12 +141,24 @@ public class SaxPomHandler extends DefaultHandler
         return _sbScmDeveloperConnection.toString( );
     }
 
+    /**
+     * Returns the Lutece dependencies (groupId starting with fr.paris.lutece) as maps of groupId, artifactId, version and type
+     * 
+     * @return The Lutece dependencies
+     */
+    public List<Map<String, String>> getLuteceDependencies( )
+    {
+        return _listDependencies;
+    }
+
     /**
      * {@inheritDoc }
      */
     @Override
     public void startElement( String uri, String localName, String qName, Attributes attributes ) throws SAXException
     {
+        startDependencyElement( qName );
+
         if ( qName.equalsIgnoreCase( TAG_PARENT ) )
         {
             _bPomParent = true;
@@ -180,6 +206,8 @@ public class SaxPomHandler extends DefaultHandler
     @Override
     public void endElement( String uri, String localName, String qName ) throws SAXException
     {
+        endDependencyElement( qName );
+
         if ( qName.equalsIgnoreCase( TAG_PARENT ) )
         {
             _bPomParent = false;
@@ -227,6 +255,11 @@ public class SaxPomHandler extends DefaultHandler
     @Override
     public void characters( char [ ] ch, int start, int length ) throws SAXException
     {
+        if ( _mapDependency != null && !_bExclusions )
+        {
+            _sbDependencyText.append( ch, start, length );
+        }
+
         if ( _bPomParent && _bVersion )
         {
             _strParentPomVersion = new String( ch, start, length );
@@ -263,4 +296,61 @@ public class SaxPomHandler extends DefaultHandler
                                     _sbScmDeveloperConnection.append( new String( ch, start, length ) );
                                 }
     }
+
+    /**
+     * Track the start of dependency elements
+     * 
+     * @param qName
+     *            The element name
+     */
+    private void startDependencyElement( String qName )
+    {
+        _sbDependencyText.setLength( 0 );
+
+        if ( qName.equals( TAG_DEPENDENCY ) )
+        {
+            _mapDependency = new HashMap<>( );
+        }
+        else
+            if ( _mapDependency != null && qName.equals( TAG_EXCLUSIONS ) )
+            {
+                _bExclusions = true;
+            }
+    }
+
+    /**
+     * Collect the dependency values at the end of dependency elements
+     * 
+     * @param qName
+     *            The element name
+     */
+    private void endDependencyElement( String qName )
+    {
+        if ( _mapDependency == null )
+        {
+            return;
+        }
+
+        if ( qName.equals( TAG_DEPENDENCY ) )
+        {
+            String strGroupId = _mapDependency.get( TAG_GROUP_ID );
+            if ( strGroupId != null && strGroupId.startsWith( CONSTANT_LUTECE_GROUP ) )
+            {
+                _listDependencies.add( _mapDependency );
+            }
+            _mapDependency = null;
+        }
+        else
+            if ( qName.equals( TAG_EXCLUSIONS ) )
+            {
+                _bExclusions = false;
+            }
+            else
+                if ( !_bExclusions && ( qName.equals( TAG_GROUP_ID ) || qName.equals( TAG_ARTIFACT_ID ) || qName.equals( TAG_VERSION )
+                        || qName.equals( TAG_TYPE ) ) )
+                {
+                    _mapDependency.put( qName, _sbDependencyText.toString( ).trim( ) );
+                }
+        _sbDependencyText.setLength( 0 );
+    }
 }
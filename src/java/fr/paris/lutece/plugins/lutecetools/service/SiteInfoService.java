@@ -38,7 +38,7 @@
  */
 package fr.paris.lutece.plugins.lutecetools.service;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -47,16 +47,17 @@ import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.commons.lang.StringUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 
 import fr.paris.lutece.plugins.lutecetools.business.Component;
 import fr.paris.lutece.portal.service.util.AppLogService;
-import fr.paris.lutece.util.httpaccess.HttpAccess;
 import fr.paris.lutece.util.httpaccess.HttpAccessException;
 
 /**
@@ -117,110 +118,122 @@ public final class SiteInfoService
     {
         try
         {
-            HttpAccess httpAccess = new HttpAccess( );
-            String strSiteIndex = httpAccess.doGet( strXdocSiteIndexUrl );
-
-            String strLANG = "_" + strLang;
+            // parse the response stream directly (an input stream is used to ignore BOM when parsing)
+            StreamingHttpAccess.doGet( strXdocSiteIndexUrl, null, null, is -> {
+                parseSiteIndex( component, is, strLang );
+                return component;
+            } );
+        }
+        catch ( HttpAccessException e )
+        {
+            sbLogs.append( "\n*** ERROR *** Error reading site index for component :" )
+                    .append( component.getArtifactId( ) ).append( " [url : " + strXdocSiteIndexUrl + "]" )
+                    .append( EXCEPTION_MESSAGE );
+        }
+        catch ( Exception e )
+        {
+            AppLogService.error( EXCEPTION_MESSAGE + component.getArtifactId( ) + " : " + e.getMessage( ), e );
+        }
+    }
 
-            DocumentBuilderFactory documentBuilder = DocumentBuilderFactory.newInstance( );
-            InputStream is = new ByteArrayInputStream( strSiteIndex.getBytes( ) ); // use inputstream to ignore BOM when
-                                                                                   // parsing
+    /**
+     * Parse a xdoc site index and fill the component SITE infos
+     * 
+     * @param component The component
+     * @param is        The site index input stream
+     * @param strLang   The lang of the site index
+     * @throws ParserConfigurationException if an error occurs
+     * @throws SAXException                 if an error occurs
+     * @throws IOException                  if an error occurs
+     */
+    void parseSiteIndex( Component component, InputStream is, String strLang ) throws ParserConfigurationException, SAXException, IOException
+    {
+        String strLANG = "_" + strLang;
 
-            DocumentBuilder builder = documentBuilder.newDocumentBuilder( );
-            Document document = builder.parse( new InputSource( is ) );
-            Element root = document.getDocumentElement( );
+        DocumentBuilderFactory documentBuilder = DocumentBuilderFactory.newInstance( );
+        DocumentBuilder builder = documentBuilder.newDocumentBuilder( );
+        Document document = builder.parse( new InputSource( is ) );
+        Element root = document.getDocumentElement( );
 
-            NodeList titleList = root.getElementsByTagName( TAG_TITLE );
-            for ( int i = 0; i < titleList.getLength( ); i++ )
+        NodeList titleList = root.getElementsByTagName( TAG_TITLE );
+        for ( int i = 0; i < titleList.getLength( ); i++ )
+        {
+            Element elmt = (Element) titleList.item( i );
+            String title = elmt.getTextContent( );
+            if ( title != null )
             {
-                Element elmt = (Element) titleList.item( i );
-                String title = elmt.getTextContent( );
-                if ( title != null )
-                {
-                    component.set( Component.SITE_TITLE + strLANG, title );
-                }
+                component.set( Component.SITE_TITLE + strLANG, title );
             }
+        }
 
-            NodeList metaList = root.getElementsByTagName( TAG_META );
-            String strKeywords = null;
-            for ( int i = 0; i < metaList.getLength( ); i++ )
+        NodeList metaList = root.getElementsByTagName( TAG_META );
+        String strKeywords = null;
+        for ( int i = 0; i < metaList.getLength( ); i++ )
+        {
+            Element elmt = (Element) metaList.item( i );
+            if ( elmt.hasAttribute( ATTRIBUTE_NAME )
+                    && ATTRIBUTE_KEYWORDS_VALUE.equals( elmt.getAttribute( ATTRIBUTE_NAME ) ) )
             {
-                Element elmt = (Element) metaList.item( i );
-                if ( elmt.hasAttribute( ATTRIBUTE_NAME )
-                        && ATTRIBUTE_KEYWORDS_VALUE.equals( elmt.getAttribute( ATTRIBUTE_NAME ) ) )
-                {
-                    strKeywords = elmt.getAttribute( ATTRIBUTE_CONTENT );
-                }
+                strKeywords = elmt.getAttribute( ATTRIBUTE_CONTENT );
             }
+        }
 
-            component.set( Component.HAS_KEYWORDS + strLANG,
-                    ( StringUtils.isBlank( strKeywords ) ? "false" : "true" ) );
+        component.set( Component.HAS_KEYWORDS + strLANG,
+                ( StringUtils.isBlank( strKeywords ) ? "false" : "true" ) );
 
-            // split keywords
-            if ( strKeywords != null )
+        // split keywords
+        if ( strKeywords != null )
+        {
+            String[] strTempKeywords = strKeywords.split( "," );
+            Set<String> keywords = new HashSet<>( );
+            for ( String keyword : strTempKeywords )
             {
-                String[] strTempKeywords = strKeywords.split( "," );
-                Set<String> keywords = new HashSet<>( );
-                for ( String keyword : strTempKeywords )
-                {
-                    keywords.add( keyword.trim( ) );
-                }
-
-                component.set( Component.SITE_KEYWORDS + strLANG, keywords );
+                keywords.add( keyword.trim( ) );
             }
 
-            NodeList subSections = root.getElementsByTagName( TAG_SUBSECTION );
-            StringBuilder strIntroduction = new StringBuilder( );
-            StringBuilder strConfiguration = new StringBuilder( );
-            StringBuilder strUsage = new StringBuilder( );
+            component.set( Component.SITE_KEYWORDS + strLANG, keywords );
+        }
+
+        NodeList subSections = root.getElementsByTagName( TAG_SUBSECTION );
+        StringBuilder strIntroduction = new StringBuilder( );
+        StringBuilder strConfiguration = new StringBuilder( );
+        StringBuilder strUsage = new StringBuilder( );
+
+        for ( int i = 0; i < subSections.getLength( ); i++ )
+        {
+            Element elmt = (Element) subSections.item( i );
 
-            for ( int i = 0; i < subSections.getLength( ); i++ )
+            if ( elmt.hasAttribute( ATTRIBUTE_NAME )
+                    && ATTRIBUTE_INTRODUCTION_VALUE.equals( elmt.getAttribute( ATTRIBUTE_NAME ) ) )
             {
-                Element elmt = (Element) subSections.item( i );
-
-                if ( elmt.hasAttribute( ATTRIBUTE_NAME )
-                        && ATTRIBUTE_INTRODUCTION_VALUE.equals( elmt.getAttribute( ATTRIBUTE_NAME ) ) )
-                {
-                    strIntroduction.append( elmt.getTextContent( ) );
-                }
-
-                if ( elmt.hasAttribute( ATTRIBUTE_NAME )
-                        && ATTRIBUTE_CONFIGURATION_VALUE.equals( elmt.getAttribute( ATTRIBUTE_NAME ) ) )
-                {
-                    strConfiguration.append( elmt.getTextContent( ) );
-                }
-
-                if ( elmt.hasAttribute( ATTRIBUTE_NAME )
-                        && ATTRIBUTE_USAGE_VALUE.equals( elmt.getAttribute( ATTRIBUTE_NAME ) ) )
-                {
-                    strUsage.append( elmt.getTextContent( ) );
-                }
+                strIntroduction.append( elmt.getTextContent( ) );
             }
 
-            component.set( Component.SITE_INTRODUCTION + strLANG, strIntroduction.toString( ) );
-            component.set( Component.SITE_CONFIGURATION + strLANG, strConfiguration.toString( ) );
-            component.set( Component.SITE_USAGE + strLANG, strUsage.toString( ) );
-
-            NodeList imgList = root.getElementsByTagName( TAG_IMG );
-            List<String> imagesSrcList = new ArrayList<>( );
-            for ( int i = 0; i < imgList.getLength( ); i++ )
+            if ( elmt.hasAttribute( ATTRIBUTE_NAME )
+                    && ATTRIBUTE_CONFIGURATION_VALUE.equals( elmt.getAttribute( ATTRIBUTE_NAME ) ) )
             {
-                Element elmt = (Element) imgList.item( i );
-                imagesSrcList.add( elmt.getAttribute( ATTRIBUTE_SRC ) );
+                strConfiguration.append( elmt.getTextContent( ) );
             }
-            component.set( Component.SITE_IMGS + strLANG, imagesSrcList );
 
+            if ( elmt.hasAttribute( ATTRIBUTE_NAME )
+                    && ATTRIBUTE_USAGE_VALUE.equals( elmt.getAttribute( ATTRIBUTE_NAME ) ) )
+            {
+                strUsage.append( elmt.getTextContent( ) );
+            }
         }
-        catch ( HttpAccessException e )
-        {
-            sbLogs.append( "\n*** ERROR *** Error reading site index for component :" )
-                    .append( component.getArtifactId( ) ).append( " [url : " + strXdocSiteIndexUrl + "]" )
-                    .append( EXCEPTION_MESSAGE );
-        }
-        catch ( Exception e )
+
+        component.set( Component.SITE_INTRODUCTION + strLANG, strIntroduction.toString( ) );
+        component.set( Component.SITE_CONFIGURATION + strLANG, strConfiguration.toString( ) );
+        component.set( Component.SITE_USAGE + strLANG, strUsage.toString( ) );
+
+        NodeList imgList = root.getElementsByTagName( TAG_IMG );
+        List<String> imagesSrcList = new ArrayList<>( );
+        for ( int i = 0; i < imgList.getLength( ); i++ )
         {
-            AppLogService.error( EXCEPTION_MESSAGE + component.getArtifactId( ) + " : " + e.getMessage( ), e );
+            Element elmt = (Element) imgList.item( i );
+            imagesSrcList.add( elmt.getAttribute( ATTRIBUTE_SRC ) );
         }
+        component.set( Component.SITE_IMGS + strLANG, imagesSrcList );
     }
 
 }
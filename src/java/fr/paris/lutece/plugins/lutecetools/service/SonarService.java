@@ -33,18 +33,26 @@
  */
 package fr.paris.lutece.plugins.lutecetools.service;
 
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-import org.codehaus.jettison.json.JSONArray;
-import org.codehaus.jettison.json.JSONException;
-import org.codehaus.jettison.json.JSONObject;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import fr.paris.lutece.plugins.lutecetools.business.Component;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
-import fr.paris.lutece.util.httpaccess.HttpAccess;
 import fr.paris.lutece.util.httpaccess.HttpAccessException;
 
 /**
@@ -57,6 +65,10 @@ public class SonarService implements ComponentInfoFiller
     public static final String SONAR_RCI = "sonarRci";
 
     private static final String SERVICE_NAME = "Sonar Info filler service registered";
+    private static final String PROPERTY_REFRESH_INTERVAL = "lutecetools.sonar.refreshInterval";
+    private static final long DEFAULT_REFRESH_INTERVAL = 86400000L;
+    private static final long REFRESH_INTERVAL = AppPropertiesService.getPropertyLong( PROPERTY_REFRESH_INTERVAL, DEFAULT_REFRESH_INTERVAL );
+    private static final int COST = 1; // measures request, if not served by the bulk prefetch
     // URL
     private static final String PROPERTY_SONAR_JSON_URL = "lutecetools.sonar.json.url";
     private static final String URL_SONAR_JSON = AppPropertiesService.getProperty( PROPERTY_SONAR_JSON_URL );
@@ -70,6 +82,21 @@ public class SonarService implements ComponentInfoFiller
     private static final String SONAR_USERNAME = AppPropertiesService.getProperty( PROPERTY_SONAR_USERNAME );
     private static final String PROPERTY_SONAR_PASSWORD = "lutecetools.sonar.json.password";
     private static final String SONAR_PASSWORD = AppPropertiesService.getProperty( PROPERTY_SONAR_PASSWORD );
+    private static final String PROPERTY_SONAR_API_URL = "lutecetools.sonar.api.url";
+    private static final String URL_SONAR_API = AppPropertiesService.getProperty( PROPERTY_SONAR_API_URL, getDefaultApiUrl( ) );
+    private static final String PROPERTY_BULK_ENABLED = "lutecetools.sonar.bulk.enabled";
+    private static final boolean BULK_ENABLED = AppPropertiesService.getPropertyBoolean( PROPERTY_BULK_ENABLED, true );
+    private static final String PROPERTY_BULK_PAGE_SIZE = "lutecetools.sonar.bulk.pageSize";
+    private static final int BULK_PAGE_SIZE = AppPropertiesService.getPropertyInt( PROPERTY_BULK_PAGE_SIZE, 500 );
+    private static final String PROPERTY_BULK_BATCH_SIZE = "lutecetools.sonar.bulk.batchSize";
+    private static final int BULK_BATCH_SIZE = AppPropertiesService.getPropertyInt( PROPERTY_BULK_BATCH_SIZE, 100 );
+    private static final String PROPERTY_BULK_TTL = "lutecetools.sonar.bulk.ttl";
+    private static final long BULK_TTL = AppPropertiesService.getPropertyLong( PROPERTY_BULK_TTL, 3600000L );
+    // Bulk requests
+    private static final String URL_COMPONENTS_SEARCH = "components/search?qualifiers=TRK&ps=";
+    private static final String URL_MEASURES_SEARCH = "measures/search?metricKeys=ncloc,sqale_debt_ratio&projectKeys=";
+    private static final String PARAMETER_PAGE = "&p=";
+    private static final String ENCODING = "UTF-8";
     // Tags
     private static final String TAG_LUTECE_CORE = "lutece-core";
 
@@ -80,8 +107,44 @@ public class SonarService implements ComponentInfoFiller
     private static final String KEY_VALUE = "value";
     private static final String KEY_NCLOC = "ncloc";
     private static final String KEY_SQALE_DEBT_RATIO = "sqale_debt_ratio";
+    private static final String KEY_COMPONENTS = "components";
+    private static final String KEY_KEY = "key";
+    private static final String KEY_PAGING = "paging";
+    private static final String KEY_TOTAL = "total";
+
+    private static final String KEY_PREFIX_CORE = getKeyPrefix( RESOURCE_LC_SONAR_JSON );
+    private static final String KEY_PREFIX_PLUGINS = getKeyPrefix( RESOURCE_PLUGINS_SONAR_JSON );
+    private static final Map<String, String> HEADERS = createHeaders( );
 
-    private static HttpAccess _httpAccess = new HttpAccess( );
+    private static final ObjectReader _reader = new ObjectMapper( ).reader( );
+    private static volatile BulkMeasures _bulkMeasures;
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long getRefreshInterval( )
+    {
+        return REFRESH_INTERVAL;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int getCost( )
+    {
+        return COST;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String getRateLimitKey( )
+    {
+        return RateLimiter.SERVICE_SONAR;
+    }
 
     /**
      * {@inheritDoc }
@@ -115,13 +178,36 @@ public class SonarService implements ComponentInfoFiller
     }
 
     /**
-     * get metrics from Sonar Webservice
+     * get metrics from Sonar Webservice. The metrics are served from the bulk prefetch when available, otherwise (bulk prefetch disabled or
+     * failed, or component not found by the bulk search) they are requested for this component only.
      *
      * @param strArtifactId
      *         The ArtifactId
      * @return The metrics HashMap
      */
     public Map<String, String> getSonarMetrics( String strArtifactId )
+    {
+        BulkMeasures bulkMeasures = getBulkMeasures( );
+        Map<String, String> metrics = ( bulkMeasures != null ) ? bulkMeasures.get( getComponentKey( strArtifactId ) ) : null;
+        return ( metrics != null ) ? metrics : fetchSonarMetrics( strArtifactId );
+    }
+
+    /**
+     * Clear the metrics fetched by the bulk prefetch
+     */
+    public static void clearCache( )
+    {
+        _bulkMeasures = null;
+    }
+
+    /**
+     * get metrics of a component from the Sonar measures/component Webservice
+     *
+     * @param strArtifactId
+     *         The ArtifactId
+     * @return The metrics HashMap
+     */
+    private static Map<String, String> fetchSonarMetrics( String strArtifactId )
     {
         Map<String, String> metrics = new HashMap<>( );
         StringBuilder sbJSONUrl;
@@ -135,45 +221,332 @@ public class SonarService implements ComponentInfoFiller
             sbJSONUrl.append( RESOURCE_PLUGINS_SONAR_JSON ).append( strArtifactId ).append( METRICS_SONAR_JSON );
         }
 
+        Map<String, String> mapHeadersResponse = new HashMap<>( );
         try
         {
-            // Add Basic Auth header
-            String auth = SONAR_USERNAME + ":" + SONAR_PASSWORD;
-            String encodedAuth = Base64.getEncoder( ).encodeToString( auth.getBytes( ) );
-            String authHeader = "Basic " + encodedAuth;
-            Map<String, String> headers = new HashMap<>( );
-            headers.put( "Authorization", authHeader );
-            headers.put( "Accept", "application/json" );
+            // Make the HTTP GET request and parse the response stream
+            JsonNode json = StreamingHttpAccess.doGet( sbJSONUrl.toString( ), HEADERS, mapHeadersResponse, _reader::readTree );
+            if ( json == null )
+            {
+                return metrics;
+            }
+            JsonNode measures = json.path( KEY_COMPONENT ).path( KEY_MEASURES );
 
-            // Make the HTTP GET request
-            String strHtml = _httpAccess.doGet( sbJSONUrl.toString( ), null, null, headers );
+            for ( JsonNode key : measures )
+            {
+                putMetric( metrics, key.path( KEY_METRIC ).asText( ), key.path( KEY_VALUE ) );
+            }
+        }
+        catch( HttpAccessException | IOException | SAXException | ParserConfigurationException e )
+        {
+            AppLogService.error( e.getMessage( ) );
+        }
+        finally
+        {
+            RateLimiter.updateFromHeaders( RateLimiter.SERVICE_SONAR, mapHeadersResponse );
+        }
 
-            JSONObject json = new JSONObject( strHtml );
-            JSONObject component = json.getJSONObject( KEY_COMPONENT );
+        return metrics;
+    }
 
-            JSONArray measures = component.getJSONArray( KEY_MEASURES );
+    /**
+     * Gets the metrics of all the components, searching them again if outdated
+     *
+     * @return The metrics or null if the bulk prefetch is disabled or failed
+     */
+    private static BulkMeasures getBulkMeasures( )
+    {
+        if ( !BULK_ENABLED || ( URL_SONAR_API == null ) )
+        {
+            return null;
+        }
+        BulkMeasures bulkMeasures = _bulkMeasures;
+        if ( ( bulkMeasures != null ) && !bulkMeasures.isOutdated( ) )
+        {
+            return bulkMeasures.isAvailable( ) ? bulkMeasures : null;
+        }
+        synchronized( SonarService.class )
+        {
+            if ( ( _bulkMeasures == null ) || _bulkMeasures.isOutdated( ) )
+            {
+                _bulkMeasures = searchMeasures( );
+            }
+            return _bulkMeasures.isAvailable( ) ? _bulkMeasures : null;
+        }
+    }
 
-            for ( int i = 0; i < measures.length( ); i++ )
+    /**
+     * Search the keys of all the plugins projects, then their metrics by batches of keys
+     *
+     * @return The metrics
+     */
+    private static BulkMeasures searchMeasures( )
+    {
+        BulkMeasures bulkMeasures = new BulkMeasures( );
+        try
+        {
+            List<String> listKeys = searchComponentKeys( );
+            if ( listKeys == null )
+            {
+                AppLogService.info( "LuteceTools : SonarService - Components search not available, falling back to requests by component" );
+                return bulkMeasures;
+            }
+            if ( listKeys.isEmpty( ) )
             {
-                JSONObject key = measures.getJSONObject( i );
+                AppLogService.info(
+                        "LuteceTools : SonarService - No plugin project found by the components search, falling back to requests by component" );
+                return bulkMeasures;
+            }
+            listKeys.add( getComponentKey( TAG_LUTECE_CORE ) );
 
-                if ( key.getString( KEY_METRIC ).equals( KEY_NCLOC ) )
+            int nRequests = 0;
+            for ( int i = 0; i < listKeys.size( ); i += BULK_BATCH_SIZE )
+            {
+                List<String> listBatch = listKeys.subList( i, Math.min( i + BULK_BATCH_SIZE, listKeys.size( ) ) );
+                String strUrl = URL_SONAR_API + URL_MEASURES_SEARCH + URLEncoder.encode( String.join( ",", listBatch ), ENCODING );
+                JsonNode json = doBulkGet( strUrl );
+                nRequests++;
+                if ( json == null )
                 {
-                    metrics.put( KEY_NCLOC, key.getString( KEY_VALUE ) );
+                    AppLogService.info( "LuteceTools : SonarService - Measures search not available, falling back to requests by component" );
+                    return bulkMeasures;
+                }
+                for ( JsonNode measure : json.path( KEY_MEASURES ) )
+                {
+                    bulkMeasures.put( measure.path( KEY_COMPONENT ).asText( ), measure.path( KEY_METRIC ).asText( ), measure.path( KEY_VALUE ) );
                 }
-                else
-                    if ( key.getString( KEY_METRIC ).equals( KEY_SQALE_DEBT_RATIO ) )
-                    {
-                        metrics.put( KEY_SQALE_DEBT_RATIO, String.valueOf( 100 - key.getInt( KEY_VALUE ) ) + "%" );
-                    }
             }
+
+            bulkMeasures.setAvailable( );
+            AppLogService.info( "LuteceTools : SonarService - metrics of " + listKeys.size( ) + " components fetched in bulk by " + nRequests
+                    + " measures requests" );
         }
-        catch( HttpAccessException | JSONException e )
+        catch( HttpAccessException | IOException | SAXException | ParserConfigurationException e )
         {
-            AppLogService.error( e.getMessage( ) );
+            AppLogService.error( "LuteceTools : SonarService - Error fetching metrics in bulk, falling back to requests by component : " + e.getMessage( ),
+                    e );
         }
+        return bulkMeasures;
+    }
 
-        return metrics;
+    /**
+     * Search the keys of all the plugins projects, page by page. The q parameter only matches the names or the exact key of the projects, so all the
+     * projects are listed and the plugins are filtered by their key prefix.
+     *
+     * @return The keys or null if the search is not available
+     * @throws HttpAccessException
+     *             if an error occurs
+     * @throws IOException
+     *             if an error occurs
+     * @throws SAXException
+     *             if an error occurs
+     * @throws ParserConfigurationException
+     *             if an error occurs
+     */
+    private static List<String> searchComponentKeys( ) throws HttpAccessException, IOException, SAXException, ParserConfigurationException
+    {
+        List<String> listKeys = new ArrayList<>( );
+        int nPage = 1;
+        int nFetched = 0;
+        int nTotal;
+        do
+        {
+            String strUrl = URL_SONAR_API + URL_COMPONENTS_SEARCH + BULK_PAGE_SIZE + PARAMETER_PAGE + nPage;
+            JsonNode json = doBulkGet( strUrl );
+            if ( json == null )
+            {
+                return null;
+            }
+            JsonNode components = json.path( KEY_COMPONENTS );
+            for ( JsonNode component : components )
+            {
+                String strKey = component.path( KEY_KEY ).asText( );
+                if ( strKey.startsWith( KEY_PREFIX_PLUGINS ) )
+                {
+                    listKeys.add( strKey );
+                }
+            }
+            nTotal = json.path( KEY_PAGING ).path( KEY_TOTAL ).asInt( );
+            nFetched += components.size( );
+            nPage++;
+            if ( components.size( ) == 0 )
+            {
+                break;
+            }
+        }
+        while ( nFetched < nTotal );
+
+        return listKeys;
     }
 
+    /**
+     * Do a bulk request paced by the rate limiter
+     *
+     * @param strUrl
+     *            The URL
+     * @return The JSON response
+     * @throws HttpAccessException
+     *             if an error occurs or if the rate limit is exhausted
+     * @throws IOException
+     *             if an error occurs
+     * @throws SAXException
+     *             if an error occurs
+     * @throws ParserConfigurationException
+     *             if an error occurs
+     */
+    private static JsonNode doBulkGet( String strUrl ) throws HttpAccessException, IOException, SAXException, ParserConfigurationException
+    {
+        if ( !RateLimiter.acquire( RateLimiter.SERVICE_SONAR, 1, false ) )
+        {
+            throw new HttpAccessException( "Sonar rate limit exhausted", null );
+        }
+        Map<String, String> mapHeadersResponse = new HashMap<>( );
+        try
+        {
+            return StreamingHttpAccess.doGet( strUrl, HEADERS, mapHeadersResponse, _reader::readTree );
+        }
+        finally
+        {
+            RateLimiter.updateFromHeaders( RateLimiter.SERVICE_SONAR, mapHeadersResponse );
+        }
+    }
+
+    /**
+     * Put a metric converted for display into a metrics map
+     *
+     * @param metrics
+     *            The metrics map
+     * @param strMetric
+     *            The metric key
+     * @param value
+     *            The metric value
+     */
+    private static void putMetric( Map<String, String> metrics, String strMetric, JsonNode value )
+    {
+        if ( strMetric.equals( KEY_NCLOC ) )
+        {
+            metrics.put( KEY_NCLOC, value.asText( ) );
+        }
+        else
+            if ( strMetric.equals( KEY_SQALE_DEBT_RATIO ) )
+            {
+                metrics.put( KEY_SQALE_DEBT_RATIO, String.valueOf( 100 - (int) value.asDouble( ) ) + "%" );
+            }
+    }
+
+    /**
+     * Gets the Sonar key of a component
+     *
+     * @param strArtifactId
+     *            The ArtifactId
+     * @return The key
+     */
+    private static String getComponentKey( String strArtifactId )
+    {
+        return ( strArtifactId.equals( TAG_LUTECE_CORE ) ? KEY_PREFIX_CORE : KEY_PREFIX_PLUGINS ) + strArtifactId;
+    }
+
+    /**
+     * Gets the key prefix of a resource parameter (?component=prefix)
+     *
+     * @param strResource
+     *            The resource parameter
+     * @return The prefix
+     */
+    private static String getKeyPrefix( String strResource )
+    {
+        return ( strResource == null ) ? "" : strResource.substring( strResource.indexOf( '=' ) + 1 );
+    }
+
+    /**
+     * Gets the default API URL from the measures/component URL
+     *
+     * @return The URL or null
+     */
+    private static String getDefaultApiUrl( )
+    {
+        int nPos = ( URL_SONAR_JSON == null ) ? -1 : URL_SONAR_JSON.indexOf( "measures/" );
+        return ( nPos > 0 ) ? URL_SONAR_JSON.substring( 0, nPos ) : null;
+    }
+
+    /**
+     * Creates the request headers, with the Basic Auth header built once
+     *
+     * @return The headers
+     */
+    private static Map<String, String> createHeaders( )
+    {
+        String auth = SONAR_USERNAME + ":" + SONAR_PASSWORD;
+        String encodedAuth = Base64.getEncoder( ).encodeToString( auth.getBytes( ) );
+        Map<String, String> headers = new HashMap<>( );
+        headers.put( "Authorization", "Basic " + encodedAuth );
+        headers.put( "Accept", "application/json" );
+        return Collections.unmodifiableMap( headers );
+    }
+
+    /**
+     * Metrics of all the components, by component key
+     */
+    private static final class BulkMeasures
+    {
+        private final Map<String, Map<String, String>> _mapMetrics = new HashMap<>( );
+        private final long _lCreated = System.currentTimeMillis( );
+        private boolean _bAvailable;
+
+        /**
+         * Put a metric of a component
+         *
+         * @param strComponentKey
+         *            The component key
+         * @param strMetric
+         *            The metric key
+         * @param value
+         *            The metric value
+         */
+        void put( String strComponentKey, String strMetric, JsonNode value )
+        {
+            putMetric( _mapMetrics.computeIfAbsent( strComponentKey, key -> new HashMap<>( ) ), strMetric, value );
+        }
+
+        /**
+         * Gets the metrics of a component
+         *
+         * @param strComponentKey
+         *            The component key
+         * @return The metrics or null if the component has not been found by the bulk search
+         */
+        Map<String, String> get( String strComponentKey )
+        {
+            Map<String, String> metrics = _mapMetrics.get( strComponentKey );
+            return ( metrics != null ) ? new HashMap<>( metrics ) : null;
+        }
+
+        /**
+         * Mark the metrics as complete
+         */
+        void setAvailable( )
+        {
+            _bAvailable = true;
+        }
+
+        /**
+         * Returns true if the metrics of all the components have been fetched
+         *
+         * @return true if available
+         */
+        boolean isAvailable( )
+        {
+            return _bAvailable;
+        }
+
+        /**
+         * Returns true if the metrics must be searched again
+         *
+         * @return true if outdated
+         */
+        boolean isOutdated( )
+        {
+            return System.currentTimeMillis( ) - _lCreated > BULK_TTL;
+        }
+    }
 }
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.xml.sax.SAXException;
+
+import fr.paris.lutece.util.httpaccess.HttpAccessException;
+
+/**
+ * Sends GET (and POST) requests on the shared HTTP client. The response body is either handed as a stream straight to a parser, instead of being
+ * buffered as a String, or read as a String by the callers that need the whole text (directory listings).
+ */
+public final class StreamingHttpAccess
+{
+    private static final int SC_NOT_MODIFIED = 304;
+    private static final int SC_MULTIPLE_CHOICES = 300;
+
+    /**
+     * Private constructor
+     */
+    private StreamingHttpAccess( )
+    {
+    }
+
+    /**
+     * Do a GET request and handle the response body as a stream
+     * 
+     * @param <T>
+     *            The type of the result
+     * @param strUrl
+     *            The URL
+     * @param mapHeadersRequest
+     *            The request headers (may be null)
+     * @param mapHeadersResponse
+     *            A map to receive the response headers (may be null). It is filled before the handler is called, and also for an error status
+     * @param handler
+     *            The handler of the response body
+     * @return The result of the handler
+     * @throws HttpAccessException
+     *             if the request fails or if the response status is not a success. A {@link NotModifiedException} is thrown for a 304 status
+     * @throws IOException
+     *             if the handler fails to read the body
+     * @throws SAXException
+     *             if the handler fails to parse the body
+     * @throws ParserConfigurationException
+     *             if the handler can't create its parser
+     */
+    public static <T> T doGet( String strUrl, Map<String, String> mapHeadersRequest, Map<String, String> mapHeadersResponse, ResponseStreamHandler<T> handler )
+            throws HttpAccessException, IOException, SAXException, ParserConfigurationException
+    {
+        return handle( new HttpGet( strUrl ), mapHeadersRequest, mapHeadersResponse, handler );
+    }
+
+    /**
+     * Do a POST request with a JSON body and handle the response body as a stream
+     * 
+     * @param <T>
+     *            The type of the result
+     * @param strUrl
+     *            The URL
+     * @param mapHeadersRequest
+     *            The request headers (may be null)
+     * @param strJson
+     *            The JSON body
+     * @param mapHeadersResponse
+     *            A map to receive the response headers (may be null). It is filled before the handler is called, and also for an error status
+     * @param handler
+     *            The handler of the response body
+     * @return The result of the handler
+     * @throws HttpAccessException
+     *             if the request fails or if the response status is not a success
+     * @throws IOException
+     *             if the handler fails to read the body
+     * @throws SAXException
+     *             if the handler fails to parse the body
+     * @throws ParserConfigurationException
+     *             if the handler can't create its parser
+     */
+    public static <T> T doPostJson( String strUrl, Map<String, String> mapHeadersRequest, String strJson, Map<String, String> mapHeadersResponse,
+            ResponseStreamHandler<T> handler ) throws HttpAccessException, IOException, SAXException, ParserConfigurationException
+    {
+        HttpPost request = new HttpPost( strUrl );
+        request.setEntity( new StringEntity( strJson, ContentType.APPLICATION_JSON ) );
+        return handle( request, mapHeadersRequest, mapHeadersResponse, handler );
+    }
+
+    /**
+     * Execute a request and handle the response body as a stream
+     * 
+     * @param <T>
+     *            The type of the result
+     * @param request
+     *            The request
+     * @param mapHeadersRequest
+     *            The request headers (may be null)
+     * @param mapHeadersResponse
+     *            A map to receive the response headers (may be null)
+     * @param handler
+     *            The handler of the response body
+     * @return The result of the handler
+     * @throws HttpAccessException
+     *             if the request fails or if the response status is not a success
+     * @throws IOException
+     *             if the handler fails to read the body
+     * @throws SAXException
+     *             if the handler fails to parse the body
+     * @throws ParserConfigurationException
+     *             if the handler can't create its parser
+     */
+    private static <T> T handle( HttpRequestBase request, Map<String, String> mapHeadersRequest, Map<String, String> mapHeadersResponse,
+            ResponseStreamHandler<T> handler ) throws HttpAccessException, IOException, SAXException, ParserConfigurationException
+    {
+        CloseableHttpResponse response = execute( request, mapHeadersRequest, mapHeadersResponse );
+
+        try
+        {
+            HttpEntity entity = response.getEntity( );
+            if ( entity == null )
+            {
+                throw new HttpAccessException( request.getMethod( ) + " request " + request.getURI( ) + " returned no content", null );
+            }
+            try ( InputStream is = entity.getContent( ) )
+            {
+                return handler.handle( is );
+            }
+        }
+        finally
+        {
+            EntityUtils.consumeQuietly( response.getEntity( ) );
+            response.close( );
+        }
+    }
+
+    /**
+     * Do a GET request and returns the response body as a String decoded with the charset of the response (UTF-8 by default)
+     * 
+     * @param strUrl
+     *            The URL
+     * @param mapHeadersRequest
+     *            The request headers (may be null)
+     * @param mapHeadersResponse
+     *            A map to receive the response headers (may be null)
+     * @return The response body
+     * @throws HttpAccessException
+     *             if the request fails or if the response status is not a success. A {@link NotModifiedException} is thrown for a 304 status
+     */
+    public static String doGet( String strUrl, Map<String, String> mapHeadersRequest, Map<String, String> mapHeadersResponse ) throws HttpAccessException
+    {
+        CloseableHttpResponse response = execute( new HttpGet( strUrl ), mapHeadersRequest, mapHeadersResponse );
+
+        try
+        {
+            HttpEntity entity = response.getEntity( );
+            return ( entity != null ) ? EntityUtils.toString( entity, StandardCharsets.UTF_8 ) : "";
+        }
+        catch( IOException e )
+        {
+            throw new HttpAccessException( "Error reading GET response " + strUrl + " : " + e.getMessage( ), e );
+        }
+        finally
+        {
+            EntityUtils.consumeQuietly( response.getEntity( ) );
+            closeQuietly( response );
+        }
+    }
+
+    /**
+     * Execute a request and check the response status
+     * 
+     * @param request
+     *            The request
+     * @param mapHeadersRequest
+     *            The request headers (may be null)
+     * @param mapHeadersResponse
+     *            A map to receive the response headers (may be null)
+     * @return The response, to be closed by the caller
+     * @throws HttpAccessException
+     *             if the request fails or if the response status is not a success
+     */
+    private static CloseableHttpResponse execute( HttpRequestBase request, Map<String, String> mapHeadersRequest, Map<String, String> mapHeadersResponse )
+            throws HttpAccessException
+    {
+        String strUrl = request.getURI( ).toString( );
+        if ( mapHeadersRequest != null )
+        {
+            for ( Map.Entry<String, String> header : mapHeadersRequest.entrySet( ) )
+            {
+                request.setHeader( header.getKey( ), header.getValue( ) );
+            }
+        }
+
+        CloseableHttpResponse response;
+        try
+        {
+            response = HttpClientService.getClient( ).execute( request );
+        }
+        catch( IOException e )
+        {
+            throw new HttpAccessException( "Error executing " + request.getMethod( ) + " request " + strUrl + " : " + e.getMessage( ), e );
+        }
+
+        // the headers are also given for an error status (rate limit headers)
+        if ( mapHeadersResponse != null )
+        {
+            for ( Header header : response.getAllHeaders( ) )
+            {
+                mapHeadersResponse.put( header.getName( ), header.getValue( ) );
+            }
+        }
+        int nStatus = response.getStatusLine( ).getStatusCode( );
+        if ( ( nStatus == SC_NOT_MODIFIED ) || ( nStatus >= SC_MULTIPLE_CHOICES ) )
+        {
+            String strStatus = response.getStatusLine( ).toString( );
+            EntityUtils.consumeQuietly( response.getEntity( ) );
+            closeQuietly( response );
+            if ( nStatus == SC_NOT_MODIFIED )
+            {
+                throw new NotModifiedException( strUrl );
+            }
+            throw new HttpAccessException( request.getMethod( ) + " request " + strUrl + " returned status " + strStatus, null );
+        }
+        return response;
+    }
+
+    /**
+     * Close a response, releasing its connection to the pool
+     * 
+     * @param response
+     *            The response
+     */
+    private static void closeQuietly( CloseableHttpResponse response )
+    {
+        try
+        {
+            response.close( );
+        }
+        catch( IOException e )
+        {
+            // the connection is discarded
+        }
+    }
+
+    /**
+     * Exception thrown when the resource has not been modified (304)
+     */
+    public static class NotModifiedException extends HttpAccessException
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor
+         * 
+         * @param strUrl
+         *            The URL
+         */
+        NotModifiedException( String strUrl )
+        {
+            super( "Not modified : " + strUrl, null );
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service.codec;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.paris.lutece.plugins.lutecetools.business.Component;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Encodes and decodes the components payloads stored into the Datastore. Payloads are prefixed by a header holding the format version and the codec
+ * name (ie: LTC1:json+gzip:...). Payloads without header are legacy JSON entries.
+ */
+public final class ComponentCodecService
+{
+    private static final String PROPERTY_CODEC = "lutecetools.cache.codec";
+    private static final String HEADER_PREFIX = "LTC";
+    private static final int FORMAT_VERSION = 1;
+    private static final char HEADER_SEPARATOR = ':';
+
+    private static Map<String, ComponentCodec> _mapCodecs = new ConcurrentHashMap<>( );
+    private static ComponentCodec _codec;
+
+    static
+    {
+        register( new JsonComponentCodec( ) );
+        register( new GzipJsonComponentCodec( ) );
+        String strCodec = AppPropertiesService.getProperty( PROPERTY_CODEC, GzipJsonComponentCodec.NAME );
+        _codec = _mapCodecs.get( strCodec );
+        if ( _codec == null )
+        {
+            AppLogService.error( "LuteceTools : Unknown component codec '" + strCodec + "', using " + JsonComponentCodec.NAME );
+            _codec = _mapCodecs.get( JsonComponentCodec.NAME );
+        }
+    }
+
+    /**
+     * Private constructor
+     */
+    private ComponentCodecService( )
+    {
+    }
+
+    /**
+     * Register a codec
+     * 
+     * @param codec
+     *            The codec
+     */
+    public static void register( ComponentCodec codec )
+    {
+        _mapCodecs.put( codec.getName( ), codec );
+    }
+
+    /**
+     * Encode a component with the configured codec
+     * 
+     * @param component
+     *            The component
+     * @return The payload with its header
+     * @throws IOException
+     *             if an error occurs
+     */
+    public static String encode( Component component ) throws IOException
+    {
+        return HEADER_PREFIX + FORMAT_VERSION + HEADER_SEPARATOR + _codec.getName( ) + HEADER_SEPARATOR + _codec.encode( component );
+    }
+
+    /**
+     * Decode a component with the codec named in the payload header
+     * 
+     * @param strData
+     *            The payload with its header or a legacy JSON payload
+     * @return The component
+     * @throws IOException
+     *             if an error occurs
+     */
+    public static Component decode( String strData ) throws IOException
+    {
+        if ( !strData.startsWith( HEADER_PREFIX ) )
+        {
+            // Legacy entry : JSON without header
+            return _mapCodecs.get( JsonComponentCodec.NAME ).decode( strData );
+        }
+
+        int nVersionEnd = strData.indexOf( HEADER_SEPARATOR );
+        int nCodecEnd = ( nVersionEnd > 0 ) ? strData.indexOf( HEADER_SEPARATOR, nVersionEnd + 1 ) : -1;
+        if ( nCodecEnd < 0 )
+        {
+            throw new IOException( "Invalid component payload header" );
+        }
+
+        String strVersion = strData.substring( HEADER_PREFIX.length( ), nVersionEnd );
+        if ( !String.valueOf( FORMAT_VERSION ).equals( strVersion ) )
+        {
+            throw new IOException( "Unsupported component payload format version : " + strVersion );
+        }
+
+        String strCodec = strData.substring( nVersionEnd + 1, nCodecEnd );
+        ComponentCodec codec = _mapCodecs.get( strCodec );
+        if ( codec == null )
+        {
+            throw new IOException( "Unknown component codec : " + strCodec );
+        }
+
+        return codec.decode( strData.substring( nCodecEnd + 1 ) );
+    }
+}
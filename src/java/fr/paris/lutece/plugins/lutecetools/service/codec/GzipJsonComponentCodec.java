@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import fr.paris.lutece.plugins.lutecetools.business.Component;
+
+/**
+ * Gzipped compact JSON codec. The compressed bytes are Base64 encoded since the Datastore stores text values.
+ */
+public class GzipJsonComponentCodec implements ComponentCodec
+{
+    public static final String NAME = "json+gzip";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final JsonComponentCodec _jsonCodec = new JsonComponentCodec( );
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String getName( )
+    {
+        return NAME;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String encode( Component component ) throws IOException
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream( );
+        try ( GZIPOutputStream gzip = new GZIPOutputStream( baos ) )
+        {
+            gzip.write( _jsonCodec.encodeAsBytes( component ) );
+        }
+        return Base64.getEncoder( ).encodeToString( baos.toByteArray( ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Component decode( String strPayload ) throws IOException
+    {
+        byte [ ] compressed = Base64.getDecoder( ).decode( strPayload );
+        ByteArrayOutputStream baos = new ByteArrayOutputStream( compressed.length * 4 );
+        try ( GZIPInputStream gzip = new GZIPInputStream( new ByteArrayInputStream( compressed ), BUFFER_SIZE ) )
+        {
+            byte [ ] buffer = new byte [ BUFFER_SIZE];
+            int nRead;
+            while ( ( nRead = gzip.read( buffer ) ) != -1 )
+            {
+                baos.write( buffer, 0, nRead );
+            }
+        }
+        return _jsonCodec.decodeFromBytes( baos.toByteArray( ) );
+    }
+}
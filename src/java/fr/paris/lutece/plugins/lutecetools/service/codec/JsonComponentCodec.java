@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service.codec;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import fr.paris.lutece.plugins.lutecetools.business.Component;
+
+/**
+ * Compact (not indented) JSON codec
+ */
+public class JsonComponentCodec implements ComponentCodec
+{
+    public static final String NAME = "json";
+
+    private static final ObjectMapper _mapper = new ObjectMapper( );
+    private static final ObjectWriter _writer = _mapper.writerFor( Component.class );
+    private static final ObjectReader _reader = _mapper.readerFor( Component.class );
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String getName( )
+    {
+        return NAME;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String encode( Component component ) throws IOException
+    {
+        return _writer.writeValueAsString( component );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Component decode( String strPayload ) throws IOException
+    {
+        return _reader.readValue( strPayload );
+    }
+
+    /**
+     * Encode a component as JSON UTF-8 bytes
+     * 
+     * @param component
+     *            The component
+     * @return The bytes
+     * @throws IOException
+     *             if an error occurs
+     */
+    byte [ ] encodeAsBytes( Component component ) throws IOException
+    {
+        return _writer.writeValueAsBytes( component );
+    }
+
+    /**
+     * Decode a component from JSON UTF-8 bytes
+     * 
+     * @param bytes
+     *            The bytes
+     * @return The component
+     * @throws IOException
+     *             if an error occurs
+     */
+    Component decodeFromBytes( byte [ ] bytes ) throws IOException
+    {
+        return _reader.readValue( bytes );
+    }
+}
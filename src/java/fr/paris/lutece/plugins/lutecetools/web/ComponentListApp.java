@@ -45,7 +45,13 @@ import fr.paris.lutece.plugins.lutecetools.business.Component;
 import fr.paris.lutece.plugins.lutecetools.service.AbstractGitPlatformService;
 import fr.paris.lutece.plugins.lutecetools.service.ComponentService;
 import fr.paris.lutece.plugins.lutecetools.service.ComponentsInfos;
+import fr.paris.lutece.plugins.lutecetools.service.ConditionalHttpAccess;
+import fr.paris.lutece.plugins.lutecetools.service.GitHubCatalogue;
+import fr.paris.lutece.plugins.lutecetools.service.GitHubService;
+import fr.paris.lutece.plugins.lutecetools.service.GitLabCatalogue;
+import fr.paris.lutece.plugins.lutecetools.service.JiraService;
 import fr.paris.lutece.plugins.lutecetools.service.MavenRepoService;
+import fr.paris.lutece.plugins.lutecetools.service.RedmineService;
 import fr.paris.lutece.plugins.lutecetools.service.SonarService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
@@ -243,6 +249,14 @@ public class ComponentListApp extends MVCApplication
     public XPage clearCache( HttpServletRequest request )
     {
         ComponentService.clearCache( );
+        MavenRepoService.clearProbeCache( );
+        ConditionalHttpAccess.clear( );
+        GitHubCatalogue.clear( );
+        GitHubService.clearCache( );
+        GitLabCatalogue.clear( );
+        JiraService.clearCache( );
+        RedmineService.clearCache( );
+        SonarService.clearCache( );
         MavenRepoService.clearLogs( );
 
         return redirect( request, VIEW_HOME, getViewParameters( request ) );
@@ -224,7 +224,7 @@ public class ComponentRest
 
         try
         {
-            Component component = MavenRepoService.instance( ).getComponent( strArtifactId, true, !bCache, strType );
+            Component component = MavenRepoService.instance( ).getComponentStaleWhileRevalidate( strArtifactId, !bCache, strType );
 
             if ( component != null )
             {
@@ -263,7 +263,7 @@ public class ComponentRest
         try
         {
 
-            Component component = MavenRepoService.instance( ).getComponent( strArtifactId, true, !bCache, strType );
+            Component component = MavenRepoService.instance( ).getComponentStaleWhileRevalidate( strArtifactId, !bCache, strType );
 
             if ( component != null )
             {
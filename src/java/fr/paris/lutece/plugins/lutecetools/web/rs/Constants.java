@@ -38,6 +38,7 @@ public final class Constants
     public static final String PATH_COMPONENT = "component";
     public static final String PATH_PLUGIN = "lutecetools/";
     public static final String PATH_STATS = "stats";
+    public static final String PATH_RATE_LIMITS = "ratelimits";
     public static final String PATH_POM_BUILDER = "pombuilder";
     public static final String PATH_SITE = "site";
     public static final String PATH_JENKINS = "jenkins";
@@ -42,9 +42,9 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import fr.paris.lutece.plugins.lutecetools.service.JenkinsService;
+import fr.paris.lutece.plugins.lutecetools.service.StreamingHttpAccess;
 import fr.paris.lutece.plugins.rest.service.RestConstants;
 import fr.paris.lutece.portal.service.util.AppLogService;
-import fr.paris.lutece.util.httpaccess.HttpAccess;
 import fr.paris.lutece.util.httpaccess.HttpAccessException;
 
 /**
@@ -80,8 +80,7 @@ public class JenkinsRest
     {
         try
         {
-            HttpAccess httpAccess = new HttpAccess( );
-            String strContent = httpAccess.doGet( strUrl, _jenkinsService.getJenkinsAuthenticator( ), null );
+            String strContent = StreamingHttpAccess.doGet( strUrl, _jenkinsService.getJenkinsHeaders( ), null );
             return Response.ok( strContent, "image/svg+xml" ).build( );
         }
         catch( HttpAccessException ex )
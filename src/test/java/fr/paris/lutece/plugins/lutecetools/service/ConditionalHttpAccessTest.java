@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import fr.paris.lutece.plugins.lutecetools.stub.StubServer;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * ConditionalHttpAccessTest
+ */
+public class ConditionalHttpAccessTest extends LuteceTestCase
+{
+    private static final String METADATA_PATH = "nexus/repository/" + StubServer.REPOSITORY_RELEASES + "/fr/paris/lutece/plugins/";
+
+    /**
+     * Test that a streamed body is parsed directly and replayed when the resource has not been modified
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testStreamedConditionalGet( ) throws Exception
+    {
+        StubServer server = new StubServer( 3, 0 );
+        server.start( );
+        try
+        {
+            ConditionalHttpAccess.clear( );
+            String strArtifactId = server.getArtifactIds( ).get( 2 );
+            String strUrl = server.getBaseUrl( ) + METADATA_PATH + strArtifactId + "/maven-metadata.xml";
+
+            for ( int i = 0; i < 2; i++ )
+            {
+                SaxMetadataHandler handler = ConditionalHttpAccess.doGet( strUrl, null, is -> {
+                    SaxMetadataHandler metadata = new SaxMetadataHandler( );
+                    SAXParserFactory.newInstance( ).newSAXParser( ).parse( new InputSource( is ), metadata );
+                    return metadata;
+                } );
+                assertEquals( server.getContent( ).getReleases( strArtifactId ).size( ), handler.getVersions( ).size( ) );
+            }
+
+            assertEquals( 2, server.getRequestCount( ) );
+            assertEquals( 1, server.getNotModifiedCount( ) );
+            assertTrue( ConditionalHttpAccess.getBytes( ) > 0 );
+
+            ConditionalHttpAccess.clear( );
+            assertEquals( 0, ConditionalHttpAccess.getBytes( ) );
+        }
+        finally
+        {
+            server.stop( );
+            ConditionalHttpAccess.clear( );
+        }
+    }
+
+    /**
+     * Test that a listing is returned as a String and replayed when the resource has not been modified
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testConditionalGet( ) throws Exception
+    {
+        StubServer server = new StubServer( 3, 0 );
+        server.start( );
+        try
+        {
+            ConditionalHttpAccess.clear( );
+            String strUrl = server.getBaseUrl( ) + "nexus/service/rest/repository/browse/" + StubServer.REPOSITORY_RELEASES + "/fr/paris/lutece/plugins/";
+
+            String strListing = ConditionalHttpAccess.doGet( strUrl );
+            assertEquals( strListing, ConditionalHttpAccess.doGet( strUrl ) );
+            assertEquals( 4, ListingParser.getAnchorsList( strListing ).size( ) );
+            assertEquals( 1, server.getNotModifiedCount( ) );
+        }
+        finally
+        {
+            server.stop( );
+            ConditionalHttpAccess.clear( );
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import fr.paris.lutece.plugins.lutecetools.business.Component;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * EnrichmentPipelineTest
+ */
+public class EnrichmentPipelineTest extends LuteceTestCase
+{
+    private static final String ARTIFACT_ID = "plugin-enrichmentpipelinetest";
+    private static final String METRIC = "enrichmentPipelineTest.metric";
+
+    /**
+     * Test that the output of every filler is merged into the fetched component, including the component type that is not an attribute
+     */
+    @Test
+    public void testFetch( )
+    {
+        List<ComponentInfoFiller> listFillers = Arrays.asList( new ComponentTypeService( ), new MetricFiller( ) );
+        StringBuilder sbLogs = new StringBuilder( );
+
+        Component component = EnrichmentPipeline.fetch( ARTIFACT_ID, sb -> newComponent( ), listFillers, null, sbLogs );
+
+        assertEquals( "1.0.0", component.getVersion( ) );
+        assertEquals( "plugin", component.getComponentType( ) );
+        assertEquals( "42", component.get( METRIC ) );
+    }
+
+    /**
+     * Test that a failure of the Maven stage fails the fetch instead of returning a component that would be saved
+     */
+    @Test
+    public void testFetchMavenFailure( )
+    {
+        List<ComponentInfoFiller> listFillers = Arrays.asList( new ComponentTypeService( ), new MetricFiller( ) );
+        Component previous = newComponent( );
+        StringBuilder sbLogs = new StringBuilder( );
+
+        try
+        {
+            EnrichmentPipeline.fetch( ARTIFACT_ID, sb -> {
+                throw new IllegalStateException( "repository down" );
+            }, listFillers, previous, sbLogs );
+            fail( "The fetch should fail" );
+        }
+        catch( AppException e )
+        {
+            assertTrue( e.getMessage( ).contains( "repository down" ) );
+        }
+    }
+
+    /**
+     * Test the stages timeout : started by the stage, it interrupts the stage thread
+     *
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testSubmit( ) throws Exception
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor( );
+        try
+        {
+            assertEquals( "done", EnrichmentPipeline.submit( startClock -> "done", executor, 100L ).get( ) );
+
+            // the time spent in the queue is not counted
+            EnrichmentPipeline.submit( startClock -> sleep( 150L ), executor, 0L );
+            assertEquals( "queued", EnrichmentPipeline.submit( startClock -> {
+                startClock.run( );
+                return "queued";
+            }, executor, 50L ).get( ) );
+
+            // nor the time spent before the clock is started
+            assertEquals( "waited", EnrichmentPipeline.submit( startClock -> {
+                sleep( 100L );
+                startClock.run( );
+                return "waited";
+            }, executor, 50L ).get( ) );
+
+            CountDownLatch interrupted = new CountDownLatch( 1 );
+            CompletableFuture<String> future = EnrichmentPipeline.submit( startClock -> {
+                startClock.run( );
+                try
+                {
+                    Thread.sleep( 10000L );
+                }
+                catch( InterruptedException e )
+                {
+                    interrupted.countDown( );
+                }
+                return "late";
+            }, executor, 50L );
+            try
+            {
+                future.get( );
+                fail( "The stage should time out" );
+            }
+            catch( ExecutionException e )
+            {
+                assertTrue( e.getCause( ) instanceof TimeoutException );
+            }
+            assertTrue( interrupted.await( 1L, TimeUnit.SECONDS ) );
+
+            // the interrupt doesn't reach the next stage run by the thread
+            assertEquals( Boolean.FALSE, EnrichmentPipeline.submit( startClock -> Thread.currentThread( ).isInterrupted( ), executor, 0L ).get( ) );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Sleep, keeping the interrupt status
+     *
+     * @param lDuration
+     *            The duration in ms
+     * @return The duration
+     */
+    private static String sleep( long lDuration )
+    {
+        try
+        {
+            Thread.sleep( lDuration );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        return String.valueOf( lDuration );
+    }
+
+    /**
+     * Creates a component filled with its POM infos
+     *
+     * @return The component
+     */
+    private static Component newComponent( )
+    {
+        Component component = new Component( );
+        component.setArtifactId( ARTIFACT_ID );
+        component.setVersion( "1.0.0" );
+        ChangeDetector.setPomFingerprint( component );
+        return component;
+    }
+
+    /**
+     * Filler setting an attribute
+     */
+    private static final class MetricFiller implements ComponentInfoFiller
+    {
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void fill( Component component, StringBuilder sbLogs )
+        {
+            component.set( METRIC, "42" );
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public String getName( )
+        {
+            return "Metric test filler";
+        }
+    }
+}
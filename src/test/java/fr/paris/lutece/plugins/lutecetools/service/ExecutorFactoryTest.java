@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Test;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * ExecutorFactoryTest
+ */
+public class ExecutorFactoryTest extends LuteceTestCase
+{
+    /**
+     * Test the executors of the default mode
+     */
+    @Test
+    public void testNewExecutor( ) throws Exception
+    {
+        assertFalse( ExecutorFactory.isVirtualThreads( ) );
+        ExecutorService executor = ExecutorFactory.newExecutor( "test-", 2 );
+        try
+        {
+            Thread thread = executor.submit( Thread::currentThread ).get( );
+            assertTrue( thread.getName( ).startsWith( "test-" ) );
+            assertTrue( thread.isDaemon( ) );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Test that the shutdown interrupts the running tasks and awaits their end
+     */
+    @Test
+    public void testShutdown( ) throws Exception
+    {
+        ExecutorService executor = ExecutorFactory.newExecutor( "test-", 2 );
+        CountDownLatch started = new CountDownLatch( 1 );
+        executor.execute( ( ) -> {
+            started.countDown( );
+            try
+            {
+                Thread.sleep( 10000L );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        } );
+        started.await( );
+
+        ExecutorFactory.shutdown( executor, 1000L );
+
+        assertTrue( executor.isTerminated( ) );
+    }
+}
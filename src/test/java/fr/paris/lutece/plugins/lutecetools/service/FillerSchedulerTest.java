@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import fr.paris.lutece.plugins.lutecetools.business.Component;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * FillerSchedulerTest
+ */
+public class FillerSchedulerTest extends LuteceTestCase
+{
+    private static final String ARTIFACT_ID = "plugin-fillerschedulertest";
+    private static final String METRIC = "fillerSchedulerTest.metric";
+
+    /**
+     * Test that a slice refreshed with unchanged values is kept by the next Maven refresh of the component, and filled again after a new release
+     */
+    @Test
+    public void testUnchangedSliceSurvivesRefetch( ) throws Exception
+    {
+        ScheduledFiller filler = new ScheduledFiller( );
+        StringBuilder sbLogs = new StringBuilder( );
+
+        // First fetch
+        Component component = newComponent( "1.0.0" );
+        FillerScheduler.fillComponent( filler, component, null, sbLogs );
+        ComponentService.save( component );
+        assertEquals( 1, filler._nCalls );
+
+        // Slice refresh : the filler writes the same value again
+        filler._lRefreshInterval = 1L;
+        Thread.sleep( 5L );
+        assertEquals( 1, FillerScheduler.refreshSlices( Collections.singletonList( ARTIFACT_ID ), Collections.singletonList( filler ), sbLogs ) );
+        assertEquals( 2, filler._nCalls );
+
+        // Maven refetch with the same POM : the slice is not outdated and is copied from the cached component
+        filler._lRefreshInterval = 3600000L;
+        Component previous = ComponentService.load( ARTIFACT_ID );
+        Component refetched = newComponent( "1.0.0" );
+        FillerScheduler.fillComponent( filler, refetched, previous, sbLogs );
+        assertEquals( 2, filler._nCalls );
+        assertEquals( "42", refetched.get( METRIC ) );
+
+        // New release : the slice computed from the version is filled again
+        Component released = newComponent( "1.0.1" );
+        FillerScheduler.fillComponent( filler, released, previous, sbLogs );
+        assertEquals( 3, filler._nCalls );
+        assertEquals( "42", released.get( METRIC ) );
+    }
+
+    /**
+     * Test that a slice refresh calls the filler even if its change token is unchanged : the interval elapsing is the reason to refresh
+     */
+    @Test
+    public void testSliceRefreshIgnoresUnchangedToken( ) throws Exception
+    {
+        ScheduledFiller filler = new ScheduledFiller( );
+        filler._strToken = "constant";
+        StringBuilder sbLogs = new StringBuilder( );
+
+        Component component = newComponent( "1.0.0" );
+        FillerScheduler.fillComponent( filler, component, null, sbLogs );
+        ComponentService.save( component );
+        assertEquals( 1, filler._nCalls );
+
+        // the Maven refetch path still skips the filler while its token is unchanged
+        filler._lRefreshInterval = 1L;
+        Thread.sleep( 5L );
+        Component refetched = newComponent( "1.0.0" );
+        FillerScheduler.fillComponent( filler, refetched, ComponentService.load( ARTIFACT_ID ), sbLogs );
+        assertEquals( 1, filler._nCalls );
+
+        filler._strMetric = "43";
+        assertEquals( 1, FillerScheduler.refreshSlices( Collections.singletonList( ARTIFACT_ID ), Collections.singletonList( filler ), sbLogs ) );
+        assertEquals( 2, filler._nCalls );
+        assertEquals( "43", ComponentService.load( ARTIFACT_ID ).get( METRIC ) );
+    }
+
+    /**
+     * Creates a component filled with its POM infos
+     *
+     * @param strVersion
+     *            The version
+     * @return The component
+     */
+    private static Component newComponent( String strVersion )
+    {
+        Component component = new Component( );
+        component.setArtifactId( ARTIFACT_ID );
+        component.setVersion( strVersion );
+        ChangeDetector.setPomFingerprint( component );
+        return component;
+    }
+
+    /**
+     * Filler refreshed independently, without change token (like Sonar) unless one is given
+     */
+    private static final class ScheduledFiller implements ComponentInfoFiller
+    {
+        private long _lRefreshInterval = 3600000L;
+        private String _strToken;
+        private String _strMetric = "42";
+        private int _nCalls;
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void fill( Component component, StringBuilder sbLogs )
+        {
+            _nCalls++;
+            component.set( METRIC, _strMetric );
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public String getChangeToken( Component component )
+        {
+            return _strToken;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public long getRefreshInterval( )
+        {
+            return _lRefreshInterval;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public String getName( )
+        {
+            return "Scheduled test filler";
+        }
+    }
+}
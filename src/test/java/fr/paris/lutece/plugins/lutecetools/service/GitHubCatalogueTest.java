@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.paris.lutece.plugins.lutecetools.stub.StubContent;
+import fr.paris.lutece.plugins.lutecetools.stub.StubServer;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * GitHubCatalogueTest
+ */
+public class GitHubCatalogueTest extends LuteceTestCase
+{
+    /**
+     * Test that a full listing reads all the pages and that an incremental listing stops at the last known push
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testIncrementalFetch( ) throws Exception
+    {
+        StubServer server = new StubServer( 250, 0 );
+        server.start( );
+        try
+        {
+            String strApiUrl = server.getContent( ).getGitHubApiUrl( );
+
+            List<GitHubCatalogue.Repository> listAll = GitHubCatalogue.fetch( strApiUrl, StubContent.GITHUB_ORGANIZATION, 0L );
+            assertEquals( 250, listAll.size( ) );
+            assertEquals( 3L, (long) server.getRequestCountByContext( ).get( StubServer.CONTEXT_GITHUB ) );
+
+            // the ten most recently pushed repositories are listed again, from the first page only
+            server.resetCounters( );
+            long lLastPushedAt = listAll.get( 9 ).getPushedAt( );
+            List<GitHubCatalogue.Repository> listPushed = GitHubCatalogue.fetch( strApiUrl, StubContent.GITHUB_ORGANIZATION, lLastPushedAt );
+            assertEquals( 10, listPushed.size( ) );
+            assertEquals( listAll.get( 0 ).getFullName( ), listPushed.get( 0 ).getFullName( ) );
+            assertEquals( 1L, (long) server.getRequestCountByContext( ).get( StubServer.CONTEXT_GITHUB ) );
+        }
+        finally
+        {
+            server.stop( );
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import org.gitlab.api.GitlabAPI;
+import org.junit.Test;
+
+import fr.paris.lutece.plugins.lutecetools.stub.StubServer;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * GitLabCatalogueTest
+ */
+public class GitLabCatalogueTest extends LuteceTestCase
+{
+    /**
+     * Test that the catalogue is listed once, then updated with the projects active since the previous refresh
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testIncrementalRefresh( ) throws Exception
+    {
+        StubServer server = new StubServer( 250, 0 );
+        server.start( );
+        try
+        {
+            GitLabCatalogue.clear( );
+            GitlabAPI gitlabApi = GitlabAPI.connect( server.getBaseUrl( ) + StubServer.CONTEXT_GITLAB, "token" );
+
+            GitLabCatalogue.Snapshot full = GitLabCatalogue.refresh( gitlabApi );
+            int nProjects = full.getProjects( ).size( );
+            assertTrue( nProjects > 0 );
+            assertTrue( full.getLastFullRefresh( ) > 0 );
+
+            // the catalogue is kept while not outdated
+            server.resetCounters( );
+            assertEquals( nProjects, GitLabCatalogue.getProjects( gitlabApi ).size( ) );
+            assertEquals( 0L, (long) server.getRequestCountByContext( ).get( StubServer.CONTEXT_GITLAB ) );
+
+            // no project has been active since the full listing : the delta is empty and the projects are kept
+            GitLabCatalogue.Snapshot delta = GitLabCatalogue.refresh( gitlabApi );
+            assertEquals( nProjects, delta.getProjects( ).size( ) );
+            assertEquals( full.getLastFullRefresh( ), delta.getLastFullRefresh( ) );
+            assertEquals( 1L, (long) server.getRequestCountByContext( ).get( StubServer.CONTEXT_GITLAB ) );
+            assertNotNull( delta.getIndex( ).getByPath( full.getProjects( ).get( 0 ).getPathWithNamespace( ) ) );
+
+            // once cleared, all the projects are listed again
+            GitLabCatalogue.clear( );
+            server.resetCounters( );
+            assertEquals( nProjects, GitLabCatalogue.getProjects( gitlabApi ).size( ) );
+            assertTrue( server.getRequestCountByContext( ).get( StubServer.CONTEXT_GITLAB ) > 0 );
+        }
+        finally
+        {
+            server.stop( );
+            GitLabCatalogue.clear( );
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.nio.CharBuffer;
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * ListingParserTest
+ */
+public class ListingParserTest extends LuteceTestCase
+{
+    private static final String LISTING = "<html><body><table>\n<tr><td><a href=\"../\">Parent Directory</a></td></tr>\n"
+            + "<tr><td><a href=\"1.0.0/\">1.0.0/</a></td></tr><tr><td><a href=\"1.2.0-SNAPSHOT/\">1.2.0-SNAPSHOT/</a></td></tr>\n"
+            + "<tr><td><a href=\"maven-metadata.xml\">maven-metadata.xml</a></td></tr>\n"
+            + "<tr><td><a href=\"odd/\">/odd/name/</a></td></tr></table></body></html>";
+
+    /**
+     * Test the extraction of the anchors
+     */
+    @Test
+    public void testGetAnchorsList( )
+    {
+        List<String> list = ListingParser.getAnchorsList( LISTING );
+
+        assertEquals( 5, list.size( ) );
+        assertEquals( "Parent Directory", list.get( 0 ) );
+        assertEquals( "1.0.0", list.get( 1 ) );
+        assertEquals( "1.2.0-SNAPSHOT", list.get( 2 ) );
+        assertEquals( "maven-metadata.xml", list.get( 3 ) );
+        assertEquals( "oddname", list.get( 4 ) );
+        assertEquals( list, ListingParser.getAnchorsList( CharBuffer.wrap( LISTING ) ) );
+    }
+
+    /**
+     * Test the inline filtering of the versions
+     */
+    @Test
+    public void testGetVersionsList( )
+    {
+        List<String> list = ListingParser.getVersionsList( LISTING );
+
+        assertEquals( 2, list.size( ) );
+        assertEquals( "1.0.0", list.get( 0 ) );
+        assertEquals( "1.2.0-SNAPSHOT", list.get( 1 ) );
+
+        List<CharSequence> listViews = ListingParser.getAnchors( LISTING, true );
+        assertEquals( "1.2.0", listViews.get( 1 ).subSequence( 0, 5 ).toString( ) );
+        assertTrue( ListingParser.getAnchorsList( "<html><a href=\"x\">unterminated" ).isEmpty( ) );
+    }
+}
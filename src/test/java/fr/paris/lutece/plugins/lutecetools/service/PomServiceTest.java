@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * PomServiceTest
+ */
+public class PomServiceTest extends LuteceTestCase
+{
+    private static final String POM = "\uFEFF<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<project>\n" + "  <parent>\n"
+            + "    <artifactId>lutece-global-pom</artifactId>\n" + "    <groupId>fr.paris.lutece.tools</groupId>\n" + "    <version>6.1.0</version>\n"
+            + "  </parent>\n" + "  <artifactId>plugin-test</artifactId>\n" + "  <version>1.0.0</version>\n" + "  <dependencies>\n"
+            + "    <dependency>\n" + "      <groupId>fr.paris.lutece</groupId>\n" + "      <artifactId>lutece-core</artifactId>\n"
+            + "      <version>[6.0.1,)</version>\n" + "      <type>lutece-core</type>\n" + "    </dependency>\n" + "    <dependency>\n"
+            + "      <groupId>fr.paris.lutece.plugins</groupId>\n" + "      <artifactId>plugin-rest</artifactId>\n" + "      <version>[2.1.0,)</version>\n"
+            + "      <type>lutece-plugin</type>\n" + "      <exclusions>\n" + "        <exclusion>\n" + "          <groupId>org.other</groupId>\n"
+            + "          <artifactId>other</artifactId>\n" + "        </exclusion>\n" + "      </exclusions>\n" + "    </dependency>\n"
+            + "    <dependency>\n" + "      <groupId>org.kohsuke</groupId>\n" + "      <artifactId>github-api</artifactId>\n"
+            + "      <version>1.92</version>\n" + "    </dependency>\n" + "  </dependencies>\n" + "  <properties>\n"
+            + "    <jiraProjectName>TEST</jiraProjectName>\n" + "  </properties>\n" + "  <scm>\n"
+            + "    <connection>scm:git:https://github.com/lutece-platform/test.git</connection>\n"
+            + "    <url>https://github.com/lutece-platform/test.git</url>\n" + "  </scm>\n" + "</project>";
+
+    /**
+     * Test the single pass parsing of header infos and Lutece dependencies
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testParse( ) throws Exception
+    {
+        SaxPomHandler handler = PomService.instance( ).parse( new ByteArrayInputStream( POM.getBytes( StandardCharsets.UTF_8 ) ) );
+
+        assertEquals( "6.1.0", handler.getParentPomVersion( ) );
+        assertEquals( "[6.0.1,)", handler.getCoreVersion( ) );
+        assertEquals( "TEST", handler.getJiraKey( ) );
+        assertEquals( "https://github.com/lutece-platform/test.git", handler.getScmUrl( ) );
+
+        List<Map<String, String>> listDependencies = handler.getLuteceDependencies( );
+        assertEquals( 2, listDependencies.size( ) );
+        assertEquals( "lutece-core", listDependencies.get( 0 ).get( "artifactId" ) );
+        assertEquals( "plugin-rest", listDependencies.get( 1 ).get( "artifactId" ) );
+        assertEquals( "fr.paris.lutece.plugins", listDependencies.get( 1 ).get( "groupId" ) );
+        assertEquals( "lutece-plugin", listDependencies.get( 1 ).get( "type" ) );
+    }
+}
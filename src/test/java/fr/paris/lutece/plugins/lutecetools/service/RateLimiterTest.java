@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * RateLimiterTest
+ */
+public class RateLimiterTest extends LuteceTestCase
+{
+    /**
+     * Test the deferral of the work when the server budget is exhausted
+     */
+    @Test
+    public void testServerBudget( )
+    {
+        String strService = "test-budget";
+        assertTrue( RateLimiter.acquire( strService, 1, true ) );
+        assertTrue( RateLimiter.acquire( null, 1, true ) );
+
+        RateLimiter.update( strService, 10, 2, System.currentTimeMillis( ) + 60000L );
+        assertTrue( RateLimiter.acquire( strService, 1, false ) );
+        assertTrue( RateLimiter.acquire( strService, 1, false ) );
+        assertFalse( RateLimiter.acquire( strService, 1, false ) );
+
+        // a past reset opens a new window
+        RateLimiter.update( strService, 10, 0, System.currentTimeMillis( ) - 1000L );
+        assertTrue( RateLimiter.acquire( strService, 1, true ) );
+        assertEquals( 1L, RateLimiter.getStatus( ).get( strService ).get( "deferred" ) );
+    }
+
+    /**
+     * Test the rate limit headers
+     */
+    @Test
+    public void testHeaders( )
+    {
+        String strService = "test-headers";
+        long lReset = System.currentTimeMillis( ) / 1000L + 3600L;
+        Map<String, String> mapHeaders = new HashMap<>( );
+        mapHeaders.put( "x-ratelimit-limit", "5000" );
+        mapHeaders.put( "X-RateLimit-Remaining", "0" );
+        mapHeaders.put( "X-RateLimit-Reset", String.valueOf( lReset ) );
+        RateLimiter.updateFromHeaders( strService, mapHeaders );
+
+        Map<String, Object> mapStatus = RateLimiter.getStatus( ).get( strService );
+        assertEquals( 5000, mapStatus.get( "limit" ) );
+        assertEquals( Instant.ofEpochSecond( lReset ).toString( ), mapStatus.get( "resetAt" ) );
+        assertFalse( RateLimiter.acquire( strService, 1, false ) );
+
+        mapHeaders.clear( );
+        mapHeaders.put( "Retry-After", "0" );
+        RateLimiter.updateFromHeaders( strService, mapHeaders );
+        assertTrue( RateLimiter.acquire( strService, 1, false ) );
+    }
+}
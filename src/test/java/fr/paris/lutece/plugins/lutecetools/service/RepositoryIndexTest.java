@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import org.junit.Test;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * RepositoryIndexTest
+ */
+public class RepositoryIndexTest extends LuteceTestCase
+{
+    /**
+     * Test the exact and suffix lookups
+     */
+    @Test
+    public void testGet( )
+    {
+        RepositoryIndex<String> index = new RepositoryIndex<>( );
+        index.add( "lutece-platform/lutece-core", "lutece-core", "core" );
+        index.add( "lutece-platform/lutece-tech-plugin-foo", "lutece-tech-plugin-foo", "foo" );
+        index.add( "lutece-platform/lutece-plugin-barfoo", "lutece-plugin-barfoo", "barfoo" );
+        index.add( "lutece-secteur-public/lutece-gru-module-foo-plugin-foo", "lutece-gru-module-foo-plugin-foo", "module" );
+        index.add( "lutece-secteur-public/lutece-core", "lutece-core", "other core" );
+
+        assertEquals( "core", index.get( "lutece-core" ) );
+        assertEquals( "core", index.get( "LUTECE-CORE" ) );
+        assertEquals( "other core", index.getByPath( "lutece-secteur-public/lutece-core" ) );
+        assertEquals( "foo", index.get( "plugin-foo" ) );
+        assertEquals( "barfoo", index.get( "plugin-barfoo" ) );
+        assertNull( index.get( "plugin-oo" ) );
+        assertNull( index.get( "plugin-unknown" ) );
+        assertEquals( 5, index.size( ) );
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import org.junit.Test;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * RepositoryProbeCacheTest
+ */
+public class RepositoryProbeCacheTest extends LuteceTestCase
+{
+    /**
+     * Test the shorter TTL of the not found probes
+     */
+    @Test
+    public void testNotFoundTtl( ) throws Exception
+    {
+        RepositoryProbeCache cache = new RepositoryProbeCache( 60000L, 20L, 60000L, 10 );
+        cache.putFound( "found", "http://repo/found", "http://repo/found/maven-metadata.xml", "<metadata/>" );
+        cache.putNotFound( "missing" );
+        assertNotNull( cache.getProbe( "missing" ) );
+
+        Thread.sleep( 50L );
+        assertEquals( "http://repo/found", cache.getProbe( "found" ).getUrl( ) );
+        assertNull( cache.getProbe( "missing" ) );
+    }
+
+    /**
+     * Test the bound and the purge of the contents
+     */
+    @Test
+    public void testContentsBound( ) throws Exception
+    {
+        RepositoryProbeCache cache = new RepositoryProbeCache( 60000L, 60000L, 20L, 3 );
+        for ( int i = 0; i < 5; i++ )
+        {
+            cache.putFound( "key" + i, "http://repo/" + i, "http://repo/" + i + "/maven-metadata.xml", "<metadata/>" );
+        }
+        assertEquals( 3, cache.getContentsCount( ) );
+        assertNull( cache.getContent( "http://repo/0/maven-metadata.xml" ) );
+        assertNotNull( cache.getContent( "http://repo/4/maven-metadata.xml" ) );
+
+        // expired contents are purged by the next put even if they are never read
+        Thread.sleep( 50L );
+        cache.putFound( "key5", "http://repo/5", "http://repo/5/maven-metadata.xml", "<metadata/>" );
+        assertEquals( 1, cache.getContentsCount( ) );
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service;
+
+import java.io.StringReader;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * SaxMetadataHandlerTest
+ */
+public class SaxMetadataHandlerTest extends LuteceTestCase
+{
+    private static final String ARTIFACT_METADATA = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<metadata>\n"
+            + "  <groupId>fr.paris.lutece.plugins</groupId>\n" + "  <artifactId>plugin-lutecetools</artifactId>\n" + "  <versioning>\n"
+            + "    <latest>1.1.4-SNAPSHOT</latest>\n" + "    <release>1.1.3</release>\n" + "    <versions>\n" + "      <version>1.0.0</version>\n"
+            + "      <version>1.1.3</version>\n" + "      <version>1.1.4-SNAPSHOT</version>\n" + "    </versions>\n"
+            + "    <lastUpdated>20200101120000</lastUpdated>\n" + "  </versioning>\n" + "</metadata>";
+
+    private static final String SNAPSHOT_METADATA = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<metadata modelVersion=\"1.1.0\">\n"
+            + "  <groupId>fr.paris.lutece.plugins</groupId>\n" + "  <artifactId>plugin-lutecetools</artifactId>\n"
+            + "  <version>1.1.4-SNAPSHOT</version>\n" + "  <versioning>\n" + "    <snapshot>\n" + "      <timestamp>20200101.120000</timestamp>\n"
+            + "      <buildNumber>3</buildNumber>\n" + "    </snapshot>\n" + "    <snapshotVersions>\n" + "      <snapshotVersion>\n"
+            + "        <classifier>sources</classifier>\n" + "        <extension>jar</extension>\n" + "        <value>1.1.4-20200101.115959-2</value>\n"
+            + "      </snapshotVersion>\n" + "      <snapshotVersion>\n" + "        <extension>pom</extension>\n"
+            + "        <value>1.1.4-20200101.120000-3</value>\n" + "      </snapshotVersion>\n" + "    </snapshotVersions>\n" + "  </versioning>\n"
+            + "</metadata>";
+
+    /**
+     * Test parsing of an artifact level metadata file
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testArtifactMetadata( ) throws Exception
+    {
+        SaxMetadataHandler handler = parse( ARTIFACT_METADATA );
+
+        assertEquals( "1.1.4-SNAPSHOT", handler.getLatest( ) );
+        assertEquals( "1.1.3", handler.getRelease( ) );
+        assertEquals( 3, handler.getVersions( ).size( ) );
+        assertEquals( "1.0.0", handler.getVersions( ).get( 0 ) );
+    }
+
+    /**
+     * Test parsing of a snapshot version level metadata file
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testSnapshotMetadata( ) throws Exception
+    {
+        SaxMetadataHandler handler = parse( SNAPSHOT_METADATA );
+
+        assertEquals( "20200101.120000", handler.getTimestamp( ) );
+        assertEquals( "3", handler.getBuildNumber( ) );
+        assertEquals( "1.1.4-20200101.120000-3", handler.getPomSnapshotValue( "1.1.4-SNAPSHOT" ) );
+        assertTrue( handler.getVersions( ).isEmpty( ) );
+    }
+
+    private SaxMetadataHandler parse( String strXml ) throws Exception
+    {
+        SaxMetadataHandler handler = new SaxMetadataHandler( );
+        SAXParser saxParser = SAXParserFactory.newInstance( ).newSAXParser( );
+        saxParser.parse( new InputSource( new StringReader( strXml ) ), handler );
+        return handler;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.service.codec;
+
+import org.junit.Test;
+
+import fr.paris.lutece.plugins.lutecetools.business.Component;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * ComponentCodecServiceTest
+ */
+public class ComponentCodecServiceTest extends LuteceTestCase
+{
+    private static final String ARTIFACT_ID = "plugin-lutecetools";
+    private static final String VERSION = "1.1.3";
+
+    /**
+     * Test encoding and decoding with each codec
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testRoundTrip( ) throws Exception
+    {
+        Component component = new Component( );
+        component.setArtifactId( ARTIFACT_ID );
+        component.setVersion( VERSION );
+
+        ComponentCodec [ ] codecs = {
+                new JsonComponentCodec( ), new GzipJsonComponentCodec( )
+        };
+        for ( ComponentCodec codec : codecs )
+        {
+            Component decoded = codec.decode( codec.encode( component ) );
+            assertEquals( component.getArtifactId( ), decoded.getArtifactId( ) );
+            assertEquals( component.getVersion( ), decoded.getVersion( ) );
+        }
+
+        String strData = ComponentCodecService.encode( component );
+        assertTrue( strData.startsWith( "LTC1:" ) );
+        assertEquals( component.getArtifactId( ), ComponentCodecService.decode( strData ).getArtifactId( ) );
+    }
+
+    /**
+     * Test that legacy JSON entries without header are still readable
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testLegacyPayload( ) throws Exception
+    {
+        Component component = new Component( );
+        component.setArtifactId( ARTIFACT_ID );
+        String strLegacy = new JsonComponentCodec( ).encode( component );
+
+        Component decoded = ComponentCodecService.decode( strLegacy );
+        assertEquals( component.getArtifactId( ), decoded.getArtifactId( ) );
+    }
+}
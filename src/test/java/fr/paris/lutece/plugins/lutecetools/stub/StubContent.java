@@ -0,0 +1,721 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.stub;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Synthetic content served by the StubServer : Nexus listings, maven-metadata.xml files, POMs, xdoc site indexes and the JSON responses of the
+ * Sonar, GitHub, GitLab, Jira and Redmine APIs for a set of fake artifacts.
+ */
+public class StubContent
+{
+    public static final String LUTECE_CORE = "lutece-core";
+    public static final String SNAPSHOT_TIMESTAMP = "20200101.120000";
+    public static final String GITHUB_ORGANIZATION = "lutece-platform";
+    public static final String GITLAB_GROUP = "stub";
+    private static final String GITLAB_LAST_ACTIVITY = "2020-01-01T12:00:00";
+
+    private static final String [ ] PREFIXES = {
+            "plugin-", "module-", "library-"
+    };
+    private static final int MAX_RELEASES = 5;
+    private static final int PULL_REQUESTS_MODULO = 4;
+    private static final Pattern PATTERN_GRAPHQL_REPOSITORY = Pattern.compile( "(\\w+): repository\\(owner: \"([^\"]+)\", name: \"([^\"]+)\"\\)" );
+
+    private final List<String> _listArtifactIds = new ArrayList<>( );
+    private final String _strBaseUrl;
+
+    /**
+     * Constructor
+     * 
+     * @param nArtifacts
+     *            The number of fake artifacts
+     * @param strBaseUrl
+     *            The base URL of the stub server (ending with /)
+     */
+    public StubContent( int nArtifacts, String strBaseUrl )
+    {
+        _strBaseUrl = strBaseUrl;
+        for ( int i = 0; i < nArtifacts; i++ )
+        {
+            _listArtifactIds.add( PREFIXES [i % PREFIXES.length] + String.format( "stub%05d", i ) );
+        }
+    }
+
+    /**
+     * Returns the artifact ids of the fake plugins, modules and libraries
+     * 
+     * @return The artifact ids
+     */
+    public List<String> getArtifactIds( )
+    {
+        return _listArtifactIds;
+    }
+
+    /**
+     * Returns true if an artifact is served
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @return true if the artifact exists
+     */
+    public boolean exists( String strArtifactId )
+    {
+        return LUTECE_CORE.equals( strArtifactId ) || ( getIndex( strArtifactId ) >= 0 );
+    }
+
+    /**
+     * Returns the released versions of an artifact
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @return The versions
+     */
+    public List<String> getReleases( String strArtifactId )
+    {
+        List<String> listVersions = new ArrayList<>( );
+        int nReleases = 1 + ( Math.max( getIndex( strArtifactId ), 0 ) % MAX_RELEASES );
+        String strMajor = LUTECE_CORE.equals( strArtifactId ) ? "7" : "1";
+        for ( int i = 0; i < nReleases; i++ )
+        {
+            listVersions.add( strMajor + ".0." + i );
+        }
+        return listVersions;
+    }
+
+    /**
+     * Returns the snapshot version of an artifact
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @return The version
+     */
+    public String getSnapshot( String strArtifactId )
+    {
+        return ( LUTECE_CORE.equals( strArtifactId ) ? "7" : "1" ) + ".1.0-SNAPSHOT";
+    }
+
+    /**
+     * Gets a Nexus directory listing
+     * 
+     * @param listEntries
+     *            The entries
+     * @return The HTML page
+     */
+    public String getListing( List<String> listEntries )
+    {
+        StringBuilder sb = new StringBuilder( "<!DOCTYPE html>\n<html lang=\"en\">\n<head><title>Index of /</title></head>\n<body>\n<table>\n" );
+        sb.append( "<tr><td><a href=\"../\">Parent Directory</a></td></tr>\n" );
+        for ( String strEntry : listEntries )
+        {
+            sb.append( "<tr><td><a href=\"" ).append( strEntry ).append( "/\">" ).append( strEntry ).append( "</a></td><td>&nbsp;</td></tr>\n" );
+        }
+        return sb.append( "</table>\n</body>\n</html>\n" ).toString( );
+    }
+
+    /**
+     * Gets the artifact level maven-metadata.xml
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @param listVersions
+     *            The versions
+     * @return The metadata
+     */
+    public String getArtifactMetadata( String strArtifactId, List<String> listVersions )
+    {
+        String strLatest = listVersions.get( listVersions.size( ) - 1 );
+        StringBuilder sb = new StringBuilder( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<metadata>\n" );
+        sb.append( "  <groupId>fr.paris.lutece.plugins</groupId>\n  <artifactId>" ).append( strArtifactId ).append( "</artifactId>\n" );
+        sb.append( "  <versioning>\n    <latest>" ).append( strLatest ).append( "</latest>\n" );
+        if ( !strLatest.endsWith( "-SNAPSHOT" ) )
+        {
+            sb.append( "    <release>" ).append( strLatest ).append( "</release>\n" );
+        }
+        sb.append( "    <versions>\n" );
+        for ( String strVersion : listVersions )
+        {
+            sb.append( "      <version>" ).append( strVersion ).append( "</version>\n" );
+        }
+        return sb.append( "    </versions>\n    <lastUpdated>20200101120000</lastUpdated>\n  </versioning>\n</metadata>\n" ).toString( );
+    }
+
+    /**
+     * Gets the snapshot version level maven-metadata.xml
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @param strSnapshotVersion
+     *            The snapshot version
+     * @return The metadata
+     */
+    public String getSnapshotMetadata( String strArtifactId, String strSnapshotVersion )
+    {
+        String strValue = getSnapshotPomVersion( strSnapshotVersion );
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<metadata modelVersion=\"1.1.0\">\n  <groupId>fr.paris.lutece.plugins</groupId>\n"
+                + "  <artifactId>" + strArtifactId + "</artifactId>\n  <version>" + strSnapshotVersion + "</version>\n  <versioning>\n"
+                + "    <snapshot>\n      <timestamp>" + SNAPSHOT_TIMESTAMP + "</timestamp>\n      <buildNumber>1</buildNumber>\n    </snapshot>\n"
+                + "    <snapshotVersions>\n      <snapshotVersion>\n        <extension>pom</extension>\n        <value>" + strValue
+                + "</value>\n      </snapshotVersion>\n    </snapshotVersions>\n  </versioning>\n</metadata>\n";
+    }
+
+    /**
+     * Gets the timestamped version of the snapshot POM
+     * 
+     * @param strSnapshotVersion
+     *            The snapshot version
+     * @return The timestamped version
+     */
+    public String getSnapshotPomVersion( String strSnapshotVersion )
+    {
+        return strSnapshotVersion.replace( "SNAPSHOT", SNAPSHOT_TIMESTAMP + "-1" );
+    }
+
+    /**
+     * Gets the POM of an artifact
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @param strVersion
+     *            The version
+     * @return The POM
+     */
+    public String getPom( String strArtifactId, String strVersion )
+    {
+        StringBuilder sb = new StringBuilder( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<project>\n" );
+        sb.append( "  <parent>\n    <artifactId>lutece-global-pom</artifactId>\n    <groupId>fr.paris.lutece.tools</groupId>\n" );
+        sb.append( "    <version>6.1.0</version>\n  </parent>\n" );
+        sb.append( "  <groupId>fr.paris.lutece.plugins</groupId>\n  <artifactId>" ).append( strArtifactId ).append( "</artifactId>\n" );
+        sb.append( "  <version>" ).append( strVersion ).append( "</version>\n  <dependencies>\n" );
+        appendDependency( sb, "fr.paris.lutece", LUTECE_CORE, "[7.0.0,)" );
+        int nIndex = getIndex( strArtifactId );
+        if ( nIndex > 0 )
+        {
+            appendDependency( sb, "fr.paris.lutece.plugins", _listArtifactIds.get( nIndex - 1 ), "[1.0.0,)" );
+        }
+        appendDependency( sb, "org.apache.commons", "commons-lang3", "3.9" );
+        sb.append( "  </dependencies>\n  <properties>\n    <jiraProjectName>" ).append( getJiraKey( strArtifactId ) ).append( "</jiraProjectName>\n" );
+        sb.append( "  </properties>\n  <scm>\n    <connection>scm:git:" ).append( getScmUrl( strArtifactId ) ).append( "</connection>\n" );
+        sb.append( "    <url>" ).append( getScmUrl( strArtifactId ) ).append( "</url>\n  </scm>\n</project>\n" );
+        return sb.toString( );
+    }
+
+    /**
+     * Gets a xdoc site index
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @param strLang
+     *            The lang
+     * @return The site index
+     */
+    public String getSiteIndex( String strArtifactId, String strLang )
+    {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<document>\n  <properties>\n    <title>" + strArtifactId + " (" + strLang
+                + ")</title>\n  </properties>\n  <head>\n    <meta name=\"keywords\" content=\"stub, " + strArtifactId + "\" />\n  </head>\n"
+                + "  <body>\n    <section name=\"" + strArtifactId + "\">\n      <subsection name=\"Introduction\"><p>Introduction of " + strArtifactId
+                + "</p></subsection>\n      <subsection name=\"Configuration\"><p></p></subsection>\n"
+                + "      <subsection name=\"Usage\"><p></p></subsection>\n    </section>\n  </body>\n</document>\n";
+    }
+
+    /**
+     * Gets the Sonar measures of a component
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @return The JSON
+     */
+    public String getSonarMeasures( String strArtifactId )
+    {
+        int nIndex = Math.max( getIndex( strArtifactId ), 0 );
+        return "{\"component\":{\"key\":\"fr.paris.lutece.plugins:" + strArtifactId + "\",\"name\":\"" + strArtifactId + "\",\"measures\":["
+                + "{\"metric\":\"ncloc\",\"value\":\"" + ( 1000 + ( nIndex * 37 ) % 20000 ) + "\"},"
+                + "{\"metric\":\"sqale_debt_ratio\",\"value\":\"" + ( nIndex % 10 ) + ".5\"}]}}";
+    }
+
+    /**
+     * Gets a page of the Sonar projects. Like the real API, the query matches the projects whose name contains it or whose key is equal to it.
+     * 
+     * @param nPage
+     *            The page (starting from 1)
+     * @param nPageSize
+     *            The page size
+     * @param strQuery
+     *            The query or null
+     * @return The JSON
+     */
+    public String getSonarComponents( int nPage, int nPageSize, String strQuery )
+    {
+        List<String> listMatching = new ArrayList<>( );
+        for ( String strArtifactId : _listArtifactIds )
+        {
+            if ( ( strQuery == null ) || strArtifactId.toLowerCase( ).contains( strQuery.toLowerCase( ) )
+                    || strQuery.equals( "fr.paris.lutece.plugins:" + strArtifactId ) )
+            {
+                listMatching.add( strArtifactId );
+            }
+        }
+        StringBuilder sb = new StringBuilder( "{\"paging\":{\"pageIndex\":" ).append( nPage ).append( ",\"pageSize\":" ).append( nPageSize )
+                .append( ",\"total\":" ).append( listMatching.size( ) ).append( "},\"components\":[" );
+        int nStart = ( nPage - 1 ) * nPageSize;
+        for ( int i = nStart; ( i < listMatching.size( ) ) && ( i < nStart + nPageSize ); i++ )
+        {
+            if ( i > nStart )
+            {
+                sb.append( ',' );
+            }
+            sb.append( "{\"key\":\"fr.paris.lutece.plugins:" ).append( listMatching.get( i ) ).append( "\",\"name\":\"" ).append( listMatching.get( i ) )
+                    .append( "\",\"qualifier\":\"TRK\"}" );
+        }
+        return sb.append( "]}" ).toString( );
+    }
+
+    /**
+     * Gets the Sonar measures of several components
+     * 
+     * @param strProjectKeys
+     *            The comma separated components keys
+     * @return The JSON
+     */
+    public String getSonarMeasuresSearch( String strProjectKeys )
+    {
+        StringBuilder sb = new StringBuilder( "{\"measures\":[" );
+        boolean bFirst = true;
+        for ( String strKey : strProjectKeys.split( "," ) )
+        {
+            String strArtifactId = strKey.substring( strKey.indexOf( ':' ) + 1 );
+            if ( !exists( strArtifactId ) )
+            {
+                continue;
+            }
+            int nIndex = Math.max( getIndex( strArtifactId ), 0 );
+            sb.append( bFirst ? "" : "," ).append( "{\"metric\":\"ncloc\",\"value\":\"" ).append( 1000 + ( nIndex * 37 ) % 20000 )
+                    .append( "\",\"component\":\"" ).append( strKey ).append( "\"},{\"metric\":\"sqale_debt_ratio\",\"value\":\"" )
+                    .append( nIndex % 10 ).append( ".5\",\"component\":\"" ).append( strKey ).append( "\"}" );
+            bFirst = false;
+        }
+        return sb.append( "]}" ).toString( );
+    }
+
+    /**
+     * Gets the GitHub organization
+     * 
+     * @return The JSON
+     */
+    public String getGitHubOrganization( )
+    {
+        return "{\"login\":\"" + GITHUB_ORGANIZATION + "\",\"id\":1,\"url\":\"" + getGitHubApiUrl( ) + "orgs/" + GITHUB_ORGANIZATION
+                + "\",\"repos_url\":\"" + getGitHubApiUrl( ) + "orgs/" + GITHUB_ORGANIZATION + "/repos\",\"type\":\"Organization\"}";
+    }
+
+    /**
+     * Gets a page of the GitHub repositories of the organization
+     * 
+     * @param nPage
+     *            The page (starting from 1)
+     * @param nPerPage
+     *            The page size
+     * @return The JSON
+     */
+    public String getGitHubRepositories( int nPage, int nPerPage )
+    {
+        StringBuilder sb = new StringBuilder( "[" );
+        int nStart = ( nPage - 1 ) * nPerPage;
+        for ( int i = nStart; ( i < nStart + nPerPage ) && ( i < _listArtifactIds.size( ) ); i++ )
+        {
+            String strArtifactId = _listArtifactIds.get( i );
+            if ( i > nStart )
+            {
+                sb.append( ',' );
+            }
+            sb.append( "{\"id\":" ).append( i + 1 ).append( ",\"name\":\"" ).append( strArtifactId ).append( "\",\"full_name\":\"" )
+                    .append( GITHUB_ORGANIZATION ).append( '/' ).append( strArtifactId ).append( "\",\"owner\":{\"login\":\"" ).append( GITHUB_ORGANIZATION )
+                    .append( "\",\"id\":1,\"type\":\"Organization\"},\"url\":\"" ).append( getGitHubApiUrl( ) ).append( "repos/" )
+                    .append( GITHUB_ORGANIZATION ).append( '/' ).append( strArtifactId ).append( "\",\"html_url\":\"" ).append( getScmUrl( strArtifactId ) )
+                    .append( "\",\"default_branch\":\"develop\",\"archived\":false,\"pushed_at\":\"" ).append( getGitHubPushedAt( i ) )
+                    .append( "\",\"updated_at\":\"2020-01-01T12:00:00Z\",\"created_at\":\"2015-01-01T12:00:00Z\"}" );
+        }
+        return sb.append( ']' ).toString( );
+    }
+
+    /**
+     * Gets the last push time of a GitHub repository : the repositories are listed from the most recently pushed, as with sort=pushed
+     * 
+     * @param nIndex
+     *            The index of the repository
+     * @return The ISO-8601 time
+     */
+    private String getGitHubPushedAt( int nIndex )
+    {
+        return Instant.parse( "2020-01-01T12:00:00Z" ).plus( _listArtifactIds.size( ) - nIndex, ChronoUnit.MINUTES ).toString( );
+    }
+
+    /**
+     * Gets the GitHub branches of a repository
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @return The JSON
+     */
+    public String getGitHubBranches( String strArtifactId )
+    {
+        String strCommit = ",\"commit\":{\"sha\":\"0123456789abcdef0123456789abcdef01234567\",\"url\":\"" + getGitHubApiUrl( ) + "commits/0\"}}";
+        return "[{\"name\":\"develop\"" + strCommit + ",{\"name\":\"master\"" + strCommit + "]";
+    }
+
+    /**
+     * Gets the GitHub open pull requests of a repository
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @return The JSON
+     */
+    public String getGitHubPullRequests( String strArtifactId )
+    {
+        StringBuilder sb = new StringBuilder( "[" );
+        int nCount = Math.max( getIndex( strArtifactId ), 0 ) % PULL_REQUESTS_MODULO;
+        for ( int i = 1; i <= nCount; i++ )
+        {
+            if ( i > 1 )
+            {
+                sb.append( ',' );
+            }
+            sb.append( "{\"id\":" ).append( i ).append( ",\"number\":" ).append( i ).append( ",\"state\":\"open\",\"title\":\"PR " ).append( i )
+                    .append( "\",\"updated_at\":\"2020-01-0" ).append( i ).append( "T12:00:00Z\",\"created_at\":\"2020-01-01T12:00:00Z\"}" );
+        }
+        return sb.append( ']' ).toString( );
+    }
+
+    /**
+     * Gets the GitHub GraphQL response to a query of repositories branches and pull requests
+     * 
+     * @param strQuery
+     *            The GraphQL query
+     * @return The JSON
+     */
+    public String getGitHubGraphQL( String strQuery )
+    {
+        StringBuilder sb = new StringBuilder( "{\"data\":{\"rateLimit\":{\"limit\":5000,\"cost\":1,\"remaining\":4999,\"resetAt\":\"2030-01-01T00:00:00Z\"}" );
+        Matcher matcher = PATTERN_GRAPHQL_REPOSITORY.matcher( strQuery );
+        while ( matcher.find( ) )
+        {
+            String strArtifactId = matcher.group( 3 );
+            sb.append( ",\"" ).append( matcher.group( 1 ) ).append( "\":" );
+            if ( !GITHUB_ORGANIZATION.equals( matcher.group( 2 ) ) || !exists( strArtifactId ) )
+            {
+                sb.append( "null" );
+                continue;
+            }
+            int nCount = Math.max( getIndex( strArtifactId ), 0 ) % PULL_REQUESTS_MODULO;
+            sb.append( "{\"refs\":{\"totalCount\":2,\"nodes\":[{\"name\":\"develop\"},{\"name\":\"master\"}]},\"pullRequests\":{\"totalCount\":" )
+                    .append( nCount ).append( ",\"nodes\":[" ).append( ( nCount > 0 ) ? "{\"updatedAt\":\"2020-01-01T12:00:00Z\"}" : "" ).append( "]}}" );
+        }
+        return sb.append( "}}" ).toString( );
+    }
+
+    /**
+     * Gets a page of the GitLab projects
+     * 
+     * @param nPage
+     *            The page (starting from 1)
+     * @param strLastActivityAfter
+     *            The last_activity_after filter (ISO-8601) or null
+     * @return The JSON
+     */
+    public String getGitLabProjects( int nPage, String strLastActivityAfter )
+    {
+        // GitLab only hosts the libraries, all last active at GITLAB_LAST_ACTIVITY
+        if ( ( nPage > 1 ) || ( ( strLastActivityAfter != null ) && ( strLastActivityAfter.compareTo( GITLAB_LAST_ACTIVITY ) > 0 ) ) )
+        {
+            return "[]";
+        }
+        StringBuilder sb = new StringBuilder( "[" );
+        for ( int i = 2; i < _listArtifactIds.size( ); i += PREFIXES.length )
+        {
+            String strArtifactId = _listArtifactIds.get( i );
+            if ( sb.length( ) > 1 )
+            {
+                sb.append( ',' );
+            }
+            sb.append( "{\"id\":" ).append( i + 1 ).append( ",\"name\":\"" ).append( strArtifactId ).append( "\",\"path\":\"" ).append( strArtifactId )
+                    .append( "\",\"name_with_namespace\":\"" ).append( GITLAB_GROUP ).append( " / " ).append( strArtifactId )
+                    .append( "\",\"path_with_namespace\":\"" ).append( GITLAB_GROUP ).append( '/' ).append( strArtifactId )
+                    .append( "\",\"last_activity_at\":\"" ).append( GITLAB_LAST_ACTIVITY ).append( ".000Z\"}" );
+        }
+        return sb.append( ']' ).toString( );
+    }
+
+    /**
+     * Gets a Jira project
+     * 
+     * @param strKey
+     *            The Jira key
+     * @return The JSON or null if the project doesn't exist
+     */
+    public String getJiraProject( String strKey )
+    {
+        int nIndex = getIndexFromJiraKey( strKey );
+        if ( nIndex < 0 )
+        {
+            return null;
+        }
+        String strArtifactId = _listArtifactIds.get( nIndex );
+        String strProjectUrl = _strBaseUrl + "jira/rest/api/2/project/" + strKey;
+        StringBuilder sb = new StringBuilder( "{\"self\":\"" ).append( strProjectUrl ).append( "\",\"id\":\"" ).append( 10000 + nIndex )
+                .append( "\",\"key\":\"" ).append( strKey ).append( "\",\"name\":\"" ).append( strArtifactId ).append( "\",\"description\":\"\"," )
+                .append( "\"lead\":{\"self\":\"" ).append( _strBaseUrl ).append( "jira/rest/api/2/user?username=stub\",\"name\":\"stub\"," )
+                .append( "\"displayName\":\"Stub\",\"active\":true},\"components\":[],\"issueTypes\":[],\"roles\":{},\"versions\":[" );
+        List<String> listReleases = getReleases( strArtifactId );
+        for ( int i = 0; i < listReleases.size( ); i++ )
+        {
+            appendJiraVersion( sb, ( nIndex * 100 ) + i, listReleases.get( i ), true );
+            sb.append( ',' );
+        }
+        appendJiraVersion( sb, ( nIndex * 100 ) + 99, getSnapshot( strArtifactId ).replace( "-SNAPSHOT", "" ), false );
+        return sb.append( "]}" ).toString( );
+    }
+
+    /**
+     * Gets the unresolved issues count of a Jira version
+     * 
+     * @param strVersionId
+     *            The version id
+     * @return The JSON
+     */
+    public String getJiraUnresolvedIssueCount( String strVersionId )
+    {
+        return "{\"self\":\"" + _strBaseUrl + "jira/rest/api/2/version/" + strVersionId + "\",\"issuesUnresolvedCount\":" + ( strVersionId.length( ) % 3 )
+                + "}";
+    }
+
+    /**
+     * Gets the related issues counts of a Jira version
+     * 
+     * @param strVersionId
+     *            The version id
+     * @return The JSON
+     */
+    public String getJiraRelatedIssueCounts( String strVersionId )
+    {
+        return "{\"self\":\"" + _strBaseUrl + "jira/rest/api/2/version/" + strVersionId + "\",\"issuesFixedCount\":5,\"issuesAffectedCount\":1}";
+    }
+
+    /**
+     * Gets a Redmine project
+     * 
+     * @param strIdentifier
+     *            The project identifier
+     * @return The JSON or null if the project doesn't exist
+     */
+    public String getRedmineProject( String strIdentifier )
+    {
+        int nIndex = getIndexFromJiraKey( strIdentifier );
+        if ( nIndex < 0 )
+        {
+            return null;
+        }
+        return "{\"project\":{\"id\":" + ( nIndex + 1 ) + ",\"name\":\"" + _listArtifactIds.get( nIndex ) + "\",\"identifier\":\"" + strIdentifier
+                + "\",\"status\":1}}";
+    }
+
+    /**
+     * Gets the Redmine versions of a project
+     * 
+     * @param nProjectId
+     *            The project id
+     * @return The JSON
+     */
+    public String getRedmineVersions( int nProjectId )
+    {
+        return "{\"versions\":[{\"id\":" + ( nProjectId * 100 ) + ",\"project\":{\"id\":" + nProjectId + "},\"name\":\"1.1.0\",\"status\":\"open\","
+                + "\"updated_on\":\"2020-01-01T12:00:00Z\"}],\"total_count\":1}";
+    }
+
+    /**
+     * Gets a page of Redmine issues
+     * 
+     * @param nProjectId
+     *            The project id
+     * @param strStatus
+     *            The status filter (open or closed)
+     * @param nOffset
+     *            The offset
+     * @param nLimit
+     *            The limit
+     * @return The JSON
+     */
+    public String getRedmineIssues( int nProjectId, String strStatus, int nOffset, int nLimit )
+    {
+        int nTotal = "closed".equals( strStatus ) ? ( nProjectId % 7 ) : ( nProjectId % 5 );
+        StringBuilder sb = new StringBuilder( "{\"issues\":[" );
+        for ( int i = nOffset; ( i < nTotal ) && ( i < nOffset + nLimit ); i++ )
+        {
+            if ( i > nOffset )
+            {
+                sb.append( ',' );
+            }
+            sb.append( "{\"id\":" ).append( ( nProjectId * 1000 ) + i ).append( ",\"project\":{\"id\":" ).append( nProjectId )
+                    .append( "},\"subject\":\"Issue " ).append( i ).append( "\",\"fixed_version\":{\"id\":" ).append( nProjectId * 100 )
+                    .append( ",\"name\":\"1.1.0\"}}" );
+        }
+        return sb.append( "],\"total_count\":" ).append( nTotal ).append( ",\"offset\":" ).append( nOffset ).append( ",\"limit\":" ).append( nLimit )
+                .append( '}' ).toString( );
+    }
+
+    /**
+     * Gets the SCM URL of an artifact
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @return The URL
+     */
+    public String getScmUrl( String strArtifactId )
+    {
+        return _strBaseUrl + "github/" + GITHUB_ORGANIZATION + "/" + strArtifactId + ".git";
+    }
+
+    /**
+     * Gets the Jira (and Redmine) key of an artifact
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @return The key
+     */
+    public String getJiraKey( String strArtifactId )
+    {
+        return LUTECE_CORE.equals( strArtifactId ) ? "LUTECE" : "STUB" + strArtifactId.substring( strArtifactId.length( ) - 5 );
+    }
+
+    /**
+     * Gets the GitHub API URL
+     * 
+     * @return The URL
+     */
+    public String getGitHubApiUrl( )
+    {
+        return _strBaseUrl + "github/api/";
+    }
+
+    /**
+     * Gets the index of an artifact
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @return The index or -1
+     */
+    private int getIndex( String strArtifactId )
+    {
+        int nPos = strArtifactId.lastIndexOf( "stub" );
+        if ( nPos < 0 )
+        {
+            return -1;
+        }
+        try
+        {
+            int nIndex = Integer.parseInt( strArtifactId.substring( nPos + 4 ) );
+            return ( ( nIndex < _listArtifactIds.size( ) ) && _listArtifactIds.get( nIndex ).equals( strArtifactId ) ) ? nIndex : -1;
+        }
+        catch( NumberFormatException e )
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the index of an artifact from its Jira key
+     * 
+     * @param strKey
+     *            The key
+     * @return The index or -1
+     */
+    private int getIndexFromJiraKey( String strKey )
+    {
+        String strUpperKey = strKey.toUpperCase( );
+        if ( !strUpperKey.startsWith( "STUB" ) )
+        {
+            return -1;
+        }
+        try
+        {
+            int nIndex = Integer.parseInt( strUpperKey.substring( 4 ) );
+            return ( nIndex < _listArtifactIds.size( ) ) ? nIndex : -1;
+        }
+        catch( NumberFormatException e )
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Append a dependency to a POM
+     * 
+     * @param sb
+     *            The POM
+     * @param strGroupId
+     *            The group id
+     * @param strArtifactId
+     *            The artifact id
+     * @param strVersion
+     *            The version
+     */
+    private static void appendDependency( StringBuilder sb, String strGroupId, String strArtifactId, String strVersion )
+    {
+        sb.append( "    <dependency>\n      <groupId>" ).append( strGroupId ).append( "</groupId>\n      <artifactId>" ).append( strArtifactId )
+                .append( "</artifactId>\n      <version>" ).append( strVersion ).append( "</version>\n    </dependency>\n" );
+    }
+
+    /**
+     * Append a version to a Jira project
+     * 
+     * @param sb
+     *            The project JSON
+     * @param nId
+     *            The version id
+     * @param strName
+     *            The version name
+     * @param bReleased
+     *            true if released
+     */
+    private void appendJiraVersion( StringBuilder sb, int nId, String strName, boolean bReleased )
+    {
+        sb.append( "{\"self\":\"" ).append( _strBaseUrl ).append( "jira/rest/api/2/version/" ).append( nId ).append( "\",\"id\":\"" ).append( nId )
+                .append( "\",\"name\":\"" ).append( strName ).append( "\",\"archived\":false,\"released\":" ).append( bReleased ).append( '}' );
+    }
+}
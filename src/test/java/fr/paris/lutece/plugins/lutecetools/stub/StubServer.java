@@ -0,0 +1,856 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.stub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Nexus, Sonar, GitHub, GitLab, Jira and Redmine servers used by the plugin. It serves synthetic content for a configurable number
+ * of artifacts with an optional injected latency and error rate, so that a full cache update can be run and measured without reaching the real servers.
+ * ETags are sent with every response and If-None-Match requests are answered with 304.
+ */
+public class StubServer
+{
+    public static final String CONTEXT_NEXUS = "nexus/";
+    public static final String CONTEXT_SONAR = "sonar/";
+    public static final String CONTEXT_GITHUB = "github/";
+    public static final String CONTEXT_GITLAB = "gitlab/";
+    public static final String CONTEXT_JIRA = "jira/";
+    public static final String CONTEXT_REDMINE = "redmine/";
+
+    public static final String REPOSITORY_RELEASES = "lutece_releases_repository";
+    public static final String REPOSITORY_SNAPSHOTS = "lutece_snapshots_repository";
+
+    private static final String PATH_BROWSE = "/" + CONTEXT_NEXUS + "service/rest/repository/browse/";
+    private static final String PATH_FILES = "/" + CONTEXT_NEXUS + "repository/";
+    private static final String PATH_PLUGINS = "fr/paris/lutece/plugins/";
+    private static final String PATH_CORE = "fr/paris/lutece/lutece-core/";
+    private static final String METADATA = "maven-metadata.xml";
+    private static final String CONTENT_TYPE_HTML = "text/html; charset=UTF-8";
+    private static final String CONTENT_TYPE_XML = "application/xml; charset=UTF-8";
+    private static final String CONTENT_TYPE_JSON = "application/json; charset=UTF-8";
+    private static final int GITHUB_PAGE_SIZE = 30;
+    private static final int REDMINE_DEFAULT_LIMIT = 25;
+
+    private final int _nArtifacts;
+    private final int _nPort;
+    private HttpServer _server;
+    private ExecutorService _executor;
+    private StubContent _content;
+    private volatile int _nMinLatency;
+    private volatile int _nMaxLatency;
+    private volatile double _dErrorRate;
+    private volatile int _nErrorStatus = 503;
+    private final AtomicLong _lRequests = new AtomicLong( );
+    private final AtomicLong _lNotModified = new AtomicLong( );
+    private final AtomicLong _lErrors = new AtomicLong( );
+    private final Map<String, AtomicLong> _mapRequestsByContext = new LinkedHashMap<>( );
+
+    /**
+     * Constructor
+     * 
+     * @param nArtifacts
+     *            The number of synthetic artifacts
+     * @param nPort
+     *            The port to listen on (0 for a free port)
+     */
+    public StubServer( int nArtifacts, int nPort )
+    {
+        _nArtifacts = nArtifacts;
+        _nPort = nPort;
+        for ( String strContext : new String [ ] {
+                CONTEXT_NEXUS, CONTEXT_SONAR, CONTEXT_GITHUB, CONTEXT_GITLAB, CONTEXT_JIRA, CONTEXT_REDMINE
+        } )
+        {
+            _mapRequestsByContext.put( strContext, new AtomicLong( ) );
+        }
+    }
+
+    /**
+     * Sets the latency added to every response
+     * 
+     * @param nMin
+     *            The minimal latency in ms
+     * @param nMax
+     *            The maximal latency in ms
+     */
+    public void setLatency( int nMin, int nMax )
+    {
+        _nMinLatency = nMin;
+        _nMaxLatency = Math.max( nMin, nMax );
+    }
+
+    /**
+     * Sets the rate of requests answered by an error
+     * 
+     * @param dErrorRate
+     *            The rate between 0 and 1
+     */
+    public void setErrorRate( double dErrorRate )
+    {
+        _dErrorRate = dErrorRate;
+    }
+
+    /**
+     * Sets the HTTP status of injected errors
+     * 
+     * @param nErrorStatus
+     *            The status
+     */
+    public void setErrorStatus( int nErrorStatus )
+    {
+        _nErrorStatus = nErrorStatus;
+    }
+
+    /**
+     * Starts the server
+     * 
+     * @throws IOException
+     *             if the server can't be started
+     */
+    public void start( ) throws IOException
+    {
+        _server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress( ), _nPort ), 0 );
+        _content = new StubContent( _nArtifacts, getBaseUrl( ) );
+        _executor = Executors.newCachedThreadPool( );
+        _server.setExecutor( _executor );
+        _server.createContext( "/", this::handle );
+        _server.start( );
+    }
+
+    /**
+     * Stops the server
+     */
+    public void stop( )
+    {
+        if ( _server != null )
+        {
+            _server.stop( 0 );
+            _executor.shutdownNow( );
+            _server = null;
+        }
+    }
+
+    /**
+     * Returns the base URL of the server (ending with /)
+     * 
+     * @return The URL
+     */
+    public String getBaseUrl( )
+    {
+        int nPort = ( _server != null ) ? _server.getAddress( ).getPort( ) : _nPort;
+        return "http://127.0.0.1:" + nPort + "/";
+    }
+
+    /**
+     * Returns the synthetic content
+     * 
+     * @return The content
+     */
+    public StubContent getContent( )
+    {
+        return _content;
+    }
+
+    /**
+     * Returns the artifact ids of the synthetic plugins
+     * 
+     * @return The artifact ids
+     */
+    public List<String> getArtifactIds( )
+    {
+        return _content.getArtifactIds( );
+    }
+
+    /**
+     * Returns the number of requests served
+     * 
+     * @return The number of requests
+     */
+    public long getRequestCount( )
+    {
+        return _lRequests.get( );
+    }
+
+    /**
+     * Returns the number of requests answered by 304
+     * 
+     * @return The number of requests
+     */
+    public long getNotModifiedCount( )
+    {
+        return _lNotModified.get( );
+    }
+
+    /**
+     * Returns the number of injected errors
+     * 
+     * @return The number of errors
+     */
+    public long getErrorCount( )
+    {
+        return _lErrors.get( );
+    }
+
+    /**
+     * Returns the number of requests by stubbed server
+     * 
+     * @return The counts by context
+     */
+    public Map<String, Long> getRequestCountByContext( )
+    {
+        Map<String, Long> map = new LinkedHashMap<>( );
+        for ( Map.Entry<String, AtomicLong> entry : _mapRequestsByContext.entrySet( ) )
+        {
+            map.put( entry.getKey( ), entry.getValue( ).get( ) );
+        }
+        return map;
+    }
+
+    /**
+     * Resets the counters
+     */
+    public void resetCounters( )
+    {
+        _lRequests.set( 0 );
+        _lNotModified.set( 0 );
+        _lErrors.set( 0 );
+        for ( AtomicLong counter : _mapRequestsByContext.values( ) )
+        {
+            counter.set( 0 );
+        }
+    }
+
+    /**
+     * Returns the lutecetools.properties entries that point the plugin to this server
+     * 
+     * @return The properties
+     */
+    public Map<String, String> getPluginProperties( )
+    {
+        String strBaseUrl = getBaseUrl( );
+        Map<String, String> map = new LinkedHashMap<>( );
+        map.put( "lutecetools.maven.repository.url.public", strBaseUrl + CONTEXT_NEXUS );
+        map.put( "lutecetools.maven.repository.url.private", strBaseUrl + CONTEXT_NEXUS );
+        map.put( "lutecetools.maven.repository.releases.public", REPOSITORY_RELEASES + "/" );
+        map.put( "lutecetools.maven.repository.snapshots.public", REPOSITORY_SNAPSHOTS + "/" );
+        map.put( "lutecetools.maven.repository.releases.private", "lutece_releases_private_repository/" );
+        map.put( "lutecetools.maven.repository.snapshots.private", "lutece_snapshots_private_repository/" );
+        map.put( "lutecetools.sonar.json.url", strBaseUrl + CONTEXT_SONAR + "api/measures/component" );
+        map.put( "lutecetools.github.api.url", _content.getGitHubApiUrl( ) );
+        map.put( "lutecetools.github.organization", StubContent.GITHUB_ORGANIZATION );
+        map.put( "lutecetools.gitlab.url", strBaseUrl + CONTEXT_GITLAB );
+        map.put( "lutecetools.gitlab.groups", StubContent.GITLAB_GROUP );
+        map.put( "lutecetools.jira.url", strBaseUrl + CONTEXT_JIRA );
+        map.put( "lutecetools.redmine.url", strBaseUrl + CONTEXT_REDMINE.substring( 0, CONTEXT_REDMINE.length( ) - 1 ) );
+        return map;
+    }
+
+    /**
+     * Handles a request
+     * 
+     * @param exchange
+     *            The exchange
+     * @throws IOException
+     *             if an error occurs
+     */
+    private void handle( HttpExchange exchange ) throws IOException
+    {
+        try
+        {
+            _lRequests.incrementAndGet( );
+            String strPath = exchange.getRequestURI( ).getPath( );
+            countContext( strPath );
+            pause( );
+
+            if ( ( _dErrorRate > 0 ) && ( ThreadLocalRandom.current( ).nextDouble( ) < _dErrorRate ) )
+            {
+                _lErrors.incrementAndGet( );
+                send( exchange, _nErrorStatus, CONTENT_TYPE_HTML, "Injected error" );
+                return;
+            }
+
+            Map<String, String> mapParameters = getParameters( exchange.getRequestURI( ).getRawQuery( ) );
+            String [ ] response = "POST".equals( exchange.getRequestMethod( ) ) ? post( strPath, read( exchange.getRequestBody( ) ) )
+                    : route( strPath, mapParameters );
+            if ( response == null )
+            {
+                send( exchange, 404, CONTENT_TYPE_HTML, "Not found" );
+                return;
+            }
+
+            String strETag = "\"" + Integer.toHexString( response [1].hashCode( ) ) + "\"";
+            exchange.getResponseHeaders( ).set( "ETag", strETag );
+            if ( strETag.equals( exchange.getRequestHeaders( ).getFirst( "If-None-Match" ) ) )
+            {
+                _lNotModified.incrementAndGet( );
+                exchange.sendResponseHeaders( 304, -1 );
+                return;
+            }
+            send( exchange, 200, response [0], response [1] );
+        }
+        finally
+        {
+            exchange.close( );
+        }
+    }
+
+    /**
+     * Routes a request
+     * 
+     * @param strPath
+     *            The path
+     * @param mapParameters
+     *            The query parameters
+     * @return An array containing the content type and the body, or null if not found
+     */
+    private String [ ] route( String strPath, Map<String, String> mapParameters )
+    {
+        if ( strPath.startsWith( PATH_BROWSE ) )
+        {
+            return html( browse( strPath.substring( PATH_BROWSE.length( ) ) ) );
+        }
+        if ( strPath.startsWith( PATH_FILES ) )
+        {
+            return xml( file( strPath.substring( PATH_FILES.length( ) ) ) );
+        }
+        if ( strPath.startsWith( "/" + CONTEXT_SONAR + "api/components/search" ) )
+        {
+            return json(
+                    _content.getSonarComponents( getInt( mapParameters, "p", 1 ), getInt( mapParameters, "ps", 100 ), mapParameters.get( "q" ) ) );
+        }
+        if ( strPath.startsWith( "/" + CONTEXT_SONAR + "api/measures/search" ) )
+        {
+            String strProjectKeys = mapParameters.get( "projectKeys" );
+            return ( strProjectKeys != null ) ? json( _content.getSonarMeasuresSearch( strProjectKeys ) ) : null;
+        }
+        if ( strPath.startsWith( "/" + CONTEXT_SONAR ) )
+        {
+            String strComponent = mapParameters.get( "component" );
+            String strArtifactId = ( strComponent == null ) ? null : strComponent.substring( strComponent.indexOf( ':' ) + 1 );
+            return ( ( strArtifactId != null ) && _content.exists( strArtifactId ) ) ? json( _content.getSonarMeasures( strArtifactId ) ) : null;
+        }
+        if ( strPath.startsWith( "/" + CONTEXT_GITHUB ) )
+        {
+            return github( strPath.substring( CONTEXT_GITHUB.length( ) + 1 ), mapParameters );
+        }
+        if ( strPath.startsWith( "/" + CONTEXT_GITLAB + "api/v4/projects" )
+                || strPath.startsWith( "/" + CONTEXT_GITLAB + "api/v4/groups/" + StubContent.GITLAB_GROUP + "/projects" ) )
+        {
+            return json( _content.getGitLabProjects( getInt( mapParameters, "page", 1 ), mapParameters.get( "last_activity_after" ) ) );
+        }
+        if ( strPath.startsWith( "/" + CONTEXT_JIRA + "rest/api/2/" ) )
+        {
+            return json( jira( strPath.substring( CONTEXT_JIRA.length( ) + "rest/api/2/".length( ) + 1 ) ) );
+        }
+        if ( strPath.startsWith( "/" + CONTEXT_REDMINE ) )
+        {
+            return json( redmine( strPath.substring( CONTEXT_REDMINE.length( ) + 1 ), mapParameters ) );
+        }
+        return null;
+    }
+
+    /**
+     * Routes a POST request
+     * 
+     * @param strPath
+     *            The path
+     * @param strBody
+     *            The request body
+     * @return An array containing the content type and the body, or null if not found
+     * @throws IOException
+     *             if the body is not valid JSON
+     */
+    private String [ ] post( String strPath, String strBody ) throws IOException
+    {
+        if ( strPath.equals( "/" + CONTEXT_GITHUB + "api/graphql" ) )
+        {
+            return json( _content.getGitHubGraphQL( new ObjectMapper( ).readTree( strBody ).path( "query" ).asText( ) ) );
+        }
+        return null;
+    }
+
+    /**
+     * Reads a request body
+     * 
+     * @param in
+     *            The body stream
+     * @return The body
+     * @throws IOException
+     *             if an error occurs
+     */
+    private static String read( InputStream in ) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream( );
+        byte [ ] buffer = new byte [ 4096];
+        int nRead;
+        while ( ( nRead = in.read( buffer ) ) != -1 )
+        {
+            out.write( buffer, 0, nRead );
+        }
+        return new String( out.toByteArray( ), StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Returns a Nexus listing
+     * 
+     * @param strPath
+     *            The path after the browse prefix : {repository}/{path}
+     * @return The listing or null
+     */
+    private String browse( String strPath )
+    {
+        int nPos = strPath.indexOf( '/' );
+        if ( nPos < 0 )
+        {
+            return null;
+        }
+        String strRepository = strPath.substring( 0, nPos );
+        boolean bSnapshots = REPOSITORY_SNAPSHOTS.equals( strRepository );
+        if ( !bSnapshots && !REPOSITORY_RELEASES.equals( strRepository ) )
+        {
+            return null;
+        }
+        String [ ] coordinates = getCoordinates( strPath.substring( nPos + 1 ) );
+        if ( coordinates == null )
+        {
+            return null;
+        }
+        if ( coordinates [0] == null )
+        {
+            return _content.getListing( _content.getArtifactIds( ) );
+        }
+        List<String> listVersions = getVersions( coordinates [0], bSnapshots );
+        if ( coordinates [1].isEmpty( ) )
+        {
+            return _content.getListing( listVersions );
+        }
+        return listVersions.contains( coordinates [1] ) ? _content.getListing( new ArrayList<>( ) ) : null;
+    }
+
+    /**
+     * Returns a Nexus file
+     * 
+     * @param strPath
+     *            The path after the repository prefix : {repository}/{path}
+     * @return The file content or null
+     */
+    private String file( String strPath )
+    {
+        int nPos = strPath.indexOf( '/' );
+        if ( nPos < 0 )
+        {
+            return null;
+        }
+        String strRepository = strPath.substring( 0, nPos );
+        boolean bSnapshots = REPOSITORY_SNAPSHOTS.equals( strRepository );
+        if ( !bSnapshots && !REPOSITORY_RELEASES.equals( strRepository ) )
+        {
+            return null;
+        }
+        String [ ] coordinates = getCoordinates( strPath.substring( nPos + 1 ) );
+        if ( ( coordinates == null ) || ( coordinates [0] == null ) )
+        {
+            return null;
+        }
+        String strArtifactId = coordinates [0];
+        List<String> listVersions = getVersions( strArtifactId, bSnapshots );
+        if ( METADATA.equals( coordinates [1] ) )
+        {
+            return _content.getArtifactMetadata( strArtifactId, listVersions );
+        }
+        int nSlash = coordinates [1].indexOf( '/' );
+        if ( nSlash < 0 )
+        {
+            return null;
+        }
+        String strVersion = coordinates [1].substring( 0, nSlash );
+        String strFile = coordinates [1].substring( nSlash + 1 );
+        if ( !listVersions.contains( strVersion ) )
+        {
+            return null;
+        }
+        if ( METADATA.equals( strFile ) )
+        {
+            return bSnapshots ? _content.getSnapshotMetadata( strArtifactId, strVersion ) : null;
+        }
+        String strFileVersion = bSnapshots ? _content.getSnapshotPomVersion( strVersion ) : strVersion;
+        if ( strFile.equals( strArtifactId + "-" + strFileVersion + ".pom" ) || strFile.equals( strArtifactId + "-" + strVersion + ".pom" ) )
+        {
+            return _content.getPom( strArtifactId, strVersion );
+        }
+        return null;
+    }
+
+    /**
+     * Splits a Nexus path into an artifact id and a remaining path
+     * 
+     * @param strPath
+     *            The path after the repository
+     * @return { null, "" } for the plugins root, { artifactId, remaining path } for an artifact, or null if not found
+     */
+    private String [ ] getCoordinates( String strPath )
+    {
+        if ( strPath.startsWith( PATH_CORE ) )
+        {
+            return new String [ ] {
+                    StubContent.LUTECE_CORE, trimSlash( strPath.substring( PATH_CORE.length( ) ) )
+            };
+        }
+        if ( !strPath.startsWith( PATH_PLUGINS ) )
+        {
+            return null;
+        }
+        String strRemaining = strPath.substring( PATH_PLUGINS.length( ) );
+        if ( strRemaining.isEmpty( ) )
+        {
+            return new String [ ] {
+                    null, ""
+            };
+        }
+        int nPos = strRemaining.indexOf( '/' );
+        String strArtifactId = ( nPos < 0 ) ? strRemaining : strRemaining.substring( 0, nPos );
+        if ( !_content.exists( strArtifactId ) )
+        {
+            return null;
+        }
+        return new String [ ] {
+                strArtifactId, ( nPos < 0 ) ? "" : trimSlash( strRemaining.substring( nPos + 1 ) )
+        };
+    }
+
+    /**
+     * Returns the versions of an artifact in a repository
+     * 
+     * @param strArtifactId
+     *            The artifact id
+     * @param bSnapshots
+     *            true for the snapshots repository
+     * @return The versions
+     */
+    private List<String> getVersions( String strArtifactId, boolean bSnapshots )
+    {
+        if ( bSnapshots )
+        {
+            List<String> list = new ArrayList<>( );
+            list.add( _content.getSnapshot( strArtifactId ) );
+            return list;
+        }
+        return _content.getReleases( strArtifactId );
+    }
+
+    /**
+     * Routes a GitHub request
+     * 
+     * @param strPath
+     *            The path after the GitHub context
+     * @param mapParameters
+     *            The query parameters
+     * @return The response or null
+     */
+    private String [ ] github( String strPath, Map<String, String> mapParameters )
+    {
+        String strOrganization = StubContent.GITHUB_ORGANIZATION;
+        if ( strPath.startsWith( strOrganization + "/" ) && strPath.contains( "/raw/develop/src/site/" ) )
+        {
+            String strArtifactId = strPath.substring( strOrganization.length( ) + 1, strPath.indexOf( "/raw/" ) );
+            String strLang = strPath.contains( "/site/fr/" ) ? "fr" : "en";
+            return _content.exists( strArtifactId ) ? xml( _content.getSiteIndex( strArtifactId, strLang ) ) : null;
+        }
+        String strApi = strPath.startsWith( "api/" ) ? strPath.substring( 4 ) : null;
+        if ( strApi == null )
+        {
+            return null;
+        }
+        if ( strApi.isEmpty( ) || "user".equals( strApi ) )
+        {
+            return json( "{\"login\":\"stub\",\"id\":1}" );
+        }
+        if ( strApi.equals( "orgs/" + strOrganization ) )
+        {
+            return json( _content.getGitHubOrganization( ) );
+        }
+        if ( strApi.equals( "orgs/" + strOrganization + "/repos" ) )
+        {
+            int nPerPage = getInt( mapParameters, "per_page", GITHUB_PAGE_SIZE );
+            return json( _content.getGitHubRepositories( getInt( mapParameters, "page", 1 ), nPerPage ) );
+        }
+        String strPrefix = "repos/" + strOrganization + "/";
+        if ( strApi.startsWith( strPrefix ) )
+        {
+            String [ ] parts = strApi.substring( strPrefix.length( ) ).split( "/" );
+            if ( !_content.exists( parts [0] ) )
+            {
+                return null;
+            }
+            if ( parts.length == 2 && "branches".equals( parts [1] ) )
+            {
+                return json( _content.getGitHubBranches( parts [0] ) );
+            }
+            if ( parts.length == 2 && "pulls".equals( parts [1] ) )
+            {
+                return json( _content.getGitHubPullRequests( parts [0] ) );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Routes a Jira request
+     * 
+     * @param strPath
+     *            The path after rest/api/2/
+     * @return The JSON or null
+     */
+    private String jira( String strPath )
+    {
+        String [ ] parts = strPath.split( "/" );
+        if ( ( parts.length == 2 ) && "project".equals( parts [0] ) )
+        {
+            return _content.getJiraProject( parts [1] );
+        }
+        if ( ( parts.length == 3 ) && "version".equals( parts [0] ) && "unresolvedIssueCount".equals( parts [2] ) )
+        {
+            return _content.getJiraUnresolvedIssueCount( parts [1] );
+        }
+        if ( ( parts.length == 3 ) && "version".equals( parts [0] ) && "relatedIssueCounts".equals( parts [2] ) )
+        {
+            return _content.getJiraRelatedIssueCounts( parts [1] );
+        }
+        return null;
+    }
+
+    /**
+     * Routes a Redmine request
+     * 
+     * @param strPath
+     *            The path after the Redmine context
+     * @param mapParameters
+     *            The query parameters
+     * @return The JSON or null
+     */
+    private String redmine( String strPath, Map<String, String> mapParameters )
+    {
+        String [ ] parts = strPath.split( "/" );
+        if ( ( parts.length == 2 ) && "projects".equals( parts [0] ) && parts [1].endsWith( ".json" ) )
+        {
+            return _content.getRedmineProject( parts [1].substring( 0, parts [1].length( ) - 5 ) );
+        }
+        if ( ( parts.length == 3 ) && "projects".equals( parts [0] ) && "versions.json".equals( parts [2] ) )
+        {
+            return _content.getRedmineVersions( getInt( parts [1], 0 ) );
+        }
+        if ( ( parts.length == 1 ) && "issues.json".equals( parts [0] ) )
+        {
+            int nProjectId = getInt( mapParameters, "project_id", 0 );
+            String strStatus = "*".equals( mapParameters.get( "status_id" ) ) ? "all" : mapParameters.get( "status_id" );
+            return _content.getRedmineIssues( nProjectId, strStatus, getInt( mapParameters, "offset", 0 ),
+                    getInt( mapParameters, "limit", REDMINE_DEFAULT_LIMIT ) );
+        }
+        return null;
+    }
+
+    /**
+     * Counts a request for its stubbed server
+     * 
+     * @param strPath
+     *            The path
+     */
+    private void countContext( String strPath )
+    {
+        for ( Map.Entry<String, AtomicLong> entry : _mapRequestsByContext.entrySet( ) )
+        {
+            if ( strPath.startsWith( "/" + entry.getKey( ) ) )
+            {
+                entry.getValue( ).incrementAndGet( );
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits for the injected latency
+     */
+    private void pause( )
+    {
+        if ( _nMaxLatency > 0 )
+        {
+            try
+            {
+                Thread.sleep( ThreadLocalRandom.current( ).nextInt( _nMinLatency, _nMaxLatency + 1 ) );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        }
+    }
+
+    /**
+     * Sends a response
+     * 
+     * @param exchange
+     *            The exchange
+     * @param nStatus
+     *            The HTTP status
+     * @param strContentType
+     *            The content type
+     * @param strBody
+     *            The body
+     * @throws IOException
+     *             if an error occurs
+     */
+    private static void send( HttpExchange exchange, int nStatus, String strContentType, String strBody ) throws IOException
+    {
+        byte [ ] body = strBody.getBytes( StandardCharsets.UTF_8 );
+        exchange.getResponseHeaders( ).set( "Content-Type", strContentType );
+        exchange.sendResponseHeaders( nStatus, body.length );
+        try ( OutputStream out = exchange.getResponseBody( ) )
+        {
+            out.write( body );
+        }
+    }
+
+    /**
+     * Parses a query string
+     * 
+     * @param strQuery
+     *            The raw query
+     * @return The parameters
+     */
+    private static Map<String, String> getParameters( String strQuery )
+    {
+        Map<String, String> map = new HashMap<>( );
+        if ( strQuery != null )
+        {
+            for ( String strParameter : strQuery.split( "&" ) )
+            {
+                int nPos = strParameter.indexOf( '=' );
+                if ( nPos > 0 )
+                {
+                    try
+                    {
+                        map.put( strParameter.substring( 0, nPos ), URLDecoder.decode( strParameter.substring( nPos + 1 ), "UTF-8" ) );
+                    }
+                    catch( IOException e )
+                    {
+                        // UTF-8 is always supported
+                    }
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Gets an integer query parameter
+     */
+    private static int getInt( Map<String, String> mapParameters, String strName, int nDefault )
+    {
+        return getInt( mapParameters.get( strName ), nDefault );
+    }
+
+    /**
+     * Parses an integer
+     */
+    private static int getInt( String strValue, int nDefault )
+    {
+        try
+        {
+            return ( strValue == null ) ? nDefault : Integer.parseInt( strValue );
+        }
+        catch( NumberFormatException e )
+        {
+            return nDefault;
+        }
+    }
+
+    /**
+     * Removes a trailing slash
+     */
+    private static String trimSlash( String strPath )
+    {
+        return strPath.endsWith( "/" ) ? strPath.substring( 0, strPath.length( ) - 1 ) : strPath;
+    }
+
+    /**
+     * Builds an HTML response
+     */
+    private static String [ ] html( String strBody )
+    {
+        return ( strBody == null ) ? null : new String [ ] {
+                CONTENT_TYPE_HTML, strBody
+        };
+    }
+
+    /**
+     * Builds an XML response
+     */
+    private static String [ ] xml( String strBody )
+    {
+        return ( strBody == null ) ? null : new String [ ] {
+                CONTENT_TYPE_XML, strBody
+        };
+    }
+
+    /**
+     * Builds a JSON response
+     */
+    private static String [ ] json( String strBody )
+    {
+        return ( strBody == null ) ? null : new String [ ] {
+                CONTENT_TYPE_JSON, strBody
+        };
+    }
+}
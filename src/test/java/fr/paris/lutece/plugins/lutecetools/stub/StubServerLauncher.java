@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.stub;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Starts a StubServer from the command line and prints the lutecetools.properties entries to use in the webapp under test.
+ * <p>
+ * Usage : <code>StubServerLauncher [port] [artifacts] [minLatency] [maxLatency] [errorRate]</code>
+ * </p>
+ */
+public final class StubServerLauncher
+{
+    private static final int DEFAULT_PORT = 8089;
+    private static final int DEFAULT_ARTIFACTS = 400;
+
+    /**
+     * Private constructor
+     */
+    private StubServerLauncher( )
+    {
+    }
+
+    /**
+     * Main
+     * 
+     * @param args
+     *            port, number of artifacts, min latency (ms), max latency (ms), error rate
+     * @throws IOException
+     *             if the server can't be started
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    public static void main( String [ ] args ) throws IOException, InterruptedException
+    {
+        int nPort = ( args.length > 0 ) ? Integer.parseInt( args [0] ) : DEFAULT_PORT;
+        int nArtifacts = ( args.length > 1 ) ? Integer.parseInt( args [1] ) : DEFAULT_ARTIFACTS;
+        int nMinLatency = ( args.length > 2 ) ? Integer.parseInt( args [2] ) : 0;
+        int nMaxLatency = ( args.length > 3 ) ? Integer.parseInt( args [3] ) : nMinLatency;
+        double dErrorRate = ( args.length > 4 ) ? Double.parseDouble( args [4] ) : 0.0;
+
+        StubServer server = new StubServer( nArtifacts, nPort );
+        server.setLatency( nMinLatency, nMaxLatency );
+        server.setErrorRate( dErrorRate );
+        server.start( );
+
+        System.out.println( "# Stub server listening on " + server.getBaseUrl( ) + " with " + nArtifacts + " artifacts" );
+        System.out.println( "# Add the following lines to lutecetools.properties :" );
+        for ( Map.Entry<String, String> entry : server.getPluginProperties( ).entrySet( ) )
+        {
+            System.out.println( entry.getKey( ) + "=" + entry.getValue( ) );
+        }
+
+        CountDownLatch latch = new CountDownLatch( 1 );
+        Runtime.getRuntime( ).addShutdownHook( new Thread( ( ) -> {
+            System.out.println( "# Requests : " + server.getRequestCount( ) + " " + server.getRequestCountByContext( ) + ", 304 : "
+                    + server.getNotModifiedCount( ) + ", errors : " + server.getErrorCount( ) );
+            server.stop( );
+            latch.countDown( );
+        } ) );
+        latch.await( );
+    }
+}
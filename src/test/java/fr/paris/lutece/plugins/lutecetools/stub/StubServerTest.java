@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.lutecetools.stub;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.Test;
+
+import fr.paris.lutece.plugins.lutecetools.service.ListingParser;
+import fr.paris.lutece.plugins.lutecetools.service.SaxPomHandler;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * StubServerTest
+ */
+public class StubServerTest extends LuteceTestCase
+{
+    private static final int ARTIFACTS = 12;
+    private static final String BROWSE = "nexus/service/rest/repository/browse/" + StubServer.REPOSITORY_RELEASES + "/fr/paris/lutece/plugins/";
+    private static final String FILES = "nexus/repository/" + StubServer.REPOSITORY_RELEASES + "/fr/paris/lutece/plugins/";
+
+    /**
+     * Test the Nexus listings and POMs against the plugin parsers
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testNexus( ) throws Exception
+    {
+        StubServer server = new StubServer( ARTIFACTS, 0 );
+        server.start( );
+        try
+        {
+            List<String> listAnchors = ListingParser.getAnchorsList( get( server.getBaseUrl( ) + BROWSE, null ).getBody( ) );
+            assertEquals( ARTIFACTS + 1, listAnchors.size( ) );
+            assertEquals( server.getArtifactIds( ).get( 0 ), listAnchors.get( 1 ) );
+
+            String strArtifactId = server.getArtifactIds( ).get( 1 );
+            List<String> listVersions = ListingParser.getAnchorsList( get( server.getBaseUrl( ) + BROWSE + strArtifactId, null ).getBody( ) );
+            String strVersion = listVersions.get( listVersions.size( ) - 1 );
+
+            String strPomUrl = server.getBaseUrl( ) + FILES + strArtifactId + "/" + strVersion + "/" + strArtifactId + "-" + strVersion + ".pom";
+            SaxPomHandler handler = new SaxPomHandler( );
+            SAXParserFactory.newInstance( ).newSAXParser( )
+                    .parse( new ByteArrayInputStream( get( strPomUrl, null ).getBody( ).getBytes( StandardCharsets.UTF_8 ) ), handler );
+            assertEquals( "6.1.0", handler.getParentPomVersion( ) );
+            assertEquals( "STUB00001", handler.getJiraKey( ) );
+            assertEquals( server.getContent( ).getScmUrl( strArtifactId ), handler.getScmUrl( ) );
+            assertEquals( 2, handler.getLuteceDependencies( ).size( ) );
+
+            assertEquals( 404, get( server.getBaseUrl( ) + BROWSE + "plugin-unknown", null ).getStatus( ) );
+        }
+        finally
+        {
+            server.stop( );
+        }
+    }
+
+    /**
+     * Test conditional requests and error injection
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testConditionalAndErrors( ) throws Exception
+    {
+        StubServer server = new StubServer( ARTIFACTS, 0 );
+        server.start( );
+        try
+        {
+            Response response = get( server.getBaseUrl( ) + BROWSE, null );
+            assertEquals( 200, response.getStatus( ) );
+            assertNotNull( response.getETag( ) );
+            assertEquals( 304, get( server.getBaseUrl( ) + BROWSE, response.getETag( ) ).getStatus( ) );
+            assertEquals( 1, server.getNotModifiedCount( ) );
+
+            server.setErrorRate( 1.0 );
+            assertEquals( 503, get( server.getBaseUrl( ) + BROWSE, null ).getStatus( ) );
+            assertEquals( 1, server.getErrorCount( ) );
+            assertEquals( Long.valueOf( 3 ), server.getRequestCountByContext( ).get( StubServer.CONTEXT_NEXUS ) );
+        }
+        finally
+        {
+            server.stop( );
+        }
+    }
+
+    /**
+     * Test the Sonar bulk endpoints
+     * 
+     * @throws Exception
+     *             if an error occurs
+     */
+    @Test
+    public void testSonarBulk( ) throws Exception
+    {
+        StubServer server = new StubServer( ARTIFACTS, 0 );
+        server.start( );
+        try
+        {
+            String strPage = get( server.getBaseUrl( ) + "sonar/api/components/search?qualifiers=TRK&ps=5&p=3", null ).getBody( );
+            assertTrue( strPage.contains( "\"total\":" + ARTIFACTS ) );
+            assertTrue( strPage.contains( "fr.paris.lutece.plugins:" + server.getArtifactIds( ).get( 10 ) ) );
+            assertFalse( strPage.contains( "fr.paris.lutece.plugins:" + server.getArtifactIds( ).get( 9 ) ) );
+
+            // q matches the names or the exact key, not a key prefix
+            assertTrue( get( server.getBaseUrl( ) + "sonar/api/components/search?qualifiers=TRK&ps=5&q=fr.paris.lutece.plugins", null ).getBody( )
+                    .contains( "\"total\":0" ) );
+            String strArtifactId = server.getArtifactIds( ).get( 4 );
+            assertTrue( get( server.getBaseUrl( ) + "sonar/api/components/search?qualifiers=TRK&ps=5&q=" + strArtifactId, null ).getBody( )
+                    .contains( "\"name\":\"" + strArtifactId + "\"" ) );
+
+            String strKey = "fr.paris.lutece.plugins:" + server.getArtifactIds( ).get( 2 );
+            String strMeasures = get( server.getBaseUrl( ) + "sonar/api/measures/search?metricKeys=ncloc,sqale_debt_ratio&projectKeys="
+                    + URLEncoder.encode( strKey + ",fr.paris.lutece.plugins:plugin-unknown", "UTF-8" ), null ).getBody( );
+            assertTrue( strMeasures.contains( "\"value\":\"2.5\",\"component\":\"" + strKey + "\"" ) );
+            assertFalse( strMeasures.contains( "plugin-unknown" ) );
+        }
+        finally
+        {
+            server.stop( );
+        }
+    }
+
+    /**
+     * Performs a GET request
+     * 
+     * @param strUrl
+     *            The URL
+     * @param strETag
+     *            The ETag to send as If-None-Match or null
+     * @return The response
+     * @throws IOException
+     *             if an error occurs
+     */
+    private static Response get( String strUrl, String strETag ) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL( strUrl ).openConnection( );
+        if ( strETag != null )
+        {
+            connection.setRequestProperty( "If-None-Match", strETag );
+        }
+        Response response = new Response( );
+        response._nStatus = connection.getResponseCode( );
+        response._strETag = connection.getHeaderField( "ETag" );
+        if ( response._nStatus == HttpURLConnection.HTTP_OK )
+        {
+            try ( InputStream in = connection.getInputStream( ) )
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream( );
+                byte [ ] buffer = new byte [ 4096];
+                int nRead;
+                while ( ( nRead = in.read( buffer ) ) != -1 )
+                {
+                    out.write( buffer, 0, nRead );
+                }
+                response._strBody = new String( out.toByteArray( ), StandardCharsets.UTF_8 );
+            }
+        }
+        connection.disconnect( );
+        return response;
+    }
+
+    /**
+     * HTTP response
+     */
+    private static final class Response
+    {
+        private int _nStatus;
+        private String _strETag;
+        private String _strBody;
+
+        int getStatus( )
+        {
+            return _nStatus;
+        }
+
+        String getETag( )
+        {
+            return _strETag;
+        }
+
+        String getBody( )
+        {
+            return _strBody;
+        }
+    }
+}